@@ -0,0 +1,133 @@
+package com.chatflow.benchmarks;
+
+import com.chatflow.server.ChatWebSocketServer;
+import com.chatflow.server.ServerConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Handshakes per second against one port, served by the default single selector (acceptors = 0)
+ * or by N SO_REUSEPORT acceptors. Run with -t set to the core count to see how accepts scale.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(Threads.MAX)
+@State(Scope.Benchmark)
+public class AcceptorScalingBenchmark {
+
+    private static final String KEY = "dGhlIHNhbXBsZSBub25jZQ==";
+
+    @Param({"0", "1", "2", "4", "8"})
+    public int acceptors;
+
+    private ChatWebSocketServer server;
+    private int port;
+    private byte[] upgradeRequest;
+    private PrintStream originalOut;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        // The server logs every open/close; keep that off the benchmark's critical path
+        originalOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        port = freePort();
+        ServerConfig config = new ServerConfig();
+        config.setPort(port);
+        server = new ChatWebSocketServer(config);
+        if (acceptors > 0) {
+            server.startWithReusePort(acceptors);
+        } else {
+            server.setReuseAddr(true);
+            server.start();
+        }
+        awaitListening();
+
+        upgradeRequest = ("GET /chat/bench HTTP/1.1\r\n"
+                + "Host: 127.0.0.1:" + port + "\r\n"
+                + "Upgrade: websocket\r\n"
+                + "Connection: Upgrade\r\n"
+                + "Sec-WebSocket-Key: " + KEY + "\r\n"
+                + "Sec-WebSocket-Version: 13\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        server.stop(1000, "benchmark finished");
+        System.setOut(originalOut);
+    }
+
+    @Benchmark
+    public int handshake() throws IOException {
+        try (Socket socket = new Socket()) {
+            // RST on close so client ports are not left in TIME_WAIT
+            socket.setSoLinger(true, 0);
+            socket.setTcpNoDelay(true);
+            socket.connect(new InetSocketAddress("127.0.0.1", port));
+            socket.getOutputStream().write(upgradeRequest);
+            return readStatus(socket.getInputStream());
+        }
+    }
+
+    // Reads the response head and returns the HTTP status code (101 on success)
+    private static int readStatus(InputStream in) throws IOException {
+        StringBuilder head = new StringBuilder(160);
+        int b;
+        while ((b = in.read()) != -1) {
+            head.append((char) b);
+            int len = head.length();
+            if (len >= 4 && head.charAt(len - 1) == '\n' && head.charAt(len - 2) == '\r'
+                    && head.charAt(len - 3) == '\n' && head.charAt(len - 4) == '\r') {
+                break;
+            }
+        }
+        if (head.length() < 12 || !head.substring(9, 12).equals("101")) {
+            throw new IOException("Handshake failed: " + head);
+        }
+        return 101;
+    }
+
+    private void awaitListening() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (System.currentTimeMillis() < deadline) {
+            try (Socket probe = new Socket()) {
+                probe.connect(new InetSocketAddress("127.0.0.1", port), 200);
+                return;
+            } catch (IOException e) {
+                Thread.sleep(50);
+            }
+        }
+        throw new IllegalStateException("Server did not start listening on port " + port);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.chatflow.benchmarks;
+
+import com.chatflow.server.handler.ConnectionManager;
+import org.java_websocket.WebSocket;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ConnectionManager under concurrent churn: one thread group connects and disconnects clients while
+ * another looks up rooms and liveness for established connections, as onMessage does per frame.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Group)
+public class ConnectionManagerBenchmark {
+
+    @Param({"1000", "10000"})
+    public int established;
+
+    private ConnectionManager manager;
+    private WebSocket[] connections;
+    private WebSocket[] churning;
+    private PrintStream originalOut;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Every add/remove logs a line; the benchmark measures the maps, not the console
+        originalOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        manager = new ConnectionManager();
+        connections = new WebSocket[established];
+        for (int i = 0; i < established; i++) {
+            connections[i] = fakeSocket();
+            manager.addConnection(connections[i], "room" + (i % 20 + 1));
+        }
+        churning = new WebSocket[1024];
+        for (int i = 0; i < churning.length; i++) {
+            churning[i] = fakeSocket();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.setOut(originalOut);
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    @Group("churn")
+    @GroupThreads(1)
+    public boolean connectDisconnect(Cursor cursor) {
+        WebSocket conn = churning[cursor.next++ & (churning.length - 1)];
+        manager.addConnection(conn, "room" + (cursor.next % 20 + 1));
+        manager.removeConnection(conn);
+        return manager.hasConnection(conn);
+    }
+
+    @Benchmark
+    @Group("churn")
+    @GroupThreads(3)
+    public String lookup() {
+        WebSocket conn = connections[ThreadLocalRandom.current().nextInt(connections.length)];
+        return manager.hasConnection(conn) ? manager.getRoomId(conn) : null;
+    }
+
+    // Identity-hashed stand-in; ConnectionManager only uses connections as map keys
+    private static WebSocket fakeSocket() {
+        return (WebSocket) Proxy.newProxyInstance(WebSocket.class.getClassLoader(),
+                new Class<?>[] {WebSocket.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        case "toString":
+                            return "FakeSocket@" + Integer.toHexString(System.identityHashCode(proxy));
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+}
@@ -0,0 +1,125 @@
+package com.chatflow.benchmarks;
+
+import com.chatflow.server.filter.AhoCorasickMatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Blocklist check cost per message: the compiled Aho-Corasick DFA against a String.contains
+ * loop over every term and a single regex alternation. Messages are mostly clean, as in production.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ContentFilterBenchmark {
+
+    private static final int MESSAGE_COUNT = 1024;
+    private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyz";
+
+    @Param({"100", "1000", "5000"})
+    public int terms;
+
+    @Param({"50", "300"})
+    public int messageLength;
+
+    private AhoCorasickMatcher matcher;
+    private String[] lowerTerms;
+    private Pattern alternation;
+    private String[] messages;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        List<String> blocklist = new ArrayList<>(terms);
+        for (int i = 0; i < terms; i++) {
+            blocklist.add(randomWord(random, 5 + random.nextInt(6)));
+        }
+
+        matcher = AhoCorasickMatcher.compile(blocklist);
+        lowerTerms = new String[blocklist.size()];
+        StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < blocklist.size(); i++) {
+            lowerTerms[i] = blocklist.get(i).toLowerCase(Locale.ROOT);
+            regex.append(i == 0 ? "" : "|").append(Pattern.quote(lowerTerms[i]));
+        }
+        alternation = Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE);
+
+        // Roughly 1 in 20 messages carries a blocked term
+        messages = new String[MESSAGE_COUNT];
+        for (int i = 0; i < MESSAGE_COUNT; i++) {
+            StringBuilder message = new StringBuilder(messageLength + 16);
+            while (message.length() < messageLength) {
+                message.append(randomWord(random, 2 + random.nextInt(7))).append(' ');
+            }
+            if (random.nextInt(20) == 0) {
+                message.insert(random.nextInt(message.length()), ' ' + blocklist.get(random.nextInt(terms)) + ' ');
+            }
+            messages[i] = message.toString();
+        }
+
+        for (String message : messages) {
+            if (matcher.matches(message) != naiveContains(message)) {
+                throw new IllegalStateException("Matcher disagrees with naive scan on: " + message);
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean ahoCorasick() {
+        return matcher.matches(nextMessage());
+    }
+
+    @Benchmark
+    public boolean naiveContains() {
+        return naiveContains(nextMessage());
+    }
+
+    @Benchmark
+    public boolean regexAlternation() {
+        return alternation.matcher(nextMessage()).find();
+    }
+
+    private boolean naiveContains(String message) {
+        String lower = message.toLowerCase(Locale.ROOT);
+        for (String term : lowerTerms) {
+            if (lower.contains(term)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String nextMessage() {
+        next = (next + 1) & (MESSAGE_COUNT - 1);
+        return messages[next];
+    }
+
+    private static String randomWord(Random random, int length) {
+        char[] word = new char[length];
+        for (int i = 0; i < length; i++) {
+            word[i] = ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+        }
+        return new String(word);
+    }
+}
@@ -0,0 +1,272 @@
+package com.chatflow.benchmarks;
+
+import com.chatflow.server.ChatWebSocketServer;
+import com.chatflow.server.ServerConfig;
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.handshake.ServerHandshake;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs ChatWebSocketServer and N client connections in one JVM over loopback and reports
+ * throughput, latency percentiles, allocation rate and GC time for the run. Not a JMH benchmark:
+ * it measures the whole socket path, so repeat runs rather than relying on a single number.
+ *
+ * java -cp target/benchmarks.jar -Dharness.connections=32 -Dharness.messages=200000 \
+ *      -Dharness.rate=0 com.chatflow.benchmarks.LoopbackHarness
+ */
+public class LoopbackHarness {
+
+    private static final int CONNECTIONS = Integer.getInteger("harness.connections", 16);
+    private static final int MESSAGES = Integer.getInteger("harness.messages", 100000);
+    private static final int WARMUP_MESSAGES = Integer.getInteger("harness.warmupMessages", 20000);
+    // Total messages per second across all connections; 0 sends flat-out
+    private static final int RATE = Integer.getInteger("harness.rate", 0);
+    // Unanswered messages allowed per connection before its sender waits
+    private static final int WINDOW = Integer.getInteger("harness.window", 64);
+    private static final long TIMEOUT_SECONDS = Long.getLong("harness.timeoutSeconds", 120);
+
+    public static void main(String[] args) throws Exception {
+        PrintStream report = System.out;
+        // The server logs every message; keep that off the measured path
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        int port = freePort();
+        ServerConfig config = ServerConfig.fromSystemProperties(port);
+        ChatWebSocketServer server = new ChatWebSocketServer(config);
+        server.setReuseAddr(true);
+        server.start();
+
+        List<HarnessClient> clients = new ArrayList<>(CONNECTIONS);
+        try {
+            for (int i = 0; i < CONNECTIONS; i++) {
+                HarnessClient client = new HarnessClient(new URI("ws://127.0.0.1:" + port + "/chat/harness" + (i + 1)));
+                if (!client.connectBlocking(10, TimeUnit.SECONDS)) {
+                    throw new IOException("Client " + i + " could not connect to port " + port);
+                }
+                clients.add(client);
+            }
+
+            report.println("Loopback harness: " + CONNECTIONS + " connections, " + MESSAGES + " messages, " +
+                           (RATE > 0 ? RATE + " msg/s" : "flat-out") + ", window " + WINDOW);
+            run(clients, WARMUP_MESSAGES);
+            RunResult result = run(clients, MESSAGES);
+            result.print(report);
+        } finally {
+            for (HarnessClient client : clients) {
+                client.closeBlocking();
+            }
+            server.stop(1000, "harness finished");
+            System.setOut(report);
+        }
+    }
+
+    private static RunResult run(List<HarnessClient> clients, int messages) throws InterruptedException {
+        if (messages == 0) {
+            return null;
+        }
+        long[] latencies = new long[messages];
+        CountDownLatch done = new CountDownLatch(messages);
+        AtomicLong errors = new AtomicLong(0);
+        int perClient = messages / clients.size();
+        for (int i = 0; i < clients.size(); i++) {
+            int first = i * perClient;
+            int count = i == clients.size() - 1 ? messages - first : perClient;
+            clients.get(i).prepare(first, count, latencies, done, errors);
+        }
+
+        long gcBefore = gcMillis();
+        long allocatedBefore = allocatedBytes();
+        long started = System.nanoTime();
+
+        List<Thread> senders = new ArrayList<>(clients.size());
+        for (HarnessClient client : clients) {
+            Thread sender = new Thread(client::sendAll, "HarnessSender-" + senders.size());
+            sender.start();
+            senders.add(sender);
+        }
+        boolean completed = done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        long elapsed = System.nanoTime() - started;
+        for (Thread sender : senders) {
+            sender.interrupt();
+            sender.join();
+        }
+
+        return new RunResult(latencies, messages - (int) done.getCount(), errors.get(), completed, elapsed,
+                             allocatedBytes() - allocatedBefore, gcMillis() - gcBefore);
+    }
+
+    private static long gcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+
+    // Sum over live threads; bytes allocated by threads that exit mid-run are not counted
+    private static long allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        long total = 0;
+        for (long bytes : ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            total += Math.max(0, bytes);
+        }
+        return total;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    // One connection and its share of the run; the message id travels in the text and comes back in the echo
+    private static class HarnessClient extends WebSocketClient {
+        private static final String ID_MARKER = "#";
+
+        private final Semaphore window;
+        private final int userId;
+        private volatile int first;
+        private volatile int count;
+        private volatile long[] sentNanos;
+        private volatile long[] latencies;
+        private volatile CountDownLatch done;
+        private volatile AtomicLong errors;
+
+        HarnessClient(URI uri) {
+            super(uri);
+            this.window = new Semaphore(WINDOW);
+            this.userId = (int) (Math.abs(uri.hashCode() % 100000) + 1);
+        }
+
+        void prepare(int first, int count, long[] latencies, CountDownLatch done, AtomicLong errors) {
+            this.first = first;
+            this.count = count;
+            this.sentNanos = new long[count];
+            this.latencies = latencies;
+            this.done = done;
+            this.errors = errors;
+        }
+
+        void sendAll() {
+            long interval = RATE > 0 ? TimeUnit.SECONDS.toNanos(1) * CONNECTIONS / RATE : 0;
+            long start = System.nanoTime();
+            try {
+                for (int i = 0; i < count; i++) {
+                    if (interval > 0) {
+                        long due = start + i * interval;
+                        long wait;
+                        while ((wait = due - System.nanoTime()) > 0) {
+                            LockSupport.parkNanos(wait);
+                        }
+                    }
+                    window.acquire();
+                    sentNanos[i] = System.nanoTime();
+                    send("{\"userId\":\"" + userId + "\",\"username\":\"user" + userId +
+                         "\",\"message\":\"Hello everyone! " + ID_MARKER + i + "\",\"timestamp\":\"" +
+                         Instant.now() + "\",\"messageType\":\"TEXT\"}");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void onMessage(String message) {
+            long received = System.nanoTime();
+            int marker = message.indexOf(ID_MARKER);
+            int end = marker < 0 ? -1 : message.indexOf('"', marker);
+            if (end < 0) {
+                // Errors carry no echo, so the message id is lost; count it and free the slot
+                errors.incrementAndGet();
+                window.release();
+                done.countDown();
+                return;
+            }
+            int i = Integer.parseInt(message.substring(marker + 1, end));
+            latencies[first + i] = received - sentNanos[i];
+            if (!message.startsWith("{\"status\":\"success\"")) {
+                errors.incrementAndGet();
+            }
+            window.release();
+            done.countDown();
+        }
+
+        @Override
+        public void onOpen(ServerHandshake handshake) {
+        }
+
+        @Override
+        public void onClose(int code, String reason, boolean remote) {
+        }
+
+        @Override
+        public void onError(Exception ex) {
+            System.err.println("Harness client error: " + ex.getMessage());
+        }
+    }
+
+    private static class RunResult {
+        private final long[] latencies;
+        private final int completed;
+        private final long errors;
+        private final boolean finished;
+        private final long elapsedNanos;
+        private final long allocatedBytes;
+        private final long gcMillis;
+
+        RunResult(long[] latencies, int completed, long errors, boolean finished, long elapsedNanos,
+                  long allocatedBytes, long gcMillis) {
+            this.latencies = latencies;
+            this.completed = completed;
+            this.errors = errors;
+            this.finished = finished;
+            this.elapsedNanos = elapsedNanos;
+            this.allocatedBytes = allocatedBytes;
+            this.gcMillis = gcMillis;
+        }
+
+        void print(PrintStream out) {
+            double seconds = elapsedNanos / 1e9;
+            long[] sorted = Arrays.stream(latencies).filter(l -> l > 0).sorted().toArray();
+            out.printf("Completed:   %d%s, %d errors, in %.2f s%n", completed,
+                       finished ? "" : " (timed out)", errors, seconds);
+            out.printf("Throughput:  %.0f msg/s%n", completed / seconds);
+            if (sorted.length > 0) {
+                out.printf("Latency us:  p50 %d  p90 %d  p99 %d  p99.9 %d  max %d%n",
+                           percentileMicros(sorted, 50), percentileMicros(sorted, 90),
+                           percentileMicros(sorted, 99), percentileMicros(sorted, 99.9),
+                           sorted[sorted.length - 1] / 1000);
+            }
+            if (allocatedBytes >= 0) {
+                out.printf("Allocation:  %.1f MB/s, %d bytes/msg%n",
+                           allocatedBytes / seconds / (1024 * 1024), completed == 0 ? 0 : allocatedBytes / completed);
+            }
+            out.printf("GC time:     %d ms (%.1f%% of run)%n", gcMillis, gcMillis / 10.0 / seconds);
+        }
+
+        private static long percentileMicros(long[] sorted, double percentile) {
+            int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1000;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.chatflow.benchmarks;
+
+import com.chatflow.client.generator.MessageGenerator;
+import com.chatflow.client.generator.MessageShard;
+import com.chatflow.client.model.ChatMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load client message generation: the old path (a fresh ChatMessage with Instant.now().toString()
+ * and string concatenation, handed through the shared 50000-slot LinkedBlockingQueue) against a
+ * per-worker MessageShard refilling one reused message. Run with -t N to add workers; the old
+ * path shares one queue, the shards share nothing. Add -prof gc to see allocation per message.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageGenerationBenchmark {
+
+    private static final String[] TYPES = {"TEXT", "JOIN", "LEAVE"};
+
+    @State(Scope.Benchmark)
+    public static class SharedQueue {
+        BlockingQueue<ChatMessage> queue;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            queue = new LinkedBlockingQueue<>(50000);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Worker {
+        Random random;
+        MessageShard shard;
+        ChatMessage reused;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            random = new Random();
+            shard = new MessageShard(new SplittableRandom());
+            reused = new ChatMessage();
+        }
+    }
+
+    // Producer and consumer halves in one op, so a blocked put or take cannot stall the run
+    @Benchmark
+    public ChatMessage sharedQueueGenerator(SharedQueue shared, Worker worker) {
+        int roll = worker.random.nextInt(100);
+        ChatMessage message = MessageGenerator.messageFor(worker.random.nextInt(100000) + 1,
+                                                          TYPES[roll < 90 ? 0 : roll < 95 ? 1 : 2], worker.random);
+        shared.queue.offer(message);
+        return shared.queue.poll();
+    }
+
+    @Benchmark
+    public ChatMessage shardedGenerator(Worker worker) {
+        return worker.shard.next(worker.reused);
+    }
+}
@@ -0,0 +1,111 @@
+package com.chatflow.benchmarks;
+
+import com.chatflow.server.model.ChatMessage;
+import com.chatflow.server.model.ErrorResponse;
+import com.chatflow.server.model.ServerClock;
+import com.chatflow.server.model.ServerResponse;
+import com.chatflow.server.model.ServerTiming;
+import com.chatflow.server.validation.MessageValidator;
+import com.chatflow.server.validation.ValidationResult;
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Each stage of the per-message server path in isolation (parse, validate, serialize the reply)
+ * and chained end to end, as ChatWebSocketServer.processMessage runs it minus the socket write.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MessagePipelineBenchmark {
+
+    private static final int PAYLOAD_COUNT = 1024;
+    private static final ServerTiming TIMING = new ServerTiming(120, 45, 30, 15);
+
+    private final ServerClock clock = new ServerClock();
+    private Gson gson;
+    private String[] validPayloads;
+    private String[] invalidPayloads;
+    private ChatMessage[] validMessages;
+    private ChatMessage[] invalidMessages;
+    private ValidationResult[] failures;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        gson = new Gson();
+        validPayloads = Payloads.valid(PAYLOAD_COUNT, 42);
+        invalidPayloads = Payloads.invalid(PAYLOAD_COUNT);
+        validMessages = new ChatMessage[PAYLOAD_COUNT];
+        invalidMessages = new ChatMessage[PAYLOAD_COUNT];
+        failures = new ValidationResult[PAYLOAD_COUNT];
+        for (int i = 0; i < PAYLOAD_COUNT; i++) {
+            validMessages[i] = gson.fromJson(validPayloads[i], ChatMessage.class);
+            invalidMessages[i] = gson.fromJson(invalidPayloads[i], ChatMessage.class);
+            failures[i] = MessageValidator.validate(invalidMessages[i]);
+            if (!MessageValidator.validate(validMessages[i]).isValid() || failures[i].isValid()) {
+                throw new IllegalStateException("Payload fixture misclassified at index " + i);
+            }
+        }
+    }
+
+    @Benchmark
+    public ChatMessage parse() {
+        return gson.fromJson(validPayloads[nextIndex()], ChatMessage.class);
+    }
+
+    @Benchmark
+    public ValidationResult validateValid() {
+        return MessageValidator.validate(validMessages[nextIndex()]);
+    }
+
+    @Benchmark
+    public ValidationResult validateInvalid() {
+        return MessageValidator.validate(invalidMessages[nextIndex()]);
+    }
+
+    @Benchmark
+    public String serializeSuccess() {
+        int i = nextIndex();
+        return gson.toJson(new ServerResponse("success", validMessages[i], clock.isoNow(),
+                                              "room" + (i % 20 + 1), TIMING));
+    }
+
+    @Benchmark
+    public String serializeError() {
+        return gson.toJson(new ErrorResponse("error", failures[nextIndex()].getErrors(),
+                                             clock.isoNow(), TIMING));
+    }
+
+    @Benchmark
+    public String endToEnd() {
+        int i = nextIndex();
+        ChatMessage message = gson.fromJson(validPayloads[i], ChatMessage.class);
+        ValidationResult validation = MessageValidator.validate(message);
+        if (validation.isValid()) {
+            return gson.toJson(new ServerResponse("success", message, clock.isoNow(),
+                                                  "room" + (i % 20 + 1), TIMING));
+        }
+        return gson.toJson(new ErrorResponse("error", validation.getErrors(), clock.isoNow(), TIMING));
+    }
+
+    private int nextIndex() {
+        next = (next + 1) & (PAYLOAD_COUNT - 1);
+        return next;
+    }
+}
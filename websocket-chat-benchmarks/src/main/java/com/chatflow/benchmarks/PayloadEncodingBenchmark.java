@@ -0,0 +1,72 @@
+package com.chatflow.benchmarks;
+
+import com.chatflow.client.generator.MessageShard;
+import com.chatflow.client.generator.PayloadEncoder;
+import com.chatflow.client.model.ChatMessage;
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load client payload encoding, from a filled ChatMessage to the bytes of its text frame: Gson
+ * followed by the UTF-8 conversion that WebSocketClient.send(String) does, against PayloadEncoder
+ * splicing the variable fields into a pre-rendered template. Messages rotate through 1024
+ * pipelined-mode messages (with correlation ids) so every pooled template is exercised.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PayloadEncodingBenchmark {
+
+    private static final int MESSAGE_COUNT = 1024;
+
+    @State(Scope.Thread)
+    public static class Payloads {
+        ChatMessage[] messages;
+        Gson gson;
+        PayloadEncoder encoder;
+        int next;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            MessageShard shard = new MessageShard(new SplittableRandom(42));
+            messages = new ChatMessage[MESSAGE_COUNT];
+            for (int i = 0; i < MESSAGE_COUNT; i++) {
+                messages[i] = shard.next(new ChatMessage());
+                messages[i].setCorrelationId((long) i * 7919);
+            }
+            gson = new Gson();
+            encoder = new PayloadEncoder();
+        }
+
+        ChatMessage next() {
+            return messages[next++ & (MESSAGE_COUNT - 1)];
+        }
+    }
+
+    @Benchmark
+    public byte[] gsonToJson(Payloads payloads) {
+        return payloads.gson.toJson(payloads.next()).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public ByteBuffer templateEncoder(Payloads payloads) {
+        return payloads.encoder.encode(payloads.next()).getPayloadData();
+    }
+}
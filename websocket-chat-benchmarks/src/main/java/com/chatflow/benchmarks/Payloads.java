@@ -0,0 +1,58 @@
+package com.chatflow.benchmarks;
+
+import com.chatflow.client.generator.MessageShard;
+import com.chatflow.client.model.ChatMessage;
+import com.google.gson.Gson;
+
+import java.time.Instant;
+import java.util.SplittableRandom;
+
+/**
+ * Wire payloads shaped like the load client's traffic: generated by the client's MessageShard and
+ * serialized with Gson, as the client's fallback path does.
+ */
+final class Payloads {
+
+    private static final Gson GSON = new Gson();
+
+    private Payloads() {
+    }
+
+    static String[] valid(int count, long seed) {
+        MessageShard shard = new MessageShard(new SplittableRandom(seed));
+        ChatMessage message = new ChatMessage();
+        String[] payloads = new String[count];
+        for (int i = 0; i < count; i++) {
+            payloads[i] = GSON.toJson(shard.next(message));
+        }
+        return payloads;
+    }
+
+    // Each payload breaks a different rule, so every validator branch that reports an error is hit
+    static String[] invalid(int count) {
+        String[] payloads = new String[count];
+        for (int i = 0; i < count; i++) {
+            String timestamp = Instant.now().toString();
+            ChatMessage message;
+            switch (i % 5) {
+                case 0:
+                    message = new ChatMessage("0", "user0", "Hello everyone!", timestamp, "TEXT", "room1");
+                    break;
+                case 1:
+                    message = new ChatMessage("42", "u!", "Hello everyone!", timestamp, "TEXT", "room3");
+                    break;
+                case 2:
+                    message = new ChatMessage("42", "user42", "", timestamp, "TEXT", "room3");
+                    break;
+                case 3:
+                    message = new ChatMessage("42", "user42", "Hello everyone!", "yesterday", "TEXT", "room3");
+                    break;
+                default:
+                    message = new ChatMessage("abc", "user42", "Hello everyone!", timestamp, "SHOUT", "room3");
+                    break;
+            }
+            payloads[i] = GSON.toJson(message);
+        }
+        return payloads;
+    }
+}
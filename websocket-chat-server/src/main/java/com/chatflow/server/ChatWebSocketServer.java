@@ -1,9 +1,31 @@
 package com.chatflow.server;
 
+import com.chatflow.server.acceptor.AcceptorStats;
+import com.chatflow.server.acceptor.ReusePortAcceptorGroup;
+import com.chatflow.server.analytics.HeavyHitterTracker;
+import com.chatflow.server.filter.ContentFilter;
 import com.chatflow.server.handler.ConnectionManager;
+import com.chatflow.server.history.HistoryManager;
 import com.chatflow.server.model.ChatMessage;
 import com.chatflow.server.model.ErrorResponse;
+import com.chatflow.server.model.ServerClock;
 import com.chatflow.server.model.ServerResponse;
+import com.chatflow.server.model.ServerTiming;
+import com.chatflow.server.outbound.OutboundCoalescer;
+import com.chatflow.server.overload.OverloadController;
+import com.chatflow.server.processing.Lane;
+import com.chatflow.server.processing.MessageClassifier;
+import com.chatflow.server.processing.MessageProcessor;
+import com.chatflow.server.processing.PendingMessage;
+import com.chatflow.server.profiling.ConnectionClosedEvent;
+import com.chatflow.server.profiling.ConnectionOpenedEvent;
+import com.chatflow.server.profiling.MessageParsedEvent;
+import com.chatflow.server.profiling.MessageReceivedEvent;
+import com.chatflow.server.profiling.MessageValidatedEvent;
+import com.chatflow.server.profiling.ResponseSentEvent;
+import com.chatflow.server.snapshot.SnapshotManager;
+import com.chatflow.server.storage.LogCleaner;
+import com.chatflow.server.storage.RoomLogStore;
 import com.chatflow.server.validation.MessageValidator;
 import com.chatflow.server.validation.ValidationResult;
 import com.google.gson.Gson;
@@ -12,25 +34,84 @@ import org.java_websocket.WebSocket;
 import org.java_websocket.handshake.ClientHandshake;
 import org.java_websocket.server.WebSocketServer;
 
+import java.io.IOException;
 import java.net.InetSocketAddress;
-import java.time.Instant;
+import java.nio.file.Paths;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class ChatWebSocketServer extends WebSocketServer {
 
     private final Gson gson;
     private final ConnectionManager connectionManager;
+    private final OutboundCoalescer outboundCoalescer;
+    private final MessageProcessor messageProcessor;
+    private final OverloadController overloadController;
+    private final HeavyHitterTracker heavyHitters;
+    private final ContentFilter contentFilter;
+    private final HistoryManager historyManager;
+    private final LogCleaner logCleaner;
+    private final SnapshotManager snapshotManager;
+    private final AtomicBoolean pipelineStarted;
+    private ReusePortAcceptorGroup acceptorGroup;
+    private final ServerClock clock = new ServerClock();
 
     public ChatWebSocketServer(int port) {
-        super(new InetSocketAddress(port));
+        this(ServerConfig.fromSystemProperties(port));
+    }
+
+    public ChatWebSocketServer(ServerConfig config) {
+        super(new InetSocketAddress(config.getPort()));
         this.gson = new Gson();
         this.connectionManager = new ConnectionManager();
-        System.out.println("WebSocket server initialized on port " + port);
+        this.outboundCoalescer = new OutboundCoalescer(config.getFlushWindowMicros(),
+                                                       config.getFlushThresholdBytes());
+        this.messageProcessor = new MessageProcessor(config.getProcessingThreads(),
+                                                     config.getControlBurstLimit(),
+                                                     this::processMessage);
+        this.overloadController = new OverloadController(messageProcessor,
+                                                         config.getOverloadHighDepth(),
+                                                         config.getOverloadLowDepth(),
+                                                         config.getOverloadHighLagMs(),
+                                                         config.getOverloadLowLagMs(),
+                                                         config.getRetryAfterMs());
+        this.heavyHitters = new HeavyHitterTracker(config.getHeavyHitterBucketSeconds(),
+                                                   config.getHeavyHitterBuckets(),
+                                                   config.getHeavyHitterCapacity());
+        this.contentFilter = new ContentFilter(
+                config.getBlocklistFile() == null ? null : Paths.get(config.getBlocklistFile()),
+                config.getBlocklistReloadSeconds());
+        RoomLogStore roomLogs = config.getHistoryDir() == null ? null
+                : new RoomLogStore(Paths.get(config.getHistoryDir()), config.getHistorySegmentBytes());
+        this.historyManager = new HistoryManager(config.getHistoryCapacity(),
+                                                 config.getHistoryQueueCapacity(), roomLogs);
+        this.logCleaner = roomLogs == null ? null
+                : new LogCleaner(roomLogs,
+                                 TimeUnit.MINUTES.toMillis(config.getHistoryRetentionMinutes()),
+                                 config.getHistoryRetentionBytes(),
+                                 config.isHistoryCompactPresence(),
+                                 config.getHistoryCleanerBytesPerSec(),
+                                 TimeUnit.SECONDS.toMillis(config.getHistoryCleanerIntervalSeconds()));
+        this.snapshotManager = config.getSnapshotDir() == null ? null
+                : new SnapshotManager(historyManager, Paths.get(config.getSnapshotDir()),
+                                      TimeUnit.SECONDS.toMillis(config.getSnapshotIntervalSeconds()));
+        this.pipelineStarted = new AtomicBoolean(false);
+        System.out.println("WebSocket server initialized on port " + config.getPort());
     }
 
     @Override
     public void onOpen(WebSocket conn, ClientHandshake handshake) {
         String uri = handshake.getResourceDescriptor();
+        if (isMuxUri(uri)) {
+            connectionManager.addMuxConnection(conn);
+            outboundCoalescer.register(conn);
+            System.out.println("WebSocket opened: " + conn.getRemoteSocketAddress() + " | Multiplexed");
+            recordOpened(conn, null, true);
+            return;
+        }
+
         String roomId = extractRoomId(uri);
         
         if (roomId == null) {
@@ -40,39 +121,124 @@ public class ChatWebSocketServer extends WebSocketServer {
         }
 
         connectionManager.addConnection(conn, roomId);
+        outboundCoalescer.register(conn);
         System.out.println("WebSocket opened: " + conn.getRemoteSocketAddress() + 
                          " | Room: " + roomId);
+
+        recordOpened(conn, roomId, false);
+    }
+
+    private void recordOpened(WebSocket conn, String roomId, boolean multiplexed) {
+        ConnectionOpenedEvent event = new ConnectionOpenedEvent();
+        if (event.shouldCommit()) {
+            event.room = roomId;
+            event.multiplexed = multiplexed;
+            event.remoteAddress = String.valueOf(conn.getRemoteSocketAddress());
+            event.commit();
+        }
     }
 
     @Override
     public void onClose(WebSocket conn, int code, String reason, boolean remote) {
+        ConnectionClosedEvent event = new ConnectionClosedEvent();
+        if (event.shouldCommit()) {
+            event.room = connectionManager.getRoomId(conn);
+            event.code = code;
+            event.remote = remote;
+            event.commit();
+        }
+
         connectionManager.removeConnection(conn);
+        outboundCoalescer.unregister(conn);
         System.out.println("WebSocket closed: " + conn.getRemoteSocketAddress() + 
                          " | Code: " + code + " | Reason: " + reason);
     }
 
     @Override
     public void onMessage(WebSocket conn, String message) {
+        long receivedAt = System.nanoTime();
         String roomId = connectionManager.getRoomId(conn);
+        if (roomId == null && connectionManager.getMuxSession(conn) != null) {
+            // Multiplexed frames name their own room
+            roomId = MessageClassifier.extractRoomId(message);
+            if (roomId == null) {
+                sendErrorResponse(conn, null, "roomId is required on multiplexed connections",
+                                  MessageClassifier.extractCorrelationId(message));
+                return;
+            }
+        }
         System.out.println("Message received from room " + roomId + ": " + message);
 
+        MessageReceivedEvent receivedEvent = new MessageReceivedEvent();
+        if (receivedEvent.shouldCommit()) {
+            receivedEvent.room = roomId;
+            receivedEvent.length = message.length();
+            receivedEvent.commit();
+        }
+
+        heavyHitters.record(roomId, MessageClassifier.extractUserId(message));
+
+        Lane lane = MessageClassifier.classify(message);
+        if (overloadController.shouldReject(lane)) {
+            outboundCoalescer.send(conn, overloadController.getBusyResponse(
+                    MessageClassifier.extractCorrelationId(message)));
+            return;
+        }
+
+        messageProcessor.submit(new PendingMessage(conn, roomId, message, lane, receivedAt));
+    }
+
+    private void processMessage(PendingMessage pending) {
+        long dequeuedAt = System.nanoTime();
+        WebSocket conn = pending.getConn();
+        String roomId = pending.getRoomId();
+        String message = pending.getPayload();
+        long receivedAt = pending.getReceivedNanos();
+
         try {
+            MessageParsedEvent parsedEvent = new MessageParsedEvent();
+            parsedEvent.begin();
             ChatMessage chatMessage = gson.fromJson(message, ChatMessage.class);
-            ValidationResult validation = MessageValidator.validate(chatMessage);
+            long parsedAt = System.nanoTime();
+            parsedEvent.end();
+            if (parsedEvent.shouldCommit()) {
+                parsedEvent.room = roomId;
+                parsedEvent.length = message.length();
+                parsedEvent.commit();
+            }
+
+            MessageValidatedEvent validatedEvent = new MessageValidatedEvent();
+            validatedEvent.begin();
+            ValidationResult validation = MessageValidator.validate(chatMessage, contentFilter);
+            long validatedAt = System.nanoTime();
+            validatedEvent.end();
+            if (validatedEvent.shouldCommit()) {
+                validatedEvent.room = roomId;
+                validatedEvent.length = message.length();
+                validatedEvent.valid = validation.isValid();
+                validatedEvent.commit();
+            }
             
             if (validation.isValid()) {
-                sendSuccessResponse(conn, chatMessage, roomId);
+                updateSubscription(conn, roomId, chatMessage.getMessageType());
+                historyManager.record(roomId, chatMessage, System.currentTimeMillis());
+                sendSuccessResponse(conn, chatMessage, roomId,
+                        ServerTiming.of(receivedAt, dequeuedAt, parsedAt, validatedAt, System.nanoTime()));
             } else {
-                sendErrorResponse(conn, validation);
+                sendErrorResponse(conn, roomId, validation,
+                        chatMessage == null ? null : chatMessage.getCorrelationId(),
+                        ServerTiming.of(receivedAt, dequeuedAt, parsedAt, validatedAt, System.nanoTime()));
             }
             
         } catch (JsonSyntaxException e) {
             System.err.println("Invalid JSON received: " + e.getMessage());
-            sendErrorResponse(conn, "Invalid JSON format: " + e.getMessage());
+            sendErrorResponse(conn, roomId, "Invalid JSON format: " + e.getMessage(),
+                              MessageClassifier.extractCorrelationId(message));
         } catch (Exception e) {
             System.err.println("Error processing message: " + e.getMessage());
             e.printStackTrace();
-            sendErrorResponse(conn, "Internal server error");
+            sendErrorResponse(conn, roomId, "Internal server error",
+                              MessageClassifier.extractCorrelationId(message));
         }
     }
 
@@ -83,6 +249,7 @@ public class ChatWebSocketServer extends WebSocketServer {
         
         if (conn != null) {
             connectionManager.removeConnection(conn);
+            outboundCoalescer.unregister(conn);
         }
     }
 
@@ -92,6 +259,80 @@ public class ChatWebSocketServer extends WebSocketServer {
         System.out.println("Listening for connections on port " + getPort());
         setConnectionLostTimeout(0);  // ✅ Disables the buggy ping/pong mechanism
         System.out.println("Connection lost timeout disabled (prevents library bug)");
+        startPipeline();
+    }
+
+    // Serves the port from N SO_REUSEPORT acceptors instead of this server's own selector thread
+    public void startWithReusePort(int acceptors) throws IOException {
+        acceptorGroup = new ReusePortAcceptorGroup(this, getAddress(), acceptors);
+        startPipeline();
+        acceptorGroup.start();
+    }
+
+    @Override
+    public void stop(int timeout, String closeMessage) throws InterruptedException {
+        if (acceptorGroup != null) {
+            acceptorGroup.stop();
+        } else {
+            super.stop(timeout, closeMessage);
+        }
+        stopPipeline();
+    }
+
+    private void startPipeline() {
+        if (pipelineStarted.compareAndSet(false, true)) {
+            outboundCoalescer.start();
+            messageProcessor.start();
+            overloadController.start();
+            heavyHitters.start();
+            contentFilter.start();
+            if (snapshotManager != null) {
+                snapshotManager.restore();
+            }
+            historyManager.start();
+            if (snapshotManager != null) {
+                snapshotManager.start();
+            }
+            if (logCleaner != null) {
+                logCleaner.start();
+            }
+        }
+    }
+
+    private void stopPipeline() {
+        if (pipelineStarted.compareAndSet(true, false)) {
+            // Acceptors are already stopped; once the workers exit nothing records history
+            overloadController.stop();
+            messageProcessor.stop();
+            if (logCleaner != null) {
+                logCleaner.stop();
+            }
+            // Drains every accepted message into history and closes the room logs
+            historyManager.stop();
+            // After the drain, so the final snapshot holds every accepted message
+            if (snapshotManager != null) {
+                snapshotManager.stop();
+            }
+            contentFilter.stop();
+            heavyHitters.stop();
+            outboundCoalescer.stop();
+        }
+    }
+
+    // JOIN subscribes, LEAVE unsubscribes, TEXT subscribes on first publish; no-op for /chat/{roomId}
+    private void updateSubscription(WebSocket conn, String roomId, String messageType) {
+        if (connectionManager.getMuxSession(conn) == null) {
+            return;
+        }
+        if ("LEAVE".equalsIgnoreCase(messageType.trim())) {
+            connectionManager.unsubscribe(conn, roomId);
+        } else {
+            connectionManager.subscribe(conn, roomId);
+        }
+    }
+
+    private boolean isMuxUri(String uri) {
+        return uri != null && (uri.equals("/mux") || uri.startsWith("/mux/") || uri.startsWith("/mux?"));
     }
 
     private String extractRoomId(String uri) {
@@ -107,36 +348,83 @@ public class ChatWebSocketServer extends WebSocketServer {
         return null;
     }
 
-    private void sendSuccessResponse(WebSocket conn, ChatMessage message, String roomId) {
-        String serverTimestamp = Instant.now().toString();
-        ServerResponse response = new ServerResponse("success", message, serverTimestamp, roomId);
-        String jsonResponse = gson.toJson(response);
-        
-        conn.send(jsonResponse);
+    private void sendSuccessResponse(WebSocket conn, ChatMessage message, String roomId,
+                                     ServerTiming timing) {
+        ServerResponse response = new ServerResponse("success", message,
+                                                     clock.isoNow(), roomId, timing);
+        sendResponse(conn, roomId, gson.toJson(response));
         System.out.println("Success response sent to room " + roomId);
     }
 
-    private void sendErrorResponse(WebSocket conn, ValidationResult validation) {
-        String serverTimestamp = Instant.now().toString();
-        ErrorResponse response = new ErrorResponse("error", validation.getErrors(), serverTimestamp);
-        String jsonResponse = gson.toJson(response);
-        
-        conn.send(jsonResponse);
+    private void sendErrorResponse(WebSocket conn, String roomId, ValidationResult validation,
+                                   Long correlationId, ServerTiming timing) {
+        ErrorResponse response = new ErrorResponse("error", validation.getErrors(),
+                                                   clock.isoNow(), timing);
+        response.setCorrelationId(correlationId);
+        sendResponse(conn, roomId, gson.toJson(response));
         System.out.println("Error response sent: " + validation.getErrors());
     }
 
-    private void sendErrorResponse(WebSocket conn, String errorMessage) {
-        String serverTimestamp = Instant.now().toString();
+    private void sendErrorResponse(WebSocket conn, String roomId, String errorMessage, Long correlationId) {
         ErrorResponse response = new ErrorResponse("error", 
                                                    Collections.singletonList(errorMessage), 
-                                                   serverTimestamp);
-        String jsonResponse = gson.toJson(response);
-        
-        conn.send(jsonResponse);
+                                                   clock.isoNow());
+        response.setCorrelationId(correlationId);
+        sendResponse(conn, roomId, gson.toJson(response));
         System.out.println("Error response sent: " + errorMessage);
     }
 
+    private void sendResponse(WebSocket conn, String roomId, String jsonResponse) {
+        ResponseSentEvent event = new ResponseSentEvent();
+        event.begin();
+        outboundCoalescer.send(conn, jsonResponse);
+        event.end();
+        if (event.shouldCommit()) {
+            event.room = roomId;
+            event.length = jsonResponse.length();
+            event.commit();
+        }
+    }
+
     public ConnectionManager getConnectionManager() {
         return connectionManager;
     }
-}
\ No newline at end of file
+
+    public OutboundCoalescer getOutboundCoalescer() {
+        return outboundCoalescer;
+    }
+
+    public MessageProcessor getMessageProcessor() {
+        return messageProcessor;
+    }
+
+    public OverloadController getOverloadController() {
+        return overloadController;
+    }
+
+    public HeavyHitterTracker getHeavyHitters() {
+        return heavyHitters;
+    }
+
+    public ContentFilter getContentFilter() {
+        return contentFilter;
+    }
+
+    public HistoryManager getHistoryManager() {
+        return historyManager;
+    }
+
+    // null unless history persistence is enabled
+    public LogCleaner getLogCleaner() {
+        return logCleaner;
+    }
+
+    // Null when snapshots are disabled
+    public SnapshotManager getSnapshotManager() {
+        return snapshotManager;
+    }
+
+    public List<AcceptorStats> getAcceptorStats() {
+        return acceptorGroup == null ? Collections.emptyList() : acceptorGroup.getStats();
+    }
+}
@@ -1,5 +1,23 @@
 package com.chatflow.server;
 
+import com.chatflow.server.analytics.HeavyHitterTracker;
+import com.chatflow.server.filter.AhoCorasickMatcher;
+import com.chatflow.server.filter.ContentFilter;
+import com.chatflow.server.handler.ConnectionManager;
+import com.chatflow.server.history.HistoryManager;
+import com.chatflow.server.history.StoredMessage;
+import com.chatflow.server.outbound.FlushStats;
+import com.chatflow.server.outbound.OutboundCoalescer;
+import com.chatflow.server.overload.OverloadController;
+import com.chatflow.server.processing.Lane;
+import com.chatflow.server.processing.LaneStats;
+import com.chatflow.server.processing.MessageProcessor;
+import com.chatflow.server.profiling.ProfilingController;
+import com.chatflow.server.snapshot.SnapshotManager;
+import com.chatflow.server.storage.LogCleaner;
+import com.chatflow.server.storage.LogSlice;
+import com.chatflow.server.storage.RoomLog;
+import com.chatflow.server.storage.RoomLogStore;
 import com.google.gson.Gson;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
@@ -8,22 +26,43 @@ import com.sun.net.httpserver.HttpServer;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.Instant;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 public class HealthCheckServer {
+
+    private static final int MAX_HISTORY_PAGE = 1000;
+    private static final int HISTORY_SCAN_BYTES = 8192;
     
     private final HttpServer server;
     private final Gson gson;
     private final ChatWebSocketServer wsServer;
+    private final ProfilingController profilingController;
 
     public HealthCheckServer(int port, ChatWebSocketServer wsServer) throws IOException {
         this.server = HttpServer.create(new InetSocketAddress(port), 0);
         this.gson = new Gson();
         this.wsServer = wsServer;
+        this.profilingController = new ProfilingController(Paths.get("."));
         
         server.createContext("/health", new HealthHandler());
+        server.createContext("/profiling", new ProfilingHandler());
+        server.createContext("/outbound", new OutboundHandler());
+        server.createContext("/metrics", new MetricsHandler());
+        server.createContext("/heavyhitters", new HeavyHittersHandler());
+        server.createContext("/blocklist", new BlocklistHandler());
+        server.createContext("/rooms/", new RoomsHandler());
         server.setExecutor(null);
         
         System.out.println("Health check server initialized on port " + port);
@@ -69,4 +108,363 @@ public class HealthCheckServer {
             }
         }
     }
+
+    // GET reports recording state; POST ?action=start[&allocation=true] or ?action=stop toggles JFR
+    private class ProfilingHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            String method = exchange.getRequestMethod();
+            if (!"GET".equals(method) && !"POST".equals(method)) {
+                sendJson(exchange, 405, Collections.singletonMap("error", "Method not allowed. Use GET or POST."));
+                return;
+            }
+
+            Map<String, Object> response = new HashMap<>();
+            if ("POST".equals(method)) {
+                Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+                String action = params.get("action");
+
+                if ("start".equals(action)) {
+                    boolean withAllocations = Boolean.parseBoolean(params.get("allocation"));
+                    response.put("started", profilingController.start(withAllocations));
+                } else if ("stop".equals(action)) {
+                    Path output = profilingController.stop();
+                    response.put("stopped", output != null);
+                    if (output != null) {
+                        response.put("file", output.toString());
+                    }
+                } else {
+                    sendJson(exchange, 400, Collections.singletonMap("error", "action must be start or stop"));
+                    return;
+                }
+            }
+
+            response.put("recording", profilingController.isRecording());
+            response.put("allocationProfiling", profilingController.isAllocationProfiling());
+            sendJson(exchange, 200, response);
+        }
+    }
+
+    private class MetricsHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                sendJson(exchange, 405, Collections.singletonMap("error", "Method not allowed. Use GET."));
+                return;
+            }
+
+            MessageProcessor processor = wsServer.getMessageProcessor();
+            Map<String, Object> lanes = new LinkedHashMap<>();
+            for (Lane lane : Lane.values()) {
+                LaneStats stats = processor.getStats(lane);
+                Map<String, Object> laneMetrics = new LinkedHashMap<>();
+                laneMetrics.put("depth", stats.getDepth());
+                laneMetrics.put("enqueued", stats.getEnqueued());
+                laneMetrics.put("dequeued", stats.getDequeued());
+                laneMetrics.put("avgWaitMicros", stats.getAverageWaitMicros());
+                laneMetrics.put("maxWaitMicros", stats.getMaxWaitMicros());
+                lanes.put(lane.name().toLowerCase(), laneMetrics);
+            }
+
+            OverloadController overload = wsServer.getOverloadController();
+            Map<String, Object> overloadMetrics = new LinkedHashMap<>();
+            overloadMetrics.put("overloaded", overload.isOverloaded());
+            overloadMetrics.put("backlog", overload.getLastDepth());
+            overloadMetrics.put("lagMillis", overload.getLastLagMillis());
+            overloadMetrics.put("rejected", overload.getRejectedCount());
+            overloadMetrics.put("episodes", overload.getOverloadEpisodes());
+
+            ConnectionManager connections = wsServer.getConnectionManager();
+            Map<String, Object> muxMetrics = new LinkedHashMap<>();
+            muxMetrics.put("connections", connections.getMuxConnectionCount());
+            muxMetrics.put("subscriptions", connections.getSubscriptionCount());
+            muxMetrics.put("rooms", connections.getSubscribedRoomCount());
+
+            HistoryManager history = wsServer.getHistoryManager();
+            Map<String, Object> historyMetrics = new LinkedHashMap<>();
+            historyMetrics.put("rooms", history.getRoomCount());
+            historyMetrics.put("recorded", history.getRecordedCount());
+            historyMetrics.put("pending", history.getPendingCount());
+            historyMetrics.put("dropped", history.getDroppedCount());
+            historyMetrics.put("persistErrors", history.getPersistErrorCount());
+            historyMetrics.put("internedTerms", history.getInternedTermCount());
+
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("timestamp", Instant.now().toString());
+            response.put("lanes", lanes);
+            response.put("overload", overloadMetrics);
+            response.put("acceptors", wsServer.getAcceptorStats());
+            response.put("mux", muxMetrics);
+            response.put("history", historyMetrics);
+            LogCleaner cleaner = wsServer.getLogCleaner();
+            if (cleaner != null) {
+                Map<String, Object> retention = new LinkedHashMap<>();
+                retention.put("compactPresence", cleaner.isCompactingPresence());
+                retention.put("segmentsDeleted", cleaner.getSegmentsDeleted());
+                retention.put("segmentsCompacted", cleaner.getSegmentsCompacted());
+                retention.put("presenceEventsRemoved", cleaner.getPresenceEventsRemoved());
+                retention.put("bytesReclaimed", cleaner.getBytesReclaimed());
+                retention.put("lastRun", cleaner.getLastRunMillis() == 0 ? null
+                        : Instant.ofEpochMilli(cleaner.getLastRunMillis()).toString());
+                response.put("retention", retention);
+            }
+            SnapshotManager snapshots = wsServer.getSnapshotManager();
+            if (snapshots != null) {
+                Map<String, Object> snapshot = new LinkedHashMap<>();
+                snapshot.put("written", snapshots.getSnapshotsWritten());
+                snapshot.put("errors", snapshots.getSnapshotErrors());
+                snapshot.put("lastWrite", snapshots.getLastWriteMillis() == 0 ? null
+                        : Instant.ofEpochMilli(snapshots.getLastWriteMillis()).toString());
+                snapshot.put("lastWriteBytes", snapshots.getLastWriteBytes());
+                snapshot.put("lastWriteMs", snapshots.getLastWriteDurationMillis());
+                snapshot.put("restoredRooms", snapshots.getRestoredRooms());
+                snapshot.put("restoreMs", snapshots.getRestoreDurationMillis());
+                response.put("snapshot", snapshot);
+            }
+            sendJson(exchange, 200, response);
+        }
+    }
+
+    private class OutboundHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                sendJson(exchange, 405, Collections.singletonMap("error", "Method not allowed. Use GET."));
+                return;
+            }
+
+            OutboundCoalescer coalescer = wsServer.getOutboundCoalescer();
+            List<FlushStats> connections = coalescer.getFlushStats();
+            long frames = coalescer.getClosedFrames();
+            long writes = coalescer.getClosedWrites();
+            for (FlushStats stats : connections) {
+                frames += stats.getFrames();
+                writes += stats.getWrites();
+            }
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("coalescingEnabled", coalescer.isEnabled());
+            response.put("frames", frames);
+            response.put("writes", writes);
+            response.put("writesSaved", frames - writes);
+            response.put("connections", connections);
+            sendJson(exchange, 200, response);
+        }
+    }
+
+    private void sendJson(HttpExchange exchange, int statusCode, Object body) throws IOException {
+        byte[] bytes = gson.toJson(body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(statusCode, bytes.length);
+
+        OutputStream os = exchange.getResponseBody();
+        os.write(bytes);
+        os.close();
+    }
+
+    private class HeavyHittersHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                sendJson(exchange, 405, Collections.singletonMap("error", "Method not allowed. Use GET."));
+                return;
+            }
+
+            Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+            int windowSeconds;
+            int limit;
+            try {
+                windowSeconds = Integer.parseInt(params.getOrDefault("window", "60"));
+                limit = Integer.parseInt(params.getOrDefault("limit", "10"));
+            } catch (NumberFormatException e) {
+                sendJson(exchange, 400, Collections.singletonMap("error", "window and limit must be integers"));
+                return;
+            }
+            if (windowSeconds < 1 || limit < 1) {
+                sendJson(exchange, 400, Collections.singletonMap("error", "window and limit must be positive"));
+                return;
+            }
+
+            HeavyHitterTracker tracker = wsServer.getHeavyHitters();
+            int buckets = tracker.bucketsFor(windowSeconds);
+
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("timestamp", Instant.now().toString());
+            response.put("windowSeconds", buckets * tracker.getBucketSeconds());
+            response.put("messages", tracker.messageCount(buckets));
+            response.put("rooms", tracker.topRooms(buckets, limit));
+            response.put("users", tracker.topUsers(buckets, limit));
+            sendJson(exchange, 200, response);
+        }
+    }
+
+    private class BlocklistHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            String method = exchange.getRequestMethod();
+            if (!"GET".equals(method) && !"POST".equals(method)) {
+                sendJson(exchange, 405, Collections.singletonMap("error", "Method not allowed. Use GET or POST."));
+                return;
+            }
+
+            ContentFilter filter = wsServer.getContentFilter();
+            if ("POST".equals(method)) {
+                if (filter.getBlocklistFile() == null) {
+                    sendJson(exchange, 400, Collections.singletonMap("error", "No blocklist file configured"));
+                    return;
+                }
+                try {
+                    filter.reload();
+                } catch (IOException e) {
+                    sendJson(exchange, 500, Collections.singletonMap("error", "Reload failed: " + e.getMessage()));
+                    return;
+                }
+            }
+
+            AhoCorasickMatcher matcher = filter.getMatcher();
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("file", filter.getBlocklistFile() == null ? null : filter.getBlocklistFile().toString());
+            response.put("terms", matcher.getTermCount());
+            response.put("states", matcher.getStateCount());
+            response.put("alphabetSize", matcher.getAlphabetSize());
+            response.put("reloads", filter.getReloadCount());
+            response.put("loadedAt", filter.getLoadedAtMillis() == 0 ? null
+                    : Instant.ofEpochMilli(filter.getLoadedAtMillis()).toString());
+            response.put("blockedMessages", filter.getBlockedCount());
+            sendJson(exchange, 200, response);
+        }
+    }
+
+    // /rooms/{roomId}/search?q=&limit=, /rooms/{roomId}/history?from=&limit= and /rooms/{roomId}/presence
+    private class RoomsHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                sendJson(exchange, 405, Collections.singletonMap("error", "Method not allowed. Use GET."));
+                return;
+            }
+
+            String[] parts = exchange.getRequestURI().getPath().split("/");
+            if (parts.length != 4 || parts[2].isEmpty()) {
+                sendJson(exchange, 404, Collections.singletonMap("error",
+                        "Expected /rooms/{roomId}/search, /rooms/{roomId}/history or /rooms/{roomId}/presence"));
+                return;
+            }
+            String roomId = parts[2];
+            Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+
+            if ("search".equals(parts[3])) {
+                handleSearch(exchange, roomId, params);
+            } else if ("history".equals(parts[3])) {
+                handleHistory(exchange, roomId, params);
+            } else if ("presence".equals(parts[3])) {
+                List<Integer> users = wsServer.getHistoryManager().getPresentUsers(roomId);
+                Map<String, Object> response = new LinkedHashMap<>();
+                response.put("roomId", roomId);
+                response.put("count", users.size());
+                response.put("users", users);
+                sendJson(exchange, 200, response);
+            } else {
+                sendJson(exchange, 404, Collections.singletonMap("error", "Unknown room resource: " + parts[3]));
+            }
+        }
+
+        private void handleSearch(HttpExchange exchange, String roomId, Map<String, String> params)
+                throws IOException {
+            String query = params.get("q");
+            if (query == null || query.trim().isEmpty()) {
+                sendJson(exchange, 400, Collections.singletonMap("error", "q is required"));
+                return;
+            }
+            int limit;
+            try {
+                limit = Integer.parseInt(params.getOrDefault("limit", "20"));
+            } catch (NumberFormatException e) {
+                sendJson(exchange, 400, Collections.singletonMap("error", "limit must be an integer"));
+                return;
+            }
+            if (limit < 1) {
+                sendJson(exchange, 400, Collections.singletonMap("error", "limit must be positive"));
+                return;
+            }
+
+            List<StoredMessage> results = wsServer.getHistoryManager().search(roomId, query, limit);
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("roomId", roomId);
+            response.put("query", query);
+            response.put("count", results.size());
+            response.put("results", results);
+            sendJson(exchange, 200, response);
+        }
+
+        // Streams the stored NDJSON lines from the segment files without decoding them
+        private void handleHistory(HttpExchange exchange, String roomId, Map<String, String> params)
+                throws IOException {
+            RoomLogStore store = wsServer.getHistoryManager().getRoomLogs();
+            if (store == null) {
+                sendJson(exchange, 404, Collections.singletonMap("error",
+                        "History persistence is disabled (set -Dchatflow.historyDir)"));
+                return;
+            }
+            RoomLog log = store.get(roomId);
+            if (log == null) {
+                sendJson(exchange, 404, Collections.singletonMap("error", "No history for room " + roomId));
+                return;
+            }
+
+            long from;
+            int limit;
+            try {
+                from = params.containsKey("from") ? Long.parseLong(params.get("from")) : log.getFirstSeq();
+                limit = Integer.parseInt(params.getOrDefault("limit", "100"));
+            } catch (NumberFormatException e) {
+                sendJson(exchange, 400, Collections.singletonMap("error", "from and limit must be integers"));
+                return;
+            }
+            if (from < 0 || limit < 1 || limit > MAX_HISTORY_PAGE) {
+                sendJson(exchange, 400, Collections.singletonMap("error",
+                        "from must be >= 0 and limit 1-" + MAX_HISTORY_PAGE));
+                return;
+            }
+
+            List<LogSlice> slices = log.read(from, limit, ByteBuffer.allocate(HISTORY_SCAN_BYTES));
+            long length = 0;
+            int count = 0;
+            for (LogSlice slice : slices) {
+                length += slice.getLength();
+                count += slice.getCount();
+            }
+            long nextFrom = slices.isEmpty() ? Math.max(from, log.getFirstSeq())
+                                             : slices.get(slices.size() - 1).getLastSeq() + 1;
+
+            exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson");
+            exchange.getResponseHeaders().set("X-Message-Count", String.valueOf(count));
+            exchange.getResponseHeaders().set("X-Next-From", String.valueOf(nextFrom));
+            exchange.sendResponseHeaders(200, length == 0 ? -1 : length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                WritableByteChannel target = Channels.newChannel(os);
+                for (LogSlice slice : slices) {
+                    slice.transferTo(target);
+                }
+            }
+        }
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> params = new HashMap<>();
+        if (query == null || query.isEmpty()) {
+            return params;
+        }
+
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                           URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            } else if (!pair.isEmpty()) {
+                params.put(URLDecoder.decode(pair, StandardCharsets.UTF_8), "");
+            }
+        }
+        return params;
+    }
 }
\ No newline at end of file
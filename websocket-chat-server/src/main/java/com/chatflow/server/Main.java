@@ -16,8 +16,13 @@ public class Main {
         System.out.println();
 
         try {
-            ChatWebSocketServer wsServer = new ChatWebSocketServer(WEBSOCKET_PORT);
-            wsServer.start();
+            ServerConfig config = ServerConfig.fromSystemProperties(WEBSOCKET_PORT);
+            ChatWebSocketServer wsServer = new ChatWebSocketServer(config);
+            if (config.getAcceptors() > 0) {
+                wsServer.startWithReusePort(config.getAcceptors());
+            } else {
+                wsServer.start();
+            }
             
             Thread.sleep(1000);
             
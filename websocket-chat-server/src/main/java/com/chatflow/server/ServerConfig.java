@@ -0,0 +1,312 @@
+package com.chatflow.server;
+
+public class ServerConfig {
+
+    private int port = 8080;
+    private int flushWindowMicros = 0;
+    private int flushThresholdBytes = 16 * 1024;
+    private int processingThreads = Runtime.getRuntime().availableProcessors();
+    private int controlBurstLimit = 8;
+    private int overloadHighDepth = 10000;
+    private int overloadLowDepth = 2000;
+    private long overloadHighLagMs = 250;
+    private long overloadLowLagMs = 50;
+    private long retryAfterMs = 200;
+    private int acceptors = 0;
+    private int heavyHitterBucketSeconds = 10;
+    private int heavyHitterBuckets = 30;
+    private int heavyHitterCapacity = 64;
+    private String blocklistFile = null;
+    private int blocklistReloadSeconds = 5;
+    private int historyCapacity = 1000;
+    private int historyQueueCapacity = 65536;
+    private String historyDir = null;
+    private long historySegmentBytes = 16L * 1024 * 1024;
+    private long historyRetentionMinutes = 7 * 24 * 60;
+    private long historyRetentionBytes = 1024L * 1024 * 1024;
+    private boolean historyCompactPresence = false;
+    private long historyCleanerBytesPerSec = 8L * 1024 * 1024;
+    private int historyCleanerIntervalSeconds = 60;
+    private String snapshotDir = null;
+    private int snapshotIntervalSeconds = 30;
+
+    // Defaults can be overridden with -Dchatflow.<setting>=<value>
+    public static ServerConfig fromSystemProperties(int port) {
+        ServerConfig config = new ServerConfig();
+        config.setPort(port);
+        config.setFlushWindowMicros(Integer.getInteger("chatflow.flushWindowMicros",
+                                                       config.getFlushWindowMicros()));
+        config.setFlushThresholdBytes(Integer.getInteger("chatflow.flushThresholdBytes",
+                                                         config.getFlushThresholdBytes()));
+        config.setProcessingThreads(Integer.getInteger("chatflow.processingThreads",
+                                                       config.getProcessingThreads()));
+        config.setControlBurstLimit(Integer.getInteger("chatflow.controlBurstLimit",
+                                                       config.getControlBurstLimit()));
+        config.setOverloadHighDepth(Integer.getInteger("chatflow.overloadHighDepth",
+                                                       config.getOverloadHighDepth()));
+        config.setOverloadLowDepth(Integer.getInteger("chatflow.overloadLowDepth",
+                                                      config.getOverloadLowDepth()));
+        config.setOverloadHighLagMs(Long.getLong("chatflow.overloadHighLagMs",
+                                                 config.getOverloadHighLagMs()));
+        config.setOverloadLowLagMs(Long.getLong("chatflow.overloadLowLagMs",
+                                                config.getOverloadLowLagMs()));
+        config.setRetryAfterMs(Long.getLong("chatflow.retryAfterMs", config.getRetryAfterMs()));
+        config.setAcceptors(Integer.getInteger("chatflow.acceptors", config.getAcceptors()));
+        config.setHeavyHitterBucketSeconds(Integer.getInteger("chatflow.heavyHitterBucketSeconds",
+                                                              config.getHeavyHitterBucketSeconds()));
+        config.setHeavyHitterBuckets(Integer.getInteger("chatflow.heavyHitterBuckets",
+                                                        config.getHeavyHitterBuckets()));
+        config.setHeavyHitterCapacity(Integer.getInteger("chatflow.heavyHitterCapacity",
+                                                         config.getHeavyHitterCapacity()));
+        config.setBlocklistFile(System.getProperty("chatflow.blocklistFile", config.getBlocklistFile()));
+        config.setBlocklistReloadSeconds(Integer.getInteger("chatflow.blocklistReloadSeconds",
+                                                            config.getBlocklistReloadSeconds()));
+        config.setHistoryCapacity(Integer.getInteger("chatflow.historyCapacity", config.getHistoryCapacity()));
+        config.setHistoryQueueCapacity(Integer.getInteger("chatflow.historyQueueCapacity",
+                                                          config.getHistoryQueueCapacity()));
+        config.setHistoryDir(System.getProperty("chatflow.historyDir", config.getHistoryDir()));
+        config.setHistorySegmentBytes(Long.getLong("chatflow.historySegmentBytes",
+                                                   config.getHistorySegmentBytes()));
+        config.setHistoryRetentionMinutes(Long.getLong("chatflow.historyRetentionMinutes",
+                                                       config.getHistoryRetentionMinutes()));
+        config.setHistoryRetentionBytes(Long.getLong("chatflow.historyRetentionBytes",
+                                                     config.getHistoryRetentionBytes()));
+        config.setHistoryCompactPresence(Boolean.parseBoolean(System.getProperty(
+                "chatflow.historyCompactPresence", String.valueOf(config.isHistoryCompactPresence()))));
+        config.setHistoryCleanerBytesPerSec(Long.getLong("chatflow.historyCleanerBytesPerSec",
+                                                         config.getHistoryCleanerBytesPerSec()));
+        config.setHistoryCleanerIntervalSeconds(Integer.getInteger("chatflow.historyCleanerIntervalSeconds",
+                                                                   config.getHistoryCleanerIntervalSeconds()));
+        config.setSnapshotDir(System.getProperty("chatflow.snapshotDir", config.getSnapshotDir()));
+        config.setSnapshotIntervalSeconds(Integer.getInteger("chatflow.snapshotIntervalSeconds",
+                                                             config.getSnapshotIntervalSeconds()));
+        return config;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public void setPort(int port) {
+        this.port = port;
+    }
+
+    public int getFlushWindowMicros() {
+        return flushWindowMicros;
+    }
+
+    public void setFlushWindowMicros(int flushWindowMicros) {
+        this.flushWindowMicros = flushWindowMicros;
+    }
+
+    public int getFlushThresholdBytes() {
+        return flushThresholdBytes;
+    }
+
+    public void setFlushThresholdBytes(int flushThresholdBytes) {
+        this.flushThresholdBytes = flushThresholdBytes;
+    }
+
+    public int getProcessingThreads() {
+        return processingThreads;
+    }
+
+    public void setProcessingThreads(int processingThreads) {
+        this.processingThreads = processingThreads;
+    }
+
+    public int getControlBurstLimit() {
+        return controlBurstLimit;
+    }
+
+    public void setControlBurstLimit(int controlBurstLimit) {
+        this.controlBurstLimit = controlBurstLimit;
+    }
+
+    public int getOverloadHighDepth() {
+        return overloadHighDepth;
+    }
+
+    public void setOverloadHighDepth(int overloadHighDepth) {
+        this.overloadHighDepth = overloadHighDepth;
+    }
+
+    public int getOverloadLowDepth() {
+        return overloadLowDepth;
+    }
+
+    public void setOverloadLowDepth(int overloadLowDepth) {
+        this.overloadLowDepth = overloadLowDepth;
+    }
+
+    public long getOverloadHighLagMs() {
+        return overloadHighLagMs;
+    }
+
+    public void setOverloadHighLagMs(long overloadHighLagMs) {
+        this.overloadHighLagMs = overloadHighLagMs;
+    }
+
+    public long getOverloadLowLagMs() {
+        return overloadLowLagMs;
+    }
+
+    public void setOverloadLowLagMs(long overloadLowLagMs) {
+        this.overloadLowLagMs = overloadLowLagMs;
+    }
+
+    public long getRetryAfterMs() {
+        return retryAfterMs;
+    }
+
+    public void setRetryAfterMs(long retryAfterMs) {
+        this.retryAfterMs = retryAfterMs;
+    }
+
+    // 0 keeps the single Java-WebSocket selector; N > 0 starts N SO_REUSEPORT acceptors on the port
+    public int getAcceptors() {
+        return acceptors;
+    }
+
+    public void setAcceptors(int acceptors) {
+        this.acceptors = acceptors;
+    }
+
+    public int getHeavyHitterBucketSeconds() {
+        return heavyHitterBucketSeconds;
+    }
+
+    public void setHeavyHitterBucketSeconds(int heavyHitterBucketSeconds) {
+        this.heavyHitterBucketSeconds = heavyHitterBucketSeconds;
+    }
+
+    // Longest window kept is bucketSeconds * buckets (default 5 minutes)
+    public int getHeavyHitterBuckets() {
+        return heavyHitterBuckets;
+    }
+
+    public void setHeavyHitterBuckets(int heavyHitterBuckets) {
+        this.heavyHitterBuckets = heavyHitterBuckets;
+    }
+
+    // Top-K slots per bucket for rooms and for users
+    public int getHeavyHitterCapacity() {
+        return heavyHitterCapacity;
+    }
+
+    public void setHeavyHitterCapacity(int heavyHitterCapacity) {
+        this.heavyHitterCapacity = heavyHitterCapacity;
+    }
+
+    // One term per line; null disables content filtering
+    public String getBlocklistFile() {
+        return blocklistFile;
+    }
+
+    public void setBlocklistFile(String blocklistFile) {
+        this.blocklistFile = blocklistFile;
+    }
+
+    // How often the blocklist file is checked for changes; 0 loads it once at startup
+    public int getBlocklistReloadSeconds() {
+        return blocklistReloadSeconds;
+    }
+
+    public void setBlocklistReloadSeconds(int blocklistReloadSeconds) {
+        this.blocklistReloadSeconds = blocklistReloadSeconds;
+    }
+
+    // Recent messages kept, and searchable, per room
+    public int getHistoryCapacity() {
+        return historyCapacity;
+    }
+
+    public void setHistoryCapacity(int historyCapacity) {
+        this.historyCapacity = historyCapacity;
+    }
+
+    public int getHistoryQueueCapacity() {
+        return historyQueueCapacity;
+    }
+
+    public void setHistoryQueueCapacity(int historyQueueCapacity) {
+        this.historyQueueCapacity = historyQueueCapacity;
+    }
+
+    // Directory for per-room message logs; null keeps history in memory only
+    public String getHistoryDir() {
+        return historyDir;
+    }
+
+    public void setHistoryDir(String historyDir) {
+        this.historyDir = historyDir;
+    }
+
+    public long getHistorySegmentBytes() {
+        return historySegmentBytes;
+    }
+
+    public void setHistorySegmentBytes(long historySegmentBytes) {
+        this.historySegmentBytes = historySegmentBytes;
+    }
+
+    // Closed segments older than this are deleted; 0 keeps them regardless of age
+    public long getHistoryRetentionMinutes() {
+        return historyRetentionMinutes;
+    }
+
+    public void setHistoryRetentionMinutes(long historyRetentionMinutes) {
+        this.historyRetentionMinutes = historyRetentionMinutes;
+    }
+
+    // Per-room cap on log size; 0 disables size-based retention
+    public long getHistoryRetentionBytes() {
+        return historyRetentionBytes;
+    }
+
+    public void setHistoryRetentionBytes(long historyRetentionBytes) {
+        this.historyRetentionBytes = historyRetentionBytes;
+    }
+
+    public boolean isHistoryCompactPresence() {
+        return historyCompactPresence;
+    }
+
+    public void setHistoryCompactPresence(boolean historyCompactPresence) {
+        this.historyCompactPresence = historyCompactPresence;
+    }
+
+    // I/O budget for compaction reads and writes; 0 is unthrottled
+    public long getHistoryCleanerBytesPerSec() {
+        return historyCleanerBytesPerSec;
+    }
+
+    public void setHistoryCleanerBytesPerSec(long historyCleanerBytesPerSec) {
+        this.historyCleanerBytesPerSec = historyCleanerBytesPerSec;
+    }
+
+    public int getHistoryCleanerIntervalSeconds() {
+        return historyCleanerIntervalSeconds;
+    }
+
+    public void setHistoryCleanerIntervalSeconds(int historyCleanerIntervalSeconds) {
+        this.historyCleanerIntervalSeconds = historyCleanerIntervalSeconds;
+    }
+
+    // Directory for the periodic history snapshot; null disables snapshots and warm restarts
+    public String getSnapshotDir() {
+        return snapshotDir;
+    }
+
+    public void setSnapshotDir(String snapshotDir) {
+        this.snapshotDir = snapshotDir;
+    }
+
+    public int getSnapshotIntervalSeconds() {
+        return snapshotIntervalSeconds;
+    }
+
+    public void setSnapshotIntervalSeconds(int snapshotIntervalSeconds) {
+        this.snapshotIntervalSeconds = snapshotIntervalSeconds;
+    }
+}
@@ -0,0 +1,53 @@
+package com.chatflow.server.acceptor;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class AcceptorStats {
+    private final int acceptorId;
+    private final AtomicLong accepted;
+    private final AtomicInteger open;
+    private final AtomicLong messages;
+    private final AtomicLong bytesRead;
+    private final AtomicLong selectLoops;
+
+    public AcceptorStats(int acceptorId) {
+        this.acceptorId = acceptorId;
+        this.accepted = new AtomicLong(0);
+        this.open = new AtomicInteger(0);
+        this.messages = new AtomicLong(0);
+        this.bytesRead = new AtomicLong(0);
+        this.selectLoops = new AtomicLong(0);
+    }
+
+    void recordAccept() {
+        accepted.incrementAndGet();
+    }
+
+    void recordOpen() {
+        open.incrementAndGet();
+    }
+
+    void recordClose() {
+        open.decrementAndGet();
+    }
+
+    void recordMessage() {
+        messages.incrementAndGet();
+    }
+
+    void recordRead(int bytes) {
+        bytesRead.addAndGet(bytes);
+    }
+
+    void recordSelectLoop() {
+        selectLoops.incrementAndGet();
+    }
+
+    public int getAcceptorId() { return acceptorId; }
+    public long getAccepted() { return accepted.get(); }
+    public int getOpen() { return open.get(); }
+    public long getMessages() { return messages.get(); }
+    public long getBytesRead() { return bytesRead.get(); }
+    public long getSelectLoops() { return selectLoops.get(); }
+}
@@ -0,0 +1,262 @@
+package com.chatflow.server.acceptor;
+
+import com.chatflow.server.ChatWebSocketServer;
+import org.java_websocket.SocketChannelIOHelper;
+import org.java_websocket.WebSocket;
+import org.java_websocket.WebSocketAdapter;
+import org.java_websocket.WebSocketImpl;
+import org.java_websocket.drafts.Draft;
+import org.java_websocket.drafts.Draft_6455;
+import org.java_websocket.framing.CloseFrame;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.handshake.Handshakedata;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/*
+ * One selector thread with its own SO_REUSEPORT listening socket. The kernel spreads incoming
+ * connections across all acceptors bound to the port. Java-WebSocket's WebSocketServer binds its
+ * socket internally without SO_REUSEPORT, so this loop drives WebSocketImpl directly and hands
+ * open/message/close callbacks to the shared ChatWebSocketServer.
+ */
+public class ReusePortAcceptor extends WebSocketAdapter implements Runnable {
+
+    private static final int BACKLOG = 1024;
+    // Attached to a connection once it is counted open, so only those count a close
+    private static final Object OPENED = new Object();
+
+    private final int acceptorId;
+    private final ChatWebSocketServer handler;
+    private final InetSocketAddress address;
+    private final List<Draft> drafts;
+    private final AcceptorStats stats;
+    private final ByteBuffer readBuffer;
+    private final Thread thread;
+
+    private ServerSocketChannel serverChannel;
+    private Selector selector;
+    private volatile boolean running;
+
+    public ReusePortAcceptor(int acceptorId, ChatWebSocketServer handler, InetSocketAddress address) {
+        this.acceptorId = acceptorId;
+        this.handler = handler;
+        this.address = address;
+        this.drafts = Collections.singletonList(new Draft_6455());
+        this.stats = new AcceptorStats(acceptorId);
+        this.readBuffer = ByteBuffer.allocate(WebSocketImpl.RCVBUF);
+        this.thread = new Thread(this, "ReusePortAcceptor-" + acceptorId);
+    }
+
+    public void bind() throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        if (!serverChannel.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT)) {
+            serverChannel.close();
+            throw new IOException("SO_REUSEPORT is not supported on this platform");
+        }
+        serverChannel.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+        serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        serverChannel.configureBlocking(false);
+        serverChannel.bind(address, BACKLOG);
+
+        selector = Selector.open();
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    public void start() {
+        running = true;
+        thread.start();
+    }
+
+    public void stop() throws InterruptedException {
+        running = false;
+        if (selector != null) {
+            selector.wakeup();
+        }
+        thread.join(1000);
+    }
+
+    // Releases sockets for an acceptor that was bound but never started
+    void release() {
+        try {
+            if (selector != null) {
+                selector.close();
+            }
+            if (serverChannel != null) {
+                serverChannel.close();
+            }
+        } catch (IOException e) {
+            System.err.println("Acceptor " + acceptorId + " release failed: " + e.getMessage());
+        }
+    }
+
+    public AcceptorStats getStats() {
+        return stats;
+    }
+
+    @Override
+    public void run() {
+        System.out.println("Acceptor " + acceptorId + " listening on port " + address.getPort());
+        try {
+            while (running) {
+                selector.select();
+                stats.recordSelectLoop();
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+
+                    if (key.isAcceptable()) {
+                        doAccept();
+                    } else {
+                        WebSocketImpl conn = (WebSocketImpl) key.attachment();
+                        try {
+                            if (key.isReadable()) {
+                                doRead(conn);
+                            }
+                            if (key.isValid() && key.isWritable()) {
+                                doWrite(key, conn);
+                            }
+                        } catch (IOException e) {
+                            key.cancel();
+                            conn.closeConnection(CloseFrame.ABNORMAL_CLOSE, e.getMessage());
+                        }
+                    }
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            if (running) {
+                System.err.println("Acceptor " + acceptorId + " failed: " + e.getMessage());
+            }
+        } finally {
+            closeAll();
+        }
+    }
+
+    private void doAccept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        channel.socket().setKeepAlive(true);
+
+        WebSocketImpl conn = new WebSocketImpl(this, drafts);
+        conn.setSelectionKey(channel.register(selector, SelectionKey.OP_READ, conn));
+        conn.setChannel(channel);
+        stats.recordAccept();
+    }
+
+    // Decoding runs on this selector thread; onMessage only classifies and queues the frame
+    private void doRead(WebSocketImpl conn) throws IOException {
+        if (SocketChannelIOHelper.read(readBuffer, conn, conn.getChannel())) {
+            stats.recordRead(readBuffer.remaining());
+            conn.decode(readBuffer);
+        }
+    }
+
+    private void doWrite(SelectionKey key, WebSocketImpl conn) throws IOException {
+        if (SocketChannelIOHelper.batch(conn, conn.getChannel()) && key.isValid()) {
+            key.interestOps(SelectionKey.OP_READ);
+        }
+    }
+
+    private void closeAll() {
+        if (selector == null) {
+            return;
+        }
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof WebSocketImpl) {
+                ((WebSocketImpl) key.attachment()).close(CloseFrame.GOING_AWAY);
+            }
+        }
+        try {
+            selector.close();
+            serverChannel.close();
+        } catch (IOException e) {
+            System.err.println("Acceptor " + acceptorId + " close failed: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void onWebsocketOpen(WebSocket conn, Handshakedata handshake) {
+        stats.recordOpen();
+        conn.setAttachment(OPENED);
+        handler.onOpen(conn, (ClientHandshake) handshake);
+    }
+
+    @Override
+    public void onWebsocketMessage(WebSocket conn, String message) {
+        stats.recordMessage();
+        handler.onMessage(conn, message);
+    }
+
+    @Override
+    public void onWebsocketMessage(WebSocket conn, ByteBuffer blob) {
+        handler.onMessage(conn, blob);
+    }
+
+    @Override
+    public void onWebsocketClose(WebSocket conn, int code, String reason, boolean remote) {
+        // Sockets that close before their handshake completes were never counted open
+        if (conn.getAttachment() == OPENED) {
+            conn.setAttachment(null);
+            stats.recordClose();
+        }
+        handler.onClose(conn, code, reason, remote);
+    }
+
+    @Override
+    public void onWebsocketClosing(WebSocket conn, int code, String reason, boolean remote) {
+    }
+
+    @Override
+    public void onWebsocketCloseInitiated(WebSocket conn, int code, String reason) {
+    }
+
+    @Override
+    public void onWebsocketError(WebSocket conn, Exception ex) {
+        handler.onError(conn, ex);
+    }
+
+    @Override
+    public void onWriteDemand(WebSocket w) {
+        WebSocketImpl conn = (WebSocketImpl) w;
+        try {
+            conn.getSelectionKey().interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        } catch (Exception e) {
+            conn.outQueue.clear();
+        }
+        selector.wakeup();
+    }
+
+    @Override
+    public InetSocketAddress getLocalSocketAddress(WebSocket conn) {
+        return (InetSocketAddress) channelOf(conn).socket().getLocalSocketAddress();
+    }
+
+    @Override
+    public InetSocketAddress getRemoteSocketAddress(WebSocket conn) {
+        return (InetSocketAddress) channelOf(conn).socket().getRemoteSocketAddress();
+    }
+
+    private static SocketChannel channelOf(WebSocket conn) {
+        return (SocketChannel) ((WebSocketImpl) conn).getChannel();
+    }
+}
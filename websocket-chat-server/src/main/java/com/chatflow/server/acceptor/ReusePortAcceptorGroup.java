@@ -0,0 +1,52 @@
+package com.chatflow.server.acceptor;
+
+import com.chatflow.server.ChatWebSocketServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ReusePortAcceptorGroup {
+
+    private final List<ReusePortAcceptor> acceptors;
+
+    public ReusePortAcceptorGroup(ChatWebSocketServer handler, InetSocketAddress address, int acceptorCount) {
+        this.acceptors = new ArrayList<>();
+        for (int i = 0; i < Math.max(1, acceptorCount); i++) {
+            acceptors.add(new ReusePortAcceptor(i, handler, address));
+        }
+    }
+
+    // Binds every socket before any thread starts so a bind failure leaves nothing running
+    public void start() throws IOException {
+        try {
+            for (ReusePortAcceptor acceptor : acceptors) {
+                acceptor.bind();
+            }
+        } catch (IOException e) {
+            for (ReusePortAcceptor acceptor : acceptors) {
+                acceptor.release();
+            }
+            throw e;
+        }
+        for (ReusePortAcceptor acceptor : acceptors) {
+            acceptor.start();
+        }
+        System.out.println("Started " + acceptors.size() + " SO_REUSEPORT acceptors");
+    }
+
+    public void stop() throws InterruptedException {
+        for (ReusePortAcceptor acceptor : acceptors) {
+            acceptor.stop();
+        }
+    }
+
+    public List<AcceptorStats> getStats() {
+        List<AcceptorStats> stats = new ArrayList<>(acceptors.size());
+        for (ReusePortAcceptor acceptor : acceptors) {
+            stats.add(acceptor.getStats());
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,68 @@
+package com.chatflow.server.analytics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Fixed-size frequency estimator: never undercounts, overcounts by at most ~total/width per key
+public class CountMinSketch {
+
+    private static final long[] SEEDS = {0x9E3779B97F4A7C15L, 0xBF58476D1CE4E5B9L,
+                                         0x94D049BB133111EBL, 0xC2B2AE3D27D4EB4FL,
+                                         0x165667B19E3779F9L, 0x85EBCA77C2B2AE63L,
+                                         0x27D4EB2F165667C5L, 0xFF51AFD7ED558CCDL};
+
+    private final int depth;
+    private final int mask;
+    private final AtomicLongArray counts;
+
+    public CountMinSketch(int depth, int width) {
+        if (depth < 1 || depth > SEEDS.length) {
+            throw new IllegalArgumentException("depth must be 1-" + SEEDS.length);
+        }
+        if (width < 1 || Integer.bitCount(width) != 1) {
+            throw new IllegalArgumentException("width must be a power of two");
+        }
+        this.depth = depth;
+        this.mask = width - 1;
+        this.counts = new AtomicLongArray(depth * width);
+    }
+
+    // Adds one occurrence and returns the key's new estimate
+    public long add(String key) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            long count = counts.incrementAndGet(index(row, key));
+            estimate = Math.min(estimate, count);
+        }
+        return estimate;
+    }
+
+    public long estimate(String key) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counts.get(index(row, key)));
+        }
+        return estimate;
+    }
+
+    public void clear() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+    }
+
+    // Each row hashes the key's chars from its own seed, so keys that share a String.hashCode()
+    // (or a bucket in one row) still land apart in the others
+    private int index(int row, String key) {
+        long h = SEEDS[row] ^ key.length();
+        for (int i = 0; i < key.length(); i++) {
+            h = (h ^ key.charAt(i)) * 0x100000001B3L;
+        }
+        // murmur3 64-bit finalizer
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return row * (mask + 1) + (int) (h & mask);
+    }
+}
@@ -0,0 +1,14 @@
+package com.chatflow.server.analytics;
+
+public class HeavyHitter {
+    private final String key;
+    private final long count;
+
+    public HeavyHitter(String key, long count) {
+        this.key = key;
+        this.count = count;
+    }
+
+    public String getKey() { return key; }
+    public long getCount() { return count; }
+}
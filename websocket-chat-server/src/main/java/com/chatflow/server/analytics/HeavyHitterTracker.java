@@ -0,0 +1,79 @@
+package com.chatflow.server.analytics;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Busiest rooms and users over sliding windows, in fixed memory regardless of cardinality
+public class HeavyHitterTracker {
+
+    private static final int SKETCH_WIDTH = 2048;
+
+    private final WindowedHeavyHitters rooms;
+    private final WindowedHeavyHitters users;
+    private final long bucketMillis;
+    private final Thread rotator;
+
+    private volatile boolean running;
+
+    public HeavyHitterTracker(int bucketSeconds, int windowBuckets, int topK) {
+        this.rooms = new WindowedHeavyHitters(windowBuckets, SKETCH_WIDTH, topK);
+        this.users = new WindowedHeavyHitters(windowBuckets, SKETCH_WIDTH, topK);
+        this.bucketMillis = TimeUnit.SECONDS.toMillis(bucketSeconds);
+        this.rotator = new Thread(this::rotateLoop, "HeavyHitterRotator");
+        this.rotator.setDaemon(true);
+    }
+
+    public void start() {
+        running = true;
+        rotator.start();
+    }
+
+    public void stop() {
+        running = false;
+        rotator.interrupt();
+    }
+
+    public void record(String roomId, String userId) {
+        if (roomId != null) {
+            rooms.record(roomId);
+        }
+        if (userId != null) {
+            users.record(userId);
+        }
+    }
+
+    private void rotateLoop() {
+        while (running) {
+            try {
+                Thread.sleep(bucketMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            rooms.rotate();
+            users.rotate();
+        }
+    }
+
+    // Rounds the requested window up to whole buckets, capped at the longest window kept
+    public int bucketsFor(int windowSeconds) {
+        long buckets = (TimeUnit.SECONDS.toMillis(windowSeconds) + bucketMillis - 1) / bucketMillis;
+        return (int) Math.max(1, Math.min(buckets, rooms.getWindowBuckets()));
+    }
+
+    public List<HeavyHitter> topRooms(int windowBuckets, int limit) {
+        return rooms.top(windowBuckets, limit);
+    }
+
+    public List<HeavyHitter> topUsers(int windowBuckets, int limit) {
+        return users.top(windowBuckets, limit);
+    }
+
+    public long messageCount(int windowBuckets) {
+        return rooms.total(windowBuckets);
+    }
+
+    public long getBucketSeconds() {
+        return TimeUnit.MILLISECONDS.toSeconds(bucketMillis);
+    }
+}
@@ -0,0 +1,104 @@
+package com.chatflow.server.analytics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// The keys with the highest count-min estimates, in a fixed number of slots. A key already held
+// only raises its count, and a newcomer at or below the smallest count seen at the last admission
+// is turned away, both without a lock; the lock is taken only when a newcomer may displace a key
+public class SketchTopK {
+
+    private final int capacity;
+    private final ConcurrentHashMap<String, Counter> index;
+    // Lower bound on the smallest held count once every slot is taken, 0 until then
+    private volatile long admitAbove;
+
+    public SketchTopK(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        this.index = new ConcurrentHashMap<>(this.capacity * 4 / 3 + 1);
+    }
+
+    // estimate is the key's count-min estimate after this occurrence was added to the sketch
+    public void offer(String key, long estimate) {
+        Counter counter = index.get(key);
+        if (counter != null) {
+            counter.raise(estimate);
+            return;
+        }
+        if (estimate <= admitAbove) {
+            return;
+        }
+        admit(key, estimate);
+    }
+
+    private synchronized void admit(String key, long estimate) {
+        Counter counter = index.get(key);
+        if (counter != null) {
+            counter.raise(estimate);
+            return;
+        }
+        if (index.size() < capacity) {
+            index.put(key, new Counter(key, estimate));
+            if (index.size() == capacity) {
+                admitAbove = smallest().getCount();
+            }
+            return;
+        }
+
+        // Held counts only grow, so a scan here also refreshes the bound newcomers are checked against
+        Counter smallest = smallest();
+        if (estimate > smallest.getCount()) {
+            index.remove(smallest.getKey());
+            index.put(key, new Counter(key, estimate));
+            smallest = smallest();
+        }
+        admitAbove = smallest.getCount();
+    }
+
+    private Counter smallest() {
+        Counter smallest = null;
+        for (Counter counter : index.values()) {
+            if (smallest == null || counter.getCount() < smallest.getCount()) {
+                smallest = counter;
+            }
+        }
+        return smallest;
+    }
+
+    // Copies, so callers never see counts change under them
+    public List<Counter> snapshot() {
+        List<Counter> counters = new ArrayList<>(capacity);
+        for (Counter counter : index.values()) {
+            counters.add(new Counter(counter.getKey(), counter.getCount()));
+        }
+        return counters;
+    }
+
+    public synchronized void clear() {
+        index.clear();
+        admitAbove = 0;
+    }
+
+    public static class Counter {
+        private final String key;
+        private final AtomicLong count;
+
+        Counter(String key, long count) {
+            this.key = key;
+            this.count = new AtomicLong(count);
+        }
+
+        // Concurrent offers for one key may carry estimates out of order; keep the largest
+        void raise(long estimate) {
+            long current = count.get();
+            while (estimate > current && !count.compareAndSet(current, estimate)) {
+                current = count.get();
+            }
+        }
+
+        public String getKey() { return key; }
+        public long getCount() { return count.get(); }
+    }
+}
@@ -0,0 +1,96 @@
+package com.chatflow.server.analytics;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+// A ring of sketch + top-K buckets; a sliding window is the sum of its most recent buckets
+public class WindowedHeavyHitters {
+
+    private static final int SKETCH_DEPTH = 4;
+
+    private final Bucket[] buckets;
+    private volatile int current;
+
+    public WindowedHeavyHitters(int windowBuckets, int sketchWidth, int topK) {
+        // One spare bucket is cleared ahead of becoming current
+        this.buckets = new Bucket[windowBuckets + 1];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new Bucket(sketchWidth, topK);
+        }
+    }
+
+    public void record(String key) {
+        Bucket bucket = buckets[current];
+        bucket.topK.offer(key, bucket.sketch.add(key));
+        bucket.total.incrementAndGet();
+    }
+
+    // Called by a single rotator thread once per bucket interval
+    public void rotate() {
+        int next = (current + 1) % buckets.length;
+        buckets[next].clear();
+        current = next;
+    }
+
+    public List<HeavyHitter> top(int windowBuckets, int limit) {
+        int n = Math.min(windowBuckets, buckets.length - 1);
+        int head = current;
+
+        Set<String> candidates = new HashSet<>();
+        for (int i = 0; i < n; i++) {
+            for (SketchTopK.Counter counter : bucket(head, i).topK.snapshot()) {
+                candidates.add(counter.getKey());
+            }
+        }
+
+        List<HeavyHitter> hitters = new ArrayList<>(candidates.size());
+        for (String key : candidates) {
+            long count = 0;
+            for (int i = 0; i < n; i++) {
+                count += bucket(head, i).sketch.estimate(key);
+            }
+            hitters.add(new HeavyHitter(key, count));
+        }
+        hitters.sort((a, b) -> Long.compare(b.getCount(), a.getCount()));
+        return hitters.size() > limit ? new ArrayList<>(hitters.subList(0, limit)) : hitters;
+    }
+
+    public long total(int windowBuckets) {
+        int n = Math.min(windowBuckets, buckets.length - 1);
+        int head = current;
+        long total = 0;
+        for (int i = 0; i < n; i++) {
+            total += bucket(head, i).total.get();
+        }
+        return total;
+    }
+
+    public int getWindowBuckets() {
+        return buckets.length - 1;
+    }
+
+    private Bucket bucket(int head, int age) {
+        return buckets[(head - age + buckets.length) % buckets.length];
+    }
+
+    private static class Bucket {
+        final CountMinSketch sketch;
+        final SketchTopK topK;
+        final AtomicLong total;
+
+        Bucket(int sketchWidth, int topK) {
+            this.sketch = new CountMinSketch(SKETCH_DEPTH, sketchWidth);
+            this.topK = new SketchTopK(topK);
+            this.total = new AtomicLong();
+        }
+
+        void clear() {
+            sketch.clear();
+            topK.clear();
+            total.set(0);
+        }
+    }
+}
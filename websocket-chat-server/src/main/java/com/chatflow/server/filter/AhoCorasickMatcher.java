@@ -0,0 +1,159 @@
+package com.chatflow.server.filter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+// Case-insensitive multi-term matcher compiled to a DFA: one table lookup per input char
+public class AhoCorasickMatcher {
+
+    public static final AhoCorasickMatcher EMPTY = compile(new ArrayList<>());
+
+    private static final int NO_TERM = -1;
+
+    private final String[] terms;
+    // Chars that occur in no term share class 0, which keeps the transition table narrow
+    private final short[] charClass;
+    private final int alphabetSize;
+    private final int[] transitions;
+    private final int[] output;
+    private final int stateCount;
+
+    private AhoCorasickMatcher(String[] terms, short[] charClass, int alphabetSize,
+                               int[] transitions, int[] output, int stateCount) {
+        this.terms = terms;
+        this.charClass = charClass;
+        this.alphabetSize = alphabetSize;
+        this.transitions = transitions;
+        this.output = output;
+        this.stateCount = stateCount;
+    }
+
+    public static AhoCorasickMatcher compile(Collection<String> rawTerms) {
+        Set<String> unique = new LinkedHashSet<>();
+        for (String term : rawTerms) {
+            String normalized = normalize(term.trim());
+            if (!normalized.isEmpty()) {
+                unique.add(normalized);
+            }
+        }
+        String[] terms = unique.toArray(new String[0]);
+
+        short[] charClass = new short[Character.MAX_VALUE + 1];
+        int alphabetSize = 1;
+        int maxStates = 1;
+        for (String term : terms) {
+            maxStates += term.length();
+            for (int i = 0; i < term.length(); i++) {
+                char c = term.charAt(i);
+                if (charClass[c] == 0) {
+                    if (alphabetSize == Short.MAX_VALUE) {
+                        throw new IllegalArgumentException("Too many distinct characters in term list");
+                    }
+                    charClass[c] = (short) alphabetSize++;
+                }
+            }
+        }
+
+        // Trie first; 0 in a transition slot means "no edge" until failure links fill it in
+        int[] trie = new int[maxStates * alphabetSize];
+        int[] output = new int[maxStates];
+        Arrays.fill(output, NO_TERM);
+        int states = 1;
+        for (int t = 0; t < terms.length; t++) {
+            int state = 0;
+            String term = terms[t];
+            for (int i = 0; i < term.length(); i++) {
+                int slot = state * alphabetSize + charClass[term.charAt(i)];
+                if (trie[slot] == 0) {
+                    trie[slot] = states++;
+                }
+                state = trie[slot];
+            }
+            output[state] = t;
+        }
+
+        // Breadth-first: resolve every missing edge to the failure state's edge, giving a full DFA
+        int[] fail = new int[states];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int c = 0; c < alphabetSize; c++) {
+            int child = trie[c];
+            if (child != 0) {
+                fail[child] = 0;
+                queue.add(child);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            if (output[state] == NO_TERM) {
+                output[state] = output[fail[state]];
+            }
+            for (int c = 0; c < alphabetSize; c++) {
+                int slot = state * alphabetSize + c;
+                int child = trie[slot];
+                int fallback = trie[fail[state] * alphabetSize + c];
+                if (child != 0) {
+                    fail[child] = fallback;
+                    queue.add(child);
+                } else {
+                    trie[slot] = fallback;
+                }
+            }
+        }
+
+        int[] transitions = Arrays.copyOf(trie, states * alphabetSize);
+        return new AhoCorasickMatcher(terms, charClass, alphabetSize, transitions,
+                                      Arrays.copyOf(output, states), states);
+    }
+
+    // Returns the first blocked term found in the text, or null
+    public String findFirst(CharSequence text) {
+        if (terms.length == 0) {
+            return null;
+        }
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = fold(text.charAt(i));
+            state = transitions[state * alphabetSize + charClass[c]];
+            int term = output[state];
+            if (term != NO_TERM) {
+                return terms[term];
+            }
+        }
+        return null;
+    }
+
+    public boolean matches(CharSequence text) {
+        return findFirst(text) != null;
+    }
+
+    public int getTermCount() {
+        return terms.length;
+    }
+
+    public int getStateCount() {
+        return stateCount;
+    }
+
+    public int getAlphabetSize() {
+        return alphabetSize;
+    }
+
+    private static String normalize(String term) {
+        StringBuilder folded = new StringBuilder(term.length());
+        for (int i = 0; i < term.length(); i++) {
+            folded.append(fold(term.charAt(i)));
+        }
+        return folded.toString();
+    }
+
+    private static char fold(char c) {
+        if (c < 128) {
+            return c >= 'A' && c <= 'Z' ? (char) (c + 32) : c;
+        }
+        return Character.toLowerCase(c);
+    }
+}
@@ -0,0 +1,131 @@
+package com.chatflow.server.filter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Blocklist check for message text; a reload compiles a new automaton and swaps it in atomically
+public class ContentFilter {
+
+    private final Path blocklistFile;
+    private final long reloadIntervalMillis;
+    private final AtomicReference<AhoCorasickMatcher> matcher;
+    private final AtomicLong blocked;
+    private final AtomicLong reloads;
+    private final Thread watcher;
+
+    private volatile boolean running;
+    private volatile FileTime lastModified;
+    private volatile long loadedAtMillis;
+
+    // blocklistFile may be null, which leaves the filter empty
+    public ContentFilter(Path blocklistFile, int reloadIntervalSeconds) {
+        this.blocklistFile = blocklistFile;
+        this.reloadIntervalMillis = TimeUnit.SECONDS.toMillis(reloadIntervalSeconds);
+        this.matcher = new AtomicReference<>(AhoCorasickMatcher.EMPTY);
+        this.blocked = new AtomicLong(0);
+        this.reloads = new AtomicLong(0);
+        this.watcher = new Thread(this::watchLoop, "BlocklistWatcher");
+        this.watcher.setDaemon(true);
+    }
+
+    public void start() {
+        if (blocklistFile == null) {
+            return;
+        }
+        try {
+            reload();
+        } catch (IOException e) {
+            System.err.println("Failed to load blocklist " + blocklistFile + ": " + e.getMessage());
+        }
+        if (reloadIntervalMillis > 0) {
+            running = true;
+            watcher.start();
+        }
+    }
+
+    public void stop() {
+        running = false;
+        watcher.interrupt();
+    }
+
+    public boolean isBlocked(String text) {
+        if (text == null || matcher.get().findFirst(text) == null) {
+            return false;
+        }
+        blocked.incrementAndGet();
+        return true;
+    }
+
+    // Reads one term per line; blank lines and lines starting with # are skipped
+    public synchronized int reload() throws IOException {
+        if (blocklistFile == null) {
+            return 0;
+        }
+        FileTime modified = Files.getLastModifiedTime(blocklistFile);
+        List<String> terms = new ArrayList<>();
+        for (String line : Files.readAllLines(blocklistFile, StandardCharsets.UTF_8)) {
+            String term = line.trim();
+            if (!term.isEmpty() && !term.startsWith("#")) {
+                terms.add(term);
+            }
+        }
+
+        AhoCorasickMatcher compiled = AhoCorasickMatcher.compile(terms);
+        matcher.set(compiled);
+        lastModified = modified;
+        loadedAtMillis = System.currentTimeMillis();
+        reloads.incrementAndGet();
+        System.out.println("Blocklist loaded: " + compiled.getTermCount() + " terms, " +
+                         compiled.getStateCount() + " states");
+        return compiled.getTermCount();
+    }
+
+    private void watchLoop() {
+        while (running) {
+            try {
+                Thread.sleep(reloadIntervalMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            try {
+                FileTime modified = Files.getLastModifiedTime(blocklistFile);
+                if (!modified.equals(lastModified)) {
+                    reload();
+                }
+            } catch (IOException e) {
+                // Keep serving the last good automaton until the file is readable again
+                System.err.println("Blocklist reload failed: " + e.getMessage());
+            }
+        }
+    }
+
+    public AhoCorasickMatcher getMatcher() {
+        return matcher.get();
+    }
+
+    public Path getBlocklistFile() {
+        return blocklistFile;
+    }
+
+    public long getBlockedCount() {
+        return blocked.get();
+    }
+
+    public long getReloadCount() {
+        return reloads.get();
+    }
+
+    public long getLoadedAtMillis() {
+        return loadedAtMillis;
+    }
+}
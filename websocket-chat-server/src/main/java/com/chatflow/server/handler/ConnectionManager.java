@@ -2,16 +2,21 @@ package com.chatflow.server.handler;
 
 import org.java_websocket.WebSocket;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class ConnectionManager {
     
     private final Map<WebSocket, String> connections;
+    private final Map<WebSocket, MuxSession> muxSessions;
+    private final Map<String, Set<WebSocket>> roomSubscribers;
     private final AtomicInteger connectionCounter;
 
     public ConnectionManager() {
         this.connections = new ConcurrentHashMap<>();
+        this.muxSessions = new ConcurrentHashMap<>();
+        this.roomSubscribers = new ConcurrentHashMap<>();
         this.connectionCounter = new AtomicInteger(0);
     }
 
@@ -22,12 +27,97 @@ public class ConnectionManager {
                          ", Total active: " + connections.size());
     }
 
+    public void addMuxConnection(WebSocket conn) {
+        muxSessions.put(conn, new MuxSession());
+        connectionCounter.incrementAndGet();
+        System.out.println("New multiplexed connection added. Total active: " +
+                         getActiveConnectionCount());
+    }
+
     public void removeConnection(WebSocket conn) {
         String roomId = connections.remove(conn);
         if (roomId != null) {
             System.out.println("Connection removed. Room: " + roomId + 
-                             ", Total active: " + connections.size());
+                             ", Total active: " + getActiveConnectionCount());
+            return;
+        }
+
+        MuxSession session = muxSessions.remove(conn);
+        if (session != null) {
+            // A subscribe that found the session before the removal adds under this lock, so it
+            // either finishes first and is undone here or sees the session closed
+            synchronized (session) {
+                session.close();
+                for (String room : session.getRooms()) {
+                    removeSubscriber(room, conn);
+                }
+            }
+            System.out.println("Multiplexed connection removed. Rooms: " + session.getRoomCount() +
+                             ", Total active: " + getActiveConnectionCount());
+        }
+    }
+
+    public MuxSession getMuxSession(WebSocket conn) {
+        return muxSessions.get(conn);
+    }
+
+    public void subscribe(WebSocket conn, String roomId) {
+        MuxSession session = muxSessions.get(conn);
+        // Every TEXT subscribes, so the common already-subscribed case skips the lock
+        if (session == null || session.isSubscribed(roomId)) {
+            return;
+        }
+        synchronized (session) {
+            if (!session.isClosed() && session.subscribe(roomId)) {
+                addSubscriber(roomId, conn);
+            }
+        }
+    }
+
+    public void unsubscribe(WebSocket conn, String roomId) {
+        MuxSession session = muxSessions.get(conn);
+        if (session == null) {
+            return;
+        }
+        synchronized (session) {
+            if (session.unsubscribe(roomId)) {
+                removeSubscriber(roomId, conn);
+            }
+        }
+    }
+
+    // Atomic with removeSubscriber dropping the room's set, so an add never lands in a discarded set
+    private void addSubscriber(String roomId, WebSocket conn) {
+        roomSubscribers.compute(roomId, (r, subscribers) -> {
+            if (subscribers == null) {
+                subscribers = ConcurrentHashMap.newKeySet();
+            }
+            subscribers.add(conn);
+            return subscribers;
+        });
+    }
+
+    private void removeSubscriber(String roomId, WebSocket conn) {
+        roomSubscribers.computeIfPresent(roomId, (r, subscribers) -> {
+            subscribers.remove(conn);
+            return subscribers.isEmpty() ? null : subscribers;
+        });
+    }
+
+    public int getMuxConnectionCount() {
+        return muxSessions.size();
+    }
+
+    public int getSubscribedRoomCount() {
+        return roomSubscribers.size();
+    }
+
+    public long getSubscriptionCount() {
+        long total = 0;
+        for (MuxSession session : muxSessions.values()) {
+            total += session.getRoomCount();
         }
+        return total;
     }
 
     public String getRoomId(WebSocket conn) {
@@ -35,7 +125,7 @@ public class ConnectionManager {
     }
 
     public int getActiveConnectionCount() {
-        return connections.size();
+        return connections.size() + muxSessions.size();
     }
 
     public int getTotalConnectionCount() {
@@ -43,6 +133,6 @@ public class ConnectionManager {
     }
 
     public boolean hasConnection(WebSocket conn) {
-        return connections.containsKey(conn);
+        return connections.containsKey(conn) || muxSessions.containsKey(conn);
     }
 }
\ No newline at end of file
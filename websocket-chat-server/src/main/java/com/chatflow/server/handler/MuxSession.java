@@ -0,0 +1,45 @@
+package com.chatflow.server.handler;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Rooms one multiplexed connection is subscribed to. ConnectionManager changes them while holding
+// the session's lock, which is also where it marks the session closed
+public class MuxSession {
+
+    private final Set<String> rooms;
+    private boolean closed;
+
+    public MuxSession() {
+        this.rooms = ConcurrentHashMap.newKeySet();
+    }
+
+    public boolean subscribe(String roomId) {
+        return rooms.add(roomId);
+    }
+
+    public boolean unsubscribe(String roomId) {
+        return rooms.remove(roomId);
+    }
+
+    public boolean isSubscribed(String roomId) {
+        return rooms.contains(roomId);
+    }
+
+    public Set<String> getRooms() {
+        return Collections.unmodifiableSet(rooms);
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    void close() {
+        closed = true;
+    }
+
+    public int getRoomCount() {
+        return rooms.size();
+    }
+}
@@ -0,0 +1,336 @@
+package com.chatflow.server.history;
+
+import com.chatflow.server.model.ChatMessage;
+import com.chatflow.server.storage.LogSlice;
+import com.chatflow.server.storage.RoomLog;
+import com.chatflow.server.storage.RoomLogStore;
+import com.google.gson.Gson;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Keeps each room's recent accepted messages and their search index, updated by one background thread
+public class HistoryManager {
+
+    private static final int MAX_INTERNED_TERMS = 200000;
+    // Queued by stop() behind every accepted message; the writer exits when it takes it
+    private static final Accepted SHUTDOWN = new Accepted(null, null, 0);
+
+    private final int capacity;
+    private final ConcurrentHashMap<String, Room> rooms;
+    private final TermDictionary dictionary;
+    private final BlockingQueue<Accepted> pending;
+    private final RoomLogStore roomLogs;
+    private final AtomicLong recorded;
+    private final AtomicLong dropped;
+    private final AtomicLong persistErrors;
+    private final List<Room> pendingIndexBuilds;
+    private final Thread writer;
+
+    // roomLogs may be null, which keeps history in memory only
+    public HistoryManager(int capacity, int queueCapacity, RoomLogStore roomLogs) {
+        this.capacity = capacity;
+        this.rooms = new ConcurrentHashMap<>();
+        this.dictionary = new TermDictionary(MAX_INTERNED_TERMS);
+        this.pending = new ArrayBlockingQueue<>(queueCapacity);
+        this.roomLogs = roomLogs;
+        this.recorded = new AtomicLong(0);
+        this.dropped = new AtomicLong(0);
+        this.persistErrors = new AtomicLong(0);
+        this.pendingIndexBuilds = new ArrayList<>();
+        this.writer = new Thread(this::writeLoop, "HistoryWriter");
+        this.writer.setDaemon(true);
+    }
+
+    public void start() {
+        writer.start();
+    }
+
+    // Call once nothing records any more: the writer appends everything already queued, then the
+    // room logs are closed
+    public void stop() {
+        try {
+            pending.put(SHUTDOWN);
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (roomLogs != null) {
+            roomLogs.close();
+        }
+    }
+
+    // Never blocks the caller: when the writer falls behind, the message is left out of history
+    public void record(String roomId, ChatMessage message, long serverTimestamp) {
+        if (!pending.offer(new Accepted(roomId, message, serverTimestamp))) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    private void writeLoop() {
+        // Restored rooms are searchable once their index is rebuilt here, ahead of any new append
+        for (Room room : pendingIndexBuilds) {
+            for (StoredMessage message : room.history.snapshot()) {
+                room.index.add(message, dictionary);
+            }
+        }
+        pendingIndexBuilds.clear();
+
+        while (true) {
+            Accepted accepted;
+            try {
+                accepted = pending.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (accepted == SHUTDOWN) {
+                return;
+            }
+
+            try {
+                append(accepted);
+            } catch (Exception e) {
+                System.err.println("Error recording history for room " + accepted.roomId + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void append(Accepted accepted) {
+        Room room = rooms.computeIfAbsent(accepted.roomId, this::openRoom);
+        ChatMessage message = accepted.message;
+        StoredMessage stored = new StoredMessage(room.history.nextSeq(), accepted.serverTimestamp,
+                                                 message.getUserId(), message.getUsername(),
+                                                 message.getMessage(), message.getTimestamp(),
+                                                 message.getMessageType());
+        StoredMessage evicted = room.history.append(stored);
+        if (evicted != null) {
+            room.index.evict(evicted);
+        }
+        room.index.add(stored, dictionary);
+        room.updatePresence(stored);
+        recorded.incrementAndGet();
+
+        if (roomLogs != null) {
+            try {
+                roomLogs.append(accepted.roomId, stored);
+            } catch (IOException e) {
+                persistErrors.incrementAndGet();
+                System.err.println("Failed to persist message for room " + accepted.roomId + ": " + e.getMessage());
+            }
+        }
+    }
+
+    // Seqs continue from the room's log, so a restart never reuses a persisted seq
+    private Room openRoom(String roomId) {
+        long nextSeq = 0;
+        if (roomLogs != null) {
+            try {
+                RoomLog log = roomLogs.get(roomId);
+                if (log != null) {
+                    nextSeq = log.getNextSeq();
+                }
+            } catch (IOException e) {
+                System.err.println("Failed to open log for room " + roomId + ": " + e.getMessage());
+            }
+        }
+        return new Room(capacity, nextSeq);
+    }
+
+    // Must be called before start(); restored rings serve immediately, indexes follow on the writer
+    public void restore(List<RoomState> states) {
+        for (RoomState state : states) {
+            List<StoredMessage> messages = state.getMessages();
+            long baseSeq = messages.isEmpty() ? state.getNextSeq() : messages.get(0).getSeq();
+            Room room = new Room(capacity, baseSeq);
+            for (StoredMessage message : messages) {
+                room.history.append(message);
+            }
+            room.presence.or(state.getPresence());
+            replayLogTail(state.getRoomId(), room);
+            rooms.put(state.getRoomId(), room);
+            pendingIndexBuilds.add(room);
+        }
+    }
+
+    // Messages persisted after the snapshot was taken are read back from the end of the room's log
+    private void replayLogTail(String roomId, Room room) {
+        if (roomLogs == null) {
+            return;
+        }
+        try {
+            RoomLog log = roomLogs.get(roomId);
+            long snapshotNext = room.history.nextSeq();
+            if (log == null || log.getNextSeq() <= snapshotNext) {
+                return;
+            }
+            // Presence needs every JOIN/LEAVE since the snapshot; the ring only keeps the last capacity
+            long ringFrom = Math.max(snapshotNext, log.getNextSeq() - capacity);
+            if (ringFrom > snapshotNext) {
+                // The gap is wider than the window, so the snapshot's messages would all be evicted anyway
+                room.history.clear(ringFrom);
+            }
+
+            Gson gson = new Gson();
+            ByteBuffer scratch = ByteBuffer.allocate(8192);
+            int replayed = 0;
+            long from = snapshotNext;
+            while (from < log.getNextSeq()) {
+                List<LogSlice> slices = log.read(from, capacity, scratch);
+                if (slices.isEmpty()) {
+                    break;
+                }
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                WritableByteChannel target = Channels.newChannel(bytes);
+                for (LogSlice slice : slices) {
+                    slice.transferTo(target);
+                }
+                for (String line : new String(bytes.toByteArray(), StandardCharsets.UTF_8).split("\n")) {
+                    if (!line.isEmpty()) {
+                        StoredMessage message = gson.fromJson(line, StoredMessage.class);
+                        room.updatePresence(message);
+                        if (message.getSeq() >= ringFrom) {
+                            room.history.append(message);
+                        }
+                        replayed++;
+                    }
+                }
+                from = slices.get(slices.size() - 1).getLastSeq() + 1;
+            }
+            System.out.println("Replayed " + replayed + " logged messages for room " + roomId);
+        } catch (Exception e) {
+            System.err.println("Failed to replay log tail for room " + roomId + ": " + e.getMessage());
+        }
+    }
+
+    // Copies every room under its own locks; rooms are consistent individually, not with each other
+    public List<RoomState> exportRooms() {
+        List<RoomState> states = new ArrayList<>(rooms.size());
+        for (Map.Entry<String, Room> entry : rooms.entrySet()) {
+            Room room = entry.getValue();
+            List<StoredMessage> messages;
+            long nextSeq;
+            synchronized (room.history) {
+                messages = room.history.snapshot();
+                nextSeq = room.history.nextSeq();
+            }
+            states.add(new RoomState(entry.getKey(), nextSeq, room.copyPresence(), messages));
+        }
+        return states;
+    }
+
+    public List<Integer> getPresentUsers(String roomId) {
+        List<Integer> users = new ArrayList<>();
+        Room room = rooms.get(roomId);
+        if (room != null) {
+            BitSet presence = room.copyPresence();
+            for (int userId = presence.nextSetBit(0); userId >= 0; userId = presence.nextSetBit(userId + 1)) {
+                users.add(userId);
+            }
+        }
+        return users;
+    }
+
+    // Messages in the room's history window containing every term of the query, newest first
+    public List<StoredMessage> search(String roomId, String query, int limit) {
+        List<StoredMessage> results = new ArrayList<>();
+        Room room = rooms.get(roomId);
+        if (room == null) {
+            return results;
+        }
+        for (long seq : room.index.search(Tokenizer.terms(query), limit)) {
+            StoredMessage message = room.history.get(seq);
+            if (message != null) {
+                results.add(message);
+            }
+        }
+        return results;
+    }
+
+    public int getRoomCount() {
+        return rooms.size();
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    public long getRecordedCount() {
+        return recorded.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public long getPersistErrorCount() {
+        return persistErrors.get();
+    }
+
+    public RoomLogStore getRoomLogs() {
+        return roomLogs;
+    }
+
+    public int getInternedTermCount() {
+        return dictionary.size();
+    }
+
+    private static class Room {
+        final RoomHistory history;
+        final RoomIndex index;
+        // Users currently in the room, by numeric userId, following JOIN/LEAVE
+        final BitSet presence;
+
+        Room(int capacity, long nextSeq) {
+            this.history = new RoomHistory(capacity, nextSeq);
+            this.index = new RoomIndex(nextSeq);
+            this.presence = new BitSet();
+        }
+
+        void updatePresence(StoredMessage message) {
+            int userId;
+            try {
+                userId = Integer.parseInt(message.getUserId().trim());
+            } catch (NumberFormatException | NullPointerException e) {
+                return;
+            }
+            synchronized (presence) {
+                if ("JOIN".equalsIgnoreCase(message.getMessageType())) {
+                    presence.set(userId);
+                } else if ("LEAVE".equalsIgnoreCase(message.getMessageType())) {
+                    presence.clear(userId);
+                }
+            }
+        }
+
+        BitSet copyPresence() {
+            synchronized (presence) {
+                return (BitSet) presence.clone();
+            }
+        }
+    }
+
+    private static class Accepted {
+        final String roomId;
+        final ChatMessage message;
+        final long serverTimestamp;
+
+        Accepted(String roomId, ChatMessage message, long serverTimestamp) {
+            this.roomId = roomId;
+            this.message = message;
+            this.serverTimestamp = serverTimestamp;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.chatflow.server.history;
+
+import java.util.Arrays;
+
+// Ascending int positions for one term; evictions always remove from the head
+public class PostingList {
+
+    private int[] positions;
+    private int head;
+    private int tail;
+
+    public PostingList() {
+        this.positions = new int[4];
+    }
+
+    public void add(int position) {
+        if (tail > 0 && positions[tail - 1] == position) {
+            return;
+        }
+        if (tail == positions.length) {
+            if (head > positions.length / 2) {
+                // Mostly evicted: slide down instead of growing
+                System.arraycopy(positions, head, positions, 0, tail - head);
+                tail -= head;
+                head = 0;
+            } else {
+                positions = Arrays.copyOf(positions, positions.length * 2);
+            }
+        }
+        positions[tail++] = position;
+    }
+
+    // Drops every position up to and including the given one
+    public void removeThrough(int position) {
+        while (head < tail && positions[head] <= position) {
+            head++;
+        }
+    }
+
+    public boolean contains(int position) {
+        return Arrays.binarySearch(positions, head, tail, position) >= 0;
+    }
+
+    public boolean isEmpty() {
+        return head == tail;
+    }
+
+    public int size() {
+        return tail - head;
+    }
+
+    public int get(int index) {
+        return positions[head + index];
+    }
+}
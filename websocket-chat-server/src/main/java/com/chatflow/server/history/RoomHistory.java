@@ -0,0 +1,80 @@
+package com.chatflow.server.history;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Ring buffer of a room's most recent messages; appending past capacity evicts the oldest
+public class RoomHistory {
+
+    private final StoredMessage[] ring;
+    private long nextSeq;
+    private int size;
+
+    public RoomHistory(int capacity, long nextSeq) {
+        this.ring = new StoredMessage[capacity];
+        this.nextSeq = nextSeq;
+    }
+
+    public synchronized long nextSeq() {
+        return nextSeq;
+    }
+
+    // Returns the evicted message, or null while the ring is still filling
+    public synchronized StoredMessage append(StoredMessage message) {
+        // Live appends are contiguous; a log replay can skip seqs that compaction removed
+        while (nextSeq < message.getSeq()) {
+            ring[(int) (nextSeq % ring.length)] = null;
+            nextSeq++;
+            if (size < ring.length) {
+                size++;
+            }
+        }
+        int slot = (int) (message.getSeq() % ring.length);
+        StoredMessage evicted = size == ring.length ? ring[slot] : null;
+        ring[slot] = message;
+        nextSeq = message.getSeq() + 1;
+        if (size < ring.length) {
+            size++;
+        }
+        return evicted;
+    }
+
+    // Empties the ring and restarts it at nextSeq
+    public synchronized void clear(long nextSeq) {
+        Arrays.fill(ring, null);
+        this.nextSeq = nextSeq;
+        this.size = 0;
+    }
+
+    public synchronized StoredMessage get(long seq) {
+        if (seq < getOldestSeq() || seq >= nextSeq) {
+            return null;
+        }
+        return ring[(int) (seq % ring.length)];
+    }
+
+    // Oldest first
+    public synchronized List<StoredMessage> snapshot() {
+        List<StoredMessage> messages = new ArrayList<>(size);
+        for (long seq = getOldestSeq(); seq < nextSeq; seq++) {
+            StoredMessage message = ring[(int) (seq % ring.length)];
+            if (message != null) {
+                messages.add(message);
+            }
+        }
+        return messages;
+    }
+
+    public synchronized long getOldestSeq() {
+        return nextSeq - size;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public int getCapacity() {
+        return ring.length;
+    }
+}
@@ -0,0 +1,87 @@
+package com.chatflow.server.history;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Inverted index over one room's history window; positions are seqs relative to the index base
+public class RoomIndex {
+
+    private final Map<String, PostingList> postings;
+    private final long baseSeq;
+
+    public RoomIndex(long baseSeq) {
+        this.postings = new HashMap<>();
+        this.baseSeq = baseSeq;
+    }
+
+    public synchronized void add(StoredMessage message, TermDictionary dictionary) {
+        int position = position(message.getSeq());
+        for (String term : Tokenizer.terms(message.getMessage())) {
+            postings.computeIfAbsent(dictionary.intern(term), t -> new PostingList()).add(position);
+        }
+    }
+
+    // Called with each message the history ring evicts, which is always the oldest indexed one
+    public synchronized void evict(StoredMessage message) {
+        if (message.getSeq() < baseSeq) {
+            return;
+        }
+        int position = position(message.getSeq());
+        for (String term : Tokenizer.terms(message.getMessage())) {
+            PostingList list = postings.get(term);
+            if (list != null) {
+                list.removeThrough(position);
+                if (list.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+
+    // Seqs of messages containing every query term, newest first
+    public synchronized List<Long> search(Set<String> queryTerms, int limit) {
+        List<Long> seqs = new ArrayList<>();
+        if (queryTerms.isEmpty()) {
+            return seqs;
+        }
+
+        List<PostingList> lists = new ArrayList<>(queryTerms.size());
+        PostingList shortest = null;
+        for (String term : queryTerms) {
+            PostingList list = postings.get(term);
+            if (list == null) {
+                return seqs;
+            }
+            lists.add(list);
+            if (shortest == null || list.size() < shortest.size()) {
+                shortest = list;
+            }
+        }
+
+        for (int i = shortest.size() - 1; i >= 0 && seqs.size() < limit; i--) {
+            int position = shortest.get(i);
+            boolean inAll = true;
+            for (PostingList list : lists) {
+                if (list != shortest && !list.contains(position)) {
+                    inAll = false;
+                    break;
+                }
+            }
+            if (inAll) {
+                seqs.add(baseSeq + position);
+            }
+        }
+        return seqs;
+    }
+
+    public synchronized int getTermCount() {
+        return postings.size();
+    }
+
+    private int position(long seq) {
+        return (int) (seq - baseSeq);
+    }
+}
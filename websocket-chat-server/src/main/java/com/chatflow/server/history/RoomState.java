@@ -0,0 +1,24 @@
+package com.chatflow.server.history;
+
+import java.util.BitSet;
+import java.util.List;
+
+// Point-in-time copy of one room, as written to and read from a snapshot
+public class RoomState {
+    private final String roomId;
+    private final long nextSeq;
+    private final BitSet presence;
+    private final List<StoredMessage> messages;
+
+    public RoomState(String roomId, long nextSeq, BitSet presence, List<StoredMessage> messages) {
+        this.roomId = roomId;
+        this.nextSeq = nextSeq;
+        this.presence = presence;
+        this.messages = messages;
+    }
+
+    public String getRoomId() { return roomId; }
+    public long getNextSeq() { return nextSeq; }
+    public BitSet getPresence() { return presence; }
+    public List<StoredMessage> getMessages() { return messages; }
+}
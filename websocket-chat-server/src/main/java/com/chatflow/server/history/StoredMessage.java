@@ -0,0 +1,31 @@
+package com.chatflow.server.history;
+
+// An accepted message as kept in room history; seq is per room and strictly increasing
+public class StoredMessage {
+    private final long seq;
+    private final long serverTimestamp;
+    private final String userId;
+    private final String username;
+    private final String message;
+    private final String timestamp;
+    private final String messageType;
+
+    public StoredMessage(long seq, long serverTimestamp, String userId, String username,
+                         String message, String timestamp, String messageType) {
+        this.seq = seq;
+        this.serverTimestamp = serverTimestamp;
+        this.userId = userId;
+        this.username = username;
+        this.message = message;
+        this.timestamp = timestamp;
+        this.messageType = messageType;
+    }
+
+    public long getSeq() { return seq; }
+    public long getServerTimestamp() { return serverTimestamp; }
+    public String getUserId() { return userId; }
+    public String getUsername() { return username; }
+    public String getMessage() { return message; }
+    public String getTimestamp() { return timestamp; }
+    public String getMessageType() { return messageType; }
+}
@@ -0,0 +1,32 @@
+package com.chatflow.server.history;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+// Shares one String instance per distinct term across every room's index, up to a fixed size
+public class TermDictionary {
+
+    private final ConcurrentHashMap<String, String> terms;
+    private final int maxTerms;
+
+    public TermDictionary(int maxTerms) {
+        this.terms = new ConcurrentHashMap<>();
+        this.maxTerms = maxTerms;
+    }
+
+    public String intern(String term) {
+        String existing = terms.get(term);
+        if (existing != null) {
+            return existing;
+        }
+        if (terms.size() >= maxTerms) {
+            // Long-tail terms past the cap are indexed un-shared rather than growing the dictionary
+            return term;
+        }
+        existing = terms.putIfAbsent(term, term);
+        return existing == null ? term : existing;
+    }
+
+    public int size() {
+        return terms.size();
+    }
+}
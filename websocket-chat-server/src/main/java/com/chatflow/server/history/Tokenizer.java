@@ -0,0 +1,29 @@
+package com.chatflow.server.history;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+// Lower-cased runs of letters and digits; each distinct term once per message
+public class Tokenizer {
+
+    private static final int MAX_TERM_LENGTH = 32;
+
+    public static Set<String> terms(String text) {
+        Set<String> terms = new LinkedHashSet<>();
+        if (text == null) {
+            return terms;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                int end = Math.min(i, start + MAX_TERM_LENGTH);
+                terms.add(text.substring(start, end).toLowerCase());
+                start = -1;
+            }
+        }
+        return terms;
+    }
+}
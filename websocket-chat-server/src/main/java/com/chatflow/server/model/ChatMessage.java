@@ -6,6 +6,8 @@ public class ChatMessage {
     private String message;
     private String timestamp;
     private String messageType;
+    // Optional client-chosen id, echoed back so pipelined clients can match responses
+    private Long correlationId;
 
     public ChatMessage() {}
 
@@ -58,6 +60,14 @@ public class ChatMessage {
         this.messageType = messageType;
     }
 
+    public Long getCorrelationId() {
+        return correlationId;
+    }
+
+    public void setCorrelationId(Long correlationId) {
+        this.correlationId = correlationId;
+    }
+
     @Override
     public String toString() {
         return "ChatMessage{" +
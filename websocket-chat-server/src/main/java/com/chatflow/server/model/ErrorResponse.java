@@ -4,13 +4,21 @@ import java.util.List;
 
 public class ErrorResponse {
     private String status;
+    private Long correlationId;
     private List<String> errors;
     private String serverTimestamp;
+    private ServerTiming timing;
 
     public ErrorResponse(String status, List<String> errors, String serverTimestamp) {
+        this(status, errors, serverTimestamp, null);
+    }
+
+    public ErrorResponse(String status, List<String> errors, String serverTimestamp,
+                         ServerTiming timing) {
         this.status = status;
         this.errors = errors;
         this.serverTimestamp = serverTimestamp;
+        this.timing = timing;
     }
 
     public String getStatus() {
@@ -21,6 +29,14 @@ public class ErrorResponse {
         this.status = status;
     }
 
+    public Long getCorrelationId() {
+        return correlationId;
+    }
+
+    public void setCorrelationId(Long correlationId) {
+        this.correlationId = correlationId;
+    }
+
     public List<String> getErrors() {
         return errors;
     }
@@ -36,4 +52,12 @@ public class ErrorResponse {
     public void setServerTimestamp(String serverTimestamp) {
         this.serverTimestamp = serverTimestamp;
     }
+
+    public ServerTiming getTiming() {
+        return timing;
+    }
+
+    public void setTiming(ServerTiming timing) {
+        this.timing = timing;
+    }
 }
\ No newline at end of file
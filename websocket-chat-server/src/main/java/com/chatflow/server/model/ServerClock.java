@@ -0,0 +1,28 @@
+package com.chatflow.server.model;
+
+import java.time.Instant;
+
+// ISO-8601 serverTimestamp for responses, formatted at most once per millisecond
+public class ServerClock {
+    private volatile Cached cached = new Cached(Long.MIN_VALUE, null);
+
+    public String isoNow() {
+        long now = System.currentTimeMillis();
+        Cached current = cached;
+        if (current.millis != now) {
+            current = new Cached(now, Instant.ofEpochMilli(now).toString());
+            cached = current;
+        }
+        return current.text;
+    }
+
+    private static class Cached {
+        final long millis;
+        final String text;
+
+        Cached(long millis, String text) {
+            this.millis = millis;
+            this.text = text;
+        }
+    }
+}
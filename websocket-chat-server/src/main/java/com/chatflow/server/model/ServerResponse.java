@@ -5,13 +5,15 @@ public class ServerResponse {
     private ChatMessage originalMessage;
     private String serverTimestamp;
     private String roomId;
+    private ServerTiming timing;
 
     public ServerResponse(String status, ChatMessage originalMessage, 
-                         String serverTimestamp, String roomId) {
+                         String serverTimestamp, String roomId, ServerTiming timing) {
         this.status = status;
         this.originalMessage = originalMessage;
         this.serverTimestamp = serverTimestamp;
         this.roomId = roomId;
+        this.timing = timing;
     }
 
     public String getStatus() {
@@ -45,4 +47,12 @@ public class ServerResponse {
     public void setRoomId(String roomId) {
         this.roomId = roomId;
     }
+
+    public ServerTiming getTiming() {
+        return timing;
+    }
+
+    public void setTiming(ServerTiming timing) {
+        this.timing = timing;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,50 @@
+package com.chatflow.server.model;
+
+// Server-side stage durations in microseconds, each relative to the previous stamp. The last
+// stage covers updating the subscription and recording history; serialization and the send
+// itself happen after the timing is built, so they are not included
+public class ServerTiming {
+    private int queueUs;
+    private int parseUs;
+    private int validateUs;
+    private int recordUs;
+
+    public ServerTiming(int queueUs, int parseUs, int validateUs, int recordUs) {
+        this.queueUs = queueUs;
+        this.parseUs = parseUs;
+        this.validateUs = validateUs;
+        this.recordUs = recordUs;
+    }
+
+    public static ServerTiming of(long receivedNanos, long dequeuedNanos, long parsedNanos,
+                                  long validatedNanos, long recordedNanos) {
+        return new ServerTiming(toMicros(dequeuedNanos - receivedNanos),
+                                toMicros(parsedNanos - dequeuedNanos),
+                                toMicros(validatedNanos - parsedNanos),
+                                toMicros(recordedNanos - validatedNanos));
+    }
+
+    private static int toMicros(long nanos) {
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(0, nanos / 1000));
+    }
+
+    public int getQueueUs() {
+        return queueUs;
+    }
+
+    public int getParseUs() {
+        return parseUs;
+    }
+
+    public int getValidateUs() {
+        return validateUs;
+    }
+
+    public int getRecordUs() {
+        return recordUs;
+    }
+
+    public int getTotalUs() {
+        return queueUs + parseUs + validateUs + recordUs;
+    }
+}
@@ -0,0 +1,26 @@
+package com.chatflow.server.outbound;
+
+public class FlushStats {
+    private final String connection;
+    private final long frames;
+    private final long writes;
+    private final long thresholdFlushes;
+    private final long bytes;
+    private final long writesSaved;
+
+    public FlushStats(String connection, long frames, long writes, long thresholdFlushes, long bytes) {
+        this.connection = connection;
+        this.frames = frames;
+        this.writes = writes;
+        this.thresholdFlushes = thresholdFlushes;
+        this.bytes = bytes;
+        this.writesSaved = frames - writes;
+    }
+
+    public String getConnection() { return connection; }
+    public long getFrames() { return frames; }
+    public long getWrites() { return writes; }
+    public long getThresholdFlushes() { return thresholdFlushes; }
+    public long getBytes() { return bytes; }
+    public long getWritesSaved() { return writesSaved; }
+}
@@ -0,0 +1,89 @@
+package com.chatflow.server.outbound;
+
+import org.java_websocket.WebSocketImpl;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+// Pending pre-framed buffers for one connection, gathered into a single socket write on flush
+public class OutboundBuffer {
+
+    private final WebSocketImpl conn;
+    private final List<ByteBuffer> pending;
+    private int pendingBytes;
+    private long firstPendingNanos;
+    // Set while the buffer has an entry in the flusher's queue, so it is never queued twice
+    private boolean scheduled;
+
+    private long framesQueued;
+    private long bytesWritten;
+    private long flushes;
+    private long thresholdFlushes;
+
+    public OutboundBuffer(WebSocketImpl conn) {
+        this.conn = conn;
+        this.pending = new ArrayList<>();
+    }
+
+    // Returns true when this frame needs a timed flush and the buffer is not already queued for one
+    synchronized boolean add(ByteBuffer frame, int thresholdBytes) {
+        boolean wasEmpty = pending.isEmpty();
+        pending.add(frame);
+        pendingBytes += frame.remaining();
+        framesQueued++;
+
+        if (pendingBytes >= thresholdBytes) {
+            thresholdFlushes++;
+            flush();
+            return false;
+        }
+        if (!wasEmpty || scheduled) {
+            // A queued entry that outlived a threshold flush keeps its deadline; flushing early is fine
+            return false;
+        }
+        firstPendingNanos = System.nanoTime();
+        scheduled = true;
+        return true;
+    }
+
+    // Called by the flusher for the entry it took off the queue
+    synchronized void flushScheduled() {
+        scheduled = false;
+        flush();
+    }
+
+    synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        ByteBuffer write;
+        if (pending.size() == 1) {
+            write = pending.get(0);
+        } else {
+            write = ByteBuffer.allocate(pendingBytes);
+            for (ByteBuffer frame : pending) {
+                write.put(frame);
+            }
+            write.flip();
+        }
+        pending.clear();
+        bytesWritten += pendingBytes;
+        pendingBytes = 0;
+        flushes++;
+
+        if (conn.isOpen() && conn.outQueue.offer(write)) {
+            conn.getWebSocketListener().onWriteDemand(conn);
+        }
+    }
+
+    synchronized long getFirstPendingNanos() {
+        return firstPendingNanos;
+    }
+
+    public synchronized FlushStats snapshot() {
+        return new FlushStats(String.valueOf(conn.getRemoteSocketAddress()),
+                              framesQueued, flushes, thresholdFlushes, bytesWritten);
+    }
+}
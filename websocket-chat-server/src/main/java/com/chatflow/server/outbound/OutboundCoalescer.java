@@ -0,0 +1,133 @@
+package com.chatflow.server.outbound;
+
+import org.java_websocket.WebSocket;
+import org.java_websocket.WebSocketImpl;
+import org.java_websocket.drafts.Draft;
+import org.java_websocket.exceptions.WebsocketNotConnectedException;
+import org.java_websocket.framing.Framedata;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+public class OutboundCoalescer {
+
+    private final long flushWindowNanos;
+    private final int flushThresholdBytes;
+    private final Map<WebSocket, OutboundBuffer> buffers;
+    private final ConcurrentLinkedQueue<OutboundBuffer> scheduled;
+    private final Thread flusher;
+    private final AtomicLong closedFrames;
+    private final AtomicLong closedWrites;
+    private volatile boolean running;
+
+    public OutboundCoalescer(int flushWindowMicros, int flushThresholdBytes) {
+        this.flushWindowNanos = TimeUnit.MICROSECONDS.toNanos(Math.max(0, flushWindowMicros));
+        this.flushThresholdBytes = flushThresholdBytes;
+        this.buffers = new ConcurrentHashMap<>();
+        this.scheduled = new ConcurrentLinkedQueue<>();
+        this.flusher = new Thread(this::flushLoop, "OutboundFlusher");
+        this.flusher.setDaemon(true);
+        this.closedFrames = new AtomicLong(0);
+        this.closedWrites = new AtomicLong(0);
+    }
+
+    public boolean isEnabled() {
+        return flushWindowNanos > 0;
+    }
+
+    public void start() {
+        if (isEnabled()) {
+            running = true;
+            flusher.start();
+            System.out.println("Outbound coalescing enabled: window " +
+                             TimeUnit.NANOSECONDS.toMicros(flushWindowNanos) + "us, threshold " +
+                             flushThresholdBytes + " bytes");
+        }
+    }
+
+    public void stop() {
+        running = false;
+        LockSupport.unpark(flusher);
+    }
+
+    public void register(WebSocket conn) {
+        if (isEnabled() && conn instanceof WebSocketImpl) {
+            buffers.put(conn, new OutboundBuffer((WebSocketImpl) conn));
+        }
+    }
+
+    public void unregister(WebSocket conn) {
+        OutboundBuffer buffer = buffers.remove(conn);
+        if (buffer != null) {
+            FlushStats stats = buffer.snapshot();
+            closedFrames.addAndGet(stats.getFrames());
+            closedWrites.addAndGet(stats.getWrites());
+        }
+    }
+
+    public void send(WebSocket conn, String text) {
+        OutboundBuffer buffer = isEnabled() ? buffers.get(conn) : null;
+        if (buffer == null) {
+            conn.send(text);
+            return;
+        }
+        if (!conn.isOpen()) {
+            throw new WebsocketNotConnectedException();
+        }
+
+        Draft draft = conn.getDraft();
+        for (Framedata frame : draft.createFrames(text, false)) {
+            if (buffer.add(draft.createBinaryFrame(frame), flushThresholdBytes)) {
+                scheduled.offer(buffer);
+                LockSupport.unpark(flusher);
+            }
+        }
+    }
+
+    public List<FlushStats> getFlushStats() {
+        List<FlushStats> stats = new ArrayList<>(buffers.size());
+        for (OutboundBuffer buffer : buffers.values()) {
+            stats.add(buffer.snapshot());
+        }
+        return stats;
+    }
+
+    // Totals for connections that have already closed
+    public long getClosedFrames() {
+        return closedFrames.get();
+    }
+
+    public long getClosedWrites() {
+        return closedWrites.get();
+    }
+
+    // A buffer is queued at most once, stamped as it is queued, so the head always has the earliest deadline
+    private void flushLoop() {
+        while (running) {
+            OutboundBuffer head = scheduled.peek();
+            if (head == null) {
+                LockSupport.park(this);
+                continue;
+            }
+
+            long wait = head.getFirstPendingNanos() + flushWindowNanos - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(this, wait);
+                continue;
+            }
+
+            scheduled.poll();
+            try {
+                head.flushScheduled();
+            } catch (Exception e) {
+                System.err.println("Outbound flush failed: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.chatflow.server.overload;
+
+import com.chatflow.server.processing.Lane;
+import com.chatflow.server.processing.MessageProcessor;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Sheds TEXT traffic while the processing backlog or its lag is past the high-water marks
+public class OverloadController {
+
+    private static final long PROBE_INTERVAL_MS = 10;
+    private static final String BUSY_STATUS = "{\"status\":\"error\"";
+
+    private final MessageProcessor processor;
+    private final int highDepth;
+    private final int lowDepth;
+    private final long highLagNanos;
+    private final long lowLagNanos;
+    private final String busyBody;
+    private final String busyResponse;
+    private final AtomicLong rejected;
+    private final AtomicLong overloadEpisodes;
+    private final Thread monitor;
+
+    private volatile boolean overloaded;
+    private volatile boolean running;
+    private volatile int lastDepth;
+    private volatile long lastLagNanos;
+
+    public OverloadController(MessageProcessor processor, int highDepth, int lowDepth,
+                              long highLagMs, long lowLagMs, long retryAfterMs) {
+        this.processor = processor;
+        this.highDepth = highDepth;
+        this.lowDepth = Math.min(lowDepth, highDepth);
+        this.highLagNanos = TimeUnit.MILLISECONDS.toNanos(highLagMs);
+        this.lowLagNanos = TimeUnit.MILLISECONDS.toNanos(Math.min(lowLagMs, highLagMs));
+        this.busyBody = ",\"errors\":[\"Server busy, retry later\"],\"retryAfterMs\":" + retryAfterMs + "}";
+        this.busyResponse = BUSY_STATUS + busyBody;
+        this.rejected = new AtomicLong(0);
+        this.overloadEpisodes = new AtomicLong(0);
+        this.monitor = new Thread(this::monitorLoop, "OverloadMonitor");
+        this.monitor.setDaemon(true);
+    }
+
+    public void start() {
+        running = true;
+        monitor.start();
+    }
+
+    public void stop() {
+        running = false;
+        monitor.interrupt();
+    }
+
+    public boolean shouldReject(Lane lane) {
+        if (lane == Lane.TEXT && overloaded) {
+            rejected.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    public String getBusyResponse() {
+        return busyResponse;
+    }
+
+    public String getBusyResponse(Long correlationId) {
+        if (correlationId == null) {
+            return busyResponse;
+        }
+        return BUSY_STATUS + ",\"correlationId\":" + correlationId + busyBody;
+    }
+
+    private void monitorLoop() {
+        long expectedWake = System.nanoTime();
+        while (running) {
+            try {
+                Thread.sleep(PROBE_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            // Late wake-ups mean the JVM itself is stalling (GC, CPU starvation), count that as lag too
+            expectedWake += TimeUnit.MILLISECONDS.toNanos(PROBE_INTERVAL_MS);
+            long now = System.nanoTime();
+            long timerLag = Math.max(0, now - expectedWake);
+            expectedWake = now;
+
+            int depth = processor.getTotalDepth();
+            long lag = Math.max(timerLag, processor.getOldestWaitNanos(Lane.TEXT));
+            lastDepth = depth;
+            lastLagNanos = lag;
+
+            if (!overloaded && (depth >= highDepth || lag >= highLagNanos)) {
+                overloaded = true;
+                overloadEpisodes.incrementAndGet();
+                System.err.println("Overload detected - shedding TEXT (depth " + depth +
+                                 ", lag " + TimeUnit.NANOSECONDS.toMillis(lag) + "ms)");
+            } else if (overloaded && depth <= lowDepth && lag <= lowLagNanos) {
+                overloaded = false;
+                System.out.println("Overload cleared - accepting TEXT again (depth " + depth + ")");
+            }
+        }
+    }
+
+    public boolean isOverloaded() {
+        return overloaded;
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    public long getOverloadEpisodes() {
+        return overloadEpisodes.get();
+    }
+
+    public int getLastDepth() {
+        return lastDepth;
+    }
+
+    public long getLastLagMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(lastLagNanos);
+    }
+}
@@ -0,0 +1,6 @@
+package com.chatflow.server.processing;
+
+public enum Lane {
+    CONTROL,
+    TEXT
+}
@@ -0,0 +1,54 @@
+package com.chatflow.server.processing;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class LaneStats {
+    private final AtomicInteger depth;
+    private final AtomicLong enqueued;
+    private final AtomicLong dequeued;
+    private final AtomicLong totalWaitNanos;
+    private final AtomicLong maxWaitNanos;
+
+    public LaneStats() {
+        this.depth = new AtomicInteger(0);
+        this.enqueued = new AtomicLong(0);
+        this.dequeued = new AtomicLong(0);
+        this.totalWaitNanos = new AtomicLong(0);
+        this.maxWaitNanos = new AtomicLong(0);
+    }
+
+    void recordEnqueue() {
+        depth.incrementAndGet();
+        enqueued.incrementAndGet();
+    }
+
+    void recordDequeue(long waitNanos) {
+        depth.decrementAndGet();
+        dequeued.incrementAndGet();
+        totalWaitNanos.addAndGet(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    public int getDepth() {
+        return depth.get();
+    }
+
+    public long getEnqueued() {
+        return enqueued.get();
+    }
+
+    public long getDequeued() {
+        return dequeued.get();
+    }
+
+    public double getAverageWaitMicros() {
+        long count = dequeued.get();
+        if (count == 0) return 0;
+        return totalWaitNanos.get() / 1000.0 / count;
+    }
+
+    public long getMaxWaitMicros() {
+        return maxWaitNanos.get() / 1000;
+    }
+}
@@ -0,0 +1,81 @@
+package com.chatflow.server.processing;
+
+// Reads the lane and routing fields from the raw frame so scheduling happens before the full JSON parse
+public class MessageClassifier {
+
+    private static final String TYPE_FIELD = "\"messageType\"";
+    private static final String ROOM_FIELD = "\"roomId\"";
+    private static final String USER_FIELD = "\"userId\"";
+    private static final String CORRELATION_FIELD = "\"correlationId\"";
+    private static final String TEXT_TYPE = "TEXT";
+
+    public static Lane classify(String payload) {
+        int field = payload.indexOf(TYPE_FIELD);
+        if (field < 0) {
+            return Lane.CONTROL;
+        }
+
+        int colon = payload.indexOf(':', field + TYPE_FIELD.length());
+        int open = colon < 0 ? -1 : payload.indexOf('"', colon + 1);
+        int close = open < 0 ? -1 : payload.indexOf('"', open + 1);
+        if (close - open - 1 == TEXT_TYPE.length() &&
+                payload.regionMatches(true, open + 1, TEXT_TYPE, 0, TEXT_TYPE.length())) {
+            return Lane.TEXT;
+        }
+
+        // JOIN/LEAVE, plus anything that will fail validation and come back as an error response
+        return Lane.CONTROL;
+    }
+
+    public static String extractRoomId(String payload) {
+        return stringField(payload, ROOM_FIELD);
+    }
+
+    public static String extractUserId(String payload) {
+        return stringField(payload, USER_FIELD);
+    }
+
+    // Lets responses that never reach the JSON parse (shed, malformed) still carry the client's id
+    public static Long extractCorrelationId(String payload) {
+        int field = payload.indexOf(CORRELATION_FIELD);
+        if (field < 0) {
+            return null;
+        }
+
+        int colon = payload.indexOf(':', field + CORRELATION_FIELD.length());
+        if (colon < 0) {
+            return null;
+        }
+        int i = colon + 1;
+        while (i < payload.length() && payload.charAt(i) == ' ') {
+            i++;
+        }
+        long value = 0;
+        int digits = 0;
+        for (; i < payload.length() && digits < 18; i++, digits++) {
+            char c = payload.charAt(i);
+            if (c < '0' || c > '9') {
+                break;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return digits == 0 ? null : value;
+    }
+
+    // Returns null when the frame has no non-empty string value for the field
+    private static String stringField(String payload, String fieldName) {
+        int field = payload.indexOf(fieldName);
+        if (field < 0) {
+            return null;
+        }
+
+        int colon = payload.indexOf(':', field + fieldName.length());
+        int open = colon < 0 ? -1 : payload.indexOf('"', colon + 1);
+        int close = open < 0 ? -1 : payload.indexOf('"', open + 1);
+        if (close <= open + 1 || !payload.substring(colon + 1, open).trim().isEmpty()) {
+            return null;
+        }
+        String value = payload.substring(open + 1, close).trim();
+        return value.isEmpty() ? null : value;
+    }
+}
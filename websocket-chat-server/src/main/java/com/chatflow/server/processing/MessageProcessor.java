@@ -0,0 +1,97 @@
+package com.chatflow.server.processing;
+
+import org.java_websocket.WebSocket;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Each worker owns a queue and every connection maps to one worker, so a connection's frames are
+// handled in arrival order within a lane; CONTROL may still overtake that connection's queued TEXT
+public class MessageProcessor {
+
+    private final PriorityMessageQueue[] queues;
+    private final LaneStats controlStats;
+    private final LaneStats textStats;
+    private final Consumer<PendingMessage> handler;
+    private final List<Thread> workers;
+    private volatile boolean running;
+
+    public MessageProcessor(int threads, int controlBurstLimit, Consumer<PendingMessage> handler) {
+        this.controlStats = new LaneStats();
+        this.textStats = new LaneStats();
+        this.queues = new PriorityMessageQueue[Math.max(1, threads)];
+        this.handler = handler;
+        this.workers = new ArrayList<>();
+        for (int i = 0; i < queues.length; i++) {
+            PriorityMessageQueue queue = new PriorityMessageQueue(controlBurstLimit, controlStats, textStats);
+            queues[i] = queue;
+            Thread worker = new Thread(() -> processLoop(queue), "MessageProcessor-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+        }
+    }
+
+    public void start() {
+        running = true;
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        System.out.println("Message processor started with " + workers.size() + " threads");
+    }
+
+    // Returns once the workers have exited, so no handler is still running
+    public void stop() {
+        running = false;
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        try {
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public void submit(PendingMessage message) {
+        queueFor(message.getConn()).put(message);
+    }
+
+    private PriorityMessageQueue queueFor(WebSocket conn) {
+        return queues[Math.floorMod(System.identityHashCode(conn), queues.length)];
+    }
+
+    // Totals across every worker's queue
+    public LaneStats getStats(Lane lane) {
+        return lane == Lane.CONTROL ? controlStats : textStats;
+    }
+
+    public int getTotalDepth() {
+        return controlStats.getDepth() + textStats.getDepth();
+    }
+
+    // Age of the oldest message waiting in the lane on any worker, 0 when all are empty
+    public long getOldestWaitNanos(Lane lane) {
+        long oldest = 0;
+        for (PriorityMessageQueue queue : queues) {
+            oldest = Math.max(oldest, queue.getOldestWaitNanos(lane));
+        }
+        return oldest;
+    }
+
+    private void processLoop(PriorityMessageQueue queue) {
+        while (running) {
+            try {
+                handler.accept(queue.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                System.err.println("Error in message processor: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.chatflow.server.processing;
+
+import org.java_websocket.WebSocket;
+
+public class PendingMessage {
+    private final WebSocket conn;
+    private final String roomId;
+    private final String payload;
+    private final Lane lane;
+    private final long receivedNanos;
+
+    public PendingMessage(WebSocket conn, String roomId, String payload, Lane lane, long receivedNanos) {
+        this.conn = conn;
+        this.roomId = roomId;
+        this.payload = payload;
+        this.lane = lane;
+        this.receivedNanos = receivedNanos;
+    }
+
+    public WebSocket getConn() { return conn; }
+    public String getRoomId() { return roomId; }
+    public String getPayload() { return payload; }
+    public Lane getLane() { return lane; }
+    public long getReceivedNanos() { return receivedNanos; }
+}
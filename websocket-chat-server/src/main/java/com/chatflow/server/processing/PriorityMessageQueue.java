@@ -0,0 +1,87 @@
+package com.chatflow.server.processing;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Two-level queue: CONTROL is served first, but TEXT is guaranteed a turn after controlBurstLimit in a row.
+// Lane stats may be shared by several queues, so they report totals across all of them.
+public class PriorityMessageQueue {
+
+    private final ReentrantLock lock;
+    private final Condition notEmpty;
+    private final ArrayDeque<PendingMessage> control;
+    private final ArrayDeque<PendingMessage> text;
+    private final int controlBurstLimit;
+    private final LaneStats controlStats;
+    private final LaneStats textStats;
+    private int controlStreak;
+
+    public PriorityMessageQueue(int controlBurstLimit, LaneStats controlStats, LaneStats textStats) {
+        this.lock = new ReentrantLock();
+        this.notEmpty = lock.newCondition();
+        this.control = new ArrayDeque<>();
+        this.text = new ArrayDeque<>();
+        this.controlBurstLimit = Math.max(1, controlBurstLimit);
+        this.controlStats = controlStats;
+        this.textStats = textStats;
+    }
+
+    public void put(PendingMessage message) {
+        lock.lock();
+        try {
+            if (message.getLane() == Lane.CONTROL) {
+                control.addLast(message);
+            } else {
+                text.addLast(message);
+            }
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+        getStats(message.getLane()).recordEnqueue();
+    }
+
+    public PendingMessage take() throws InterruptedException {
+        PendingMessage next;
+        lock.lockInterruptibly();
+        try {
+            while (control.isEmpty() && text.isEmpty()) {
+                notEmpty.await();
+            }
+
+            if (!control.isEmpty() && (text.isEmpty() || controlStreak < controlBurstLimit)) {
+                next = control.pollFirst();
+                controlStreak++;
+            } else {
+                next = text.pollFirst();
+                controlStreak = 0;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        getStats(next.getLane()).recordDequeue(System.nanoTime() - next.getReceivedNanos());
+        return next;
+    }
+
+    // Age of the oldest message still waiting in a lane, 0 when the lane is empty
+    public long getOldestWaitNanos(Lane lane) {
+        PendingMessage head;
+        lock.lock();
+        try {
+            head = lane == Lane.CONTROL ? control.peekFirst() : text.peekFirst();
+        } finally {
+            lock.unlock();
+        }
+        return head == null ? 0 : System.nanoTime() - head.getReceivedNanos();
+    }
+
+    public LaneStats getStats(Lane lane) {
+        return lane == Lane.CONTROL ? controlStats : textStats;
+    }
+
+    public int getTotalDepth() {
+        return controlStats.getDepth() + textStats.getDepth();
+    }
+}
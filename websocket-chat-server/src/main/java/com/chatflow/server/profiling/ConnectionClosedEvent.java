@@ -0,0 +1,25 @@
+package com.chatflow.server.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.chatflow.ConnectionClosed")
+@Label("Connection Closed")
+@Description("WebSocket connection closed by either side")
+@Category({"ChatFlow", "Connections"})
+@StackTrace(false)
+public class ConnectionClosedEvent extends Event {
+
+    @Label("Room")
+    public String room;
+
+    @Label("Close Code")
+    public int code;
+
+    @Label("Remote")
+    public boolean remote;
+}
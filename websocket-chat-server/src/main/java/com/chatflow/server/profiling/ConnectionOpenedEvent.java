@@ -0,0 +1,25 @@
+package com.chatflow.server.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.chatflow.ConnectionOpened")
+@Label("Connection Opened")
+@Description("WebSocket handshake completed on a room or the multiplexed endpoint")
+@Category({"ChatFlow", "Connections"})
+@StackTrace(false)
+public class ConnectionOpenedEvent extends Event {
+
+    @Label("Room")
+    public String room;
+
+    @Label("Multiplexed")
+    public boolean multiplexed;
+
+    @Label("Remote Address")
+    public String remoteAddress;
+}
@@ -0,0 +1,23 @@
+package com.chatflow.server.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.chatflow.MessageParsed")
+@Label("Message Parsed")
+@Description("JSON payload decoded into a ChatMessage")
+@Category({"ChatFlow", "Messages"})
+@StackTrace(false)
+public class MessageParsedEvent extends Event {
+
+    @Label("Room")
+    public String room;
+
+    @Label("Length")
+    @Description("Payload length in characters")
+    public int length;
+}
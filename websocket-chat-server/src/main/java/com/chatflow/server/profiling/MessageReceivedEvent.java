@@ -0,0 +1,23 @@
+package com.chatflow.server.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.chatflow.MessageReceived")
+@Label("Message Received")
+@Description("A text frame arrived on a chat connection")
+@Category({"ChatFlow", "Messages"})
+@StackTrace(false)
+public class MessageReceivedEvent extends Event {
+
+    @Label("Room")
+    public String room;
+
+    @Label("Length")
+    @Description("Payload length in characters")
+    public int length;
+}
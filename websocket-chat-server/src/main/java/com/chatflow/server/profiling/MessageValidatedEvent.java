@@ -0,0 +1,26 @@
+package com.chatflow.server.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.chatflow.MessageValidated")
+@Label("Message Validated")
+@Description("ChatMessage checked against validation rules")
+@Category({"ChatFlow", "Messages"})
+@StackTrace(false)
+public class MessageValidatedEvent extends Event {
+
+    @Label("Room")
+    public String room;
+
+    @Label("Length")
+    @Description("Payload length in characters")
+    public int length;
+
+    @Label("Valid")
+    public boolean valid;
+}
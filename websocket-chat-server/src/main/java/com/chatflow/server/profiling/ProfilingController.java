@@ -0,0 +1,85 @@
+package com.chatflow.server.profiling;
+
+import jdk.jfr.Recording;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+public class ProfilingController {
+
+    private static final String[] PIPELINE_EVENTS = {
+        "com.chatflow.MessageReceived",
+        "com.chatflow.MessageParsed",
+        "com.chatflow.MessageValidated",
+        "com.chatflow.ResponseSent",
+        "com.chatflow.ConnectionOpened",
+        "com.chatflow.ConnectionClosed"
+    };
+
+    // TLAB events exist on JDK 11; ObjectAllocationSample is the cheaper JDK 16+ variant
+    private static final String[] ALLOCATION_EVENTS = {
+        "jdk.ObjectAllocationInNewTLAB",
+        "jdk.ObjectAllocationOutsideTLAB",
+        "jdk.ObjectAllocationSample"
+    };
+
+    private final Path outputDirectory;
+    private Recording recording;
+    private boolean allocationProfiling;
+
+    public ProfilingController(Path outputDirectory) {
+        this.outputDirectory = outputDirectory.toAbsolutePath().normalize();
+    }
+
+    public synchronized boolean start(boolean withAllocations) {
+        if (recording != null) {
+            return false;
+        }
+
+        Recording newRecording = new Recording();
+        newRecording.setName("chatflow-pipeline");
+        for (String event : PIPELINE_EVENTS) {
+            newRecording.enable(event).withoutStackTrace();
+        }
+        newRecording.enable("jdk.GarbageCollection");
+        if (withAllocations) {
+            for (String event : ALLOCATION_EVENTS) {
+                newRecording.enable(event).withStackTrace();
+            }
+        }
+        newRecording.setToDisk(true);
+        newRecording.setMaxAge(Duration.ofMinutes(30));
+        newRecording.start();
+
+        recording = newRecording;
+        allocationProfiling = withAllocations;
+        System.out.println("JFR recording started" + (withAllocations ? " with allocation profiling" : ""));
+        return true;
+    }
+
+    public synchronized Path stop() throws IOException {
+        if (recording == null) {
+            return null;
+        }
+
+        Path output = outputDirectory.resolve("chatflow-" + System.currentTimeMillis() + ".jfr");
+        try {
+            recording.dump(output);
+        } finally {
+            recording.close();
+            recording = null;
+            allocationProfiling = false;
+        }
+        System.out.println("JFR recording written to " + output);
+        return output;
+    }
+
+    public synchronized boolean isRecording() {
+        return recording != null;
+    }
+
+    public synchronized boolean isAllocationProfiling() {
+        return allocationProfiling;
+    }
+}
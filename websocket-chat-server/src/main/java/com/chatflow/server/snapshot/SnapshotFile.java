@@ -0,0 +1,137 @@
+package com.chatflow.server.snapshot;
+
+import com.chatflow.server.history.RoomState;
+import com.chatflow.server.history.StoredMessage;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Binary image of every room's recent history and presence. Layout: magic, version, created millis,
+ * room count, then per room its id, next seq, presence words and messages; a CRC32 of everything
+ * before it closes the file. Strings are an int byte length (-1 for null) followed by UTF-8.
+ */
+public class SnapshotFile {
+
+    private static final int MAGIC = 0x4346534E; // "CFSN"
+    private static final int VERSION = 1;
+    private static final String TMP_SUFFIX = ".tmp";
+
+    // Written beside the target and moved over it, so a crash mid-write leaves the previous snapshot intact
+    public static long write(Path path, List<RoomState> rooms) throws IOException {
+        Path tmp = path.resolveSibling(path.getFileName() + TMP_SUFFIX);
+        CRC32 crc = new CRC32();
+        try (BufferedOutputStream file = new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16)) {
+            DataOutputStream out = new DataOutputStream(new CheckedOutputStream(file, crc));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(System.currentTimeMillis());
+            out.writeInt(rooms.size());
+            for (RoomState room : rooms) {
+                writeString(out, room.getRoomId());
+                out.writeLong(room.getNextSeq());
+                long[] words = room.getPresence().toLongArray();
+                out.writeInt(words.length);
+                for (long word : words) {
+                    out.writeLong(word);
+                }
+                out.writeInt(room.getMessages().size());
+                for (StoredMessage message : room.getMessages()) {
+                    out.writeLong(message.getSeq());
+                    out.writeLong(message.getServerTimestamp());
+                    writeString(out, message.getUserId());
+                    writeString(out, message.getUsername());
+                    writeString(out, message.getMessage());
+                    writeString(out, message.getTimestamp());
+                    writeString(out, message.getMessageType());
+                }
+            }
+            out.flush();
+            // The checksum goes straight to the file so it is not part of the checksummed bytes
+            new DataOutputStream(file).writeInt((int) crc.getValue());
+        }
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return Files.size(path);
+    }
+
+    // Maps the file read-only and decodes it in place; returns null when there is no snapshot yet
+    public static List<RoomState> read(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.limit() < 24 || buffer.getInt(0) != MAGIC) {
+                throw new IOException("Not a snapshot file: " + path);
+            }
+            if (buffer.getInt(4) != VERSION) {
+                throw new IOException("Unsupported snapshot version " + buffer.getInt(4) + " in " + path);
+            }
+            int bodyLength = buffer.limit() - Integer.BYTES;
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate().limit(bodyLength));
+            if ((int) crc.getValue() != buffer.getInt(bodyLength)) {
+                throw new IOException("Snapshot checksum mismatch in " + path);
+            }
+
+            buffer.position(16);
+            int roomCount = buffer.getInt();
+            List<RoomState> rooms = new ArrayList<>(roomCount);
+            for (int r = 0; r < roomCount; r++) {
+                String roomId = readString(buffer);
+                long nextSeq = buffer.getLong();
+                long[] words = new long[buffer.getInt()];
+                for (int i = 0; i < words.length; i++) {
+                    words[i] = buffer.getLong();
+                }
+                int messageCount = buffer.getInt();
+                List<StoredMessage> messages = new ArrayList<>(messageCount);
+                for (int i = 0; i < messageCount; i++) {
+                    long seq = buffer.getLong();
+                    long serverTimestamp = buffer.getLong();
+                    messages.add(new StoredMessage(seq, serverTimestamp, readString(buffer), readString(buffer),
+                                                   readString(buffer), readString(buffer), readString(buffer)));
+                }
+                rooms.add(new RoomState(roomId, nextSeq, BitSet.valueOf(words), messages));
+            }
+            return rooms;
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
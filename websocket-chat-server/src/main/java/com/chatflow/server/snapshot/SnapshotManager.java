@@ -0,0 +1,134 @@
+package com.chatflow.server.snapshot;
+
+import com.chatflow.server.history.HistoryManager;
+import com.chatflow.server.history.RoomState;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Periodically writes every room's history ring and presence to one snapshot file, and loads it
+ * back on startup so rooms serve recent history immediately instead of replaying their logs.
+ */
+public class SnapshotManager {
+
+    private static final String FILE_NAME = "rooms.snapshot";
+
+    private final HistoryManager historyManager;
+    private final Path path;
+    private final long intervalMillis;
+    private final AtomicLong snapshotsWritten;
+    private final AtomicLong snapshotErrors;
+    private final Thread worker;
+
+    private volatile boolean running;
+    private volatile long lastWriteMillis;
+    private volatile long lastWriteBytes;
+    private volatile long lastWriteDurationMillis;
+    private volatile int restoredRooms;
+    private volatile long restoreDurationMillis;
+
+    public SnapshotManager(HistoryManager historyManager, Path dir, long intervalMillis) {
+        this.historyManager = historyManager;
+        this.path = dir.resolve(FILE_NAME);
+        this.intervalMillis = intervalMillis;
+        this.snapshotsWritten = new AtomicLong(0);
+        this.snapshotErrors = new AtomicLong(0);
+        this.worker = new Thread(this::snapshotLoop, "SnapshotWriter");
+        this.worker.setDaemon(true);
+        this.worker.setPriority(Thread.MIN_PRIORITY);
+    }
+
+    // Must run before the history manager starts; a missing or unreadable snapshot means a cold start
+    public void restore() {
+        long started = System.currentTimeMillis();
+        try {
+            List<RoomState> rooms = SnapshotFile.read(path);
+            if (rooms == null) {
+                System.out.println("No snapshot at " + path + ", starting with empty history");
+                return;
+            }
+            historyManager.restore(rooms);
+            restoredRooms = rooms.size();
+            restoreDurationMillis = System.currentTimeMillis() - started;
+            System.out.println("Restored " + rooms.size() + " rooms from snapshot in " +
+                             restoreDurationMillis + " ms");
+        } catch (Exception e) {
+            System.err.println("Failed to restore snapshot " + path + ": " + e.getMessage());
+        }
+    }
+
+    public void start() {
+        running = true;
+        worker.start();
+    }
+
+    // Takes a final snapshot so a clean shutdown restarts with nothing to replay
+    public void stop() {
+        running = false;
+        worker.interrupt();
+        try {
+            worker.join(intervalMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writeSnapshot();
+    }
+
+    private void snapshotLoop() {
+        while (running) {
+            try {
+                Thread.sleep(intervalMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            writeSnapshot();
+        }
+    }
+
+    private synchronized void writeSnapshot() {
+        long started = System.currentTimeMillis();
+        try {
+            Files.createDirectories(path.getParent());
+            List<RoomState> rooms = historyManager.exportRooms();
+            lastWriteBytes = SnapshotFile.write(path, rooms);
+            lastWriteMillis = System.currentTimeMillis();
+            lastWriteDurationMillis = lastWriteMillis - started;
+            snapshotsWritten.incrementAndGet();
+        } catch (Exception e) {
+            snapshotErrors.incrementAndGet();
+            System.err.println("Failed to write snapshot " + path + ": " + e.getMessage());
+        }
+    }
+
+    public long getSnapshotsWritten() {
+        return snapshotsWritten.get();
+    }
+
+    public long getSnapshotErrors() {
+        return snapshotErrors.get();
+    }
+
+    public long getLastWriteMillis() {
+        return lastWriteMillis;
+    }
+
+    public long getLastWriteBytes() {
+        return lastWriteBytes;
+    }
+
+    public long getLastWriteDurationMillis() {
+        return lastWriteDurationMillis;
+    }
+
+    public int getRestoredRooms() {
+        return restoredRooms;
+    }
+
+    public long getRestoreDurationMillis() {
+        return restoreDurationMillis;
+    }
+}
@@ -0,0 +1,33 @@
+package com.chatflow.server.storage;
+
+import java.util.concurrent.TimeUnit;
+
+// Caps background I/O at a byte rate by sleeping once the caller gets ahead of its budget
+public class IoThrottle {
+
+    private final long bytesPerSecond;
+    private long windowStartNanos;
+    private long windowBytes;
+
+    public IoThrottle(long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+        this.windowStartNanos = System.nanoTime();
+    }
+
+    public void acquire(long bytes) throws InterruptedException {
+        if (bytesPerSecond <= 0) {
+            return;
+        }
+        windowBytes += bytes;
+        long elapsed = System.nanoTime() - windowStartNanos;
+        long allowedNanos = windowBytes * TimeUnit.SECONDS.toNanos(1) / bytesPerSecond;
+        if (allowedNanos > elapsed) {
+            TimeUnit.NANOSECONDS.sleep(allowedNanos - elapsed);
+        }
+        if (elapsed > TimeUnit.SECONDS.toNanos(1)) {
+            // Start a fresh window so an idle stretch does not bank an unbounded burst
+            windowStartNanos = System.nanoTime();
+            windowBytes = 0;
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package com.chatflow.server.storage;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background retention and compaction for room logs. Only closed segments are touched, so the
+ * append path never waits. Segments that are deleted or replaced are pinned open for a grace
+ * period, so history reads that already hold them can finish.
+ */
+public class LogCleaner {
+
+    static final String CLEANED_SUFFIX = ".cleaned";
+
+    private static final long RELEASE_GRACE_MILLIS = 60000;
+    private static final int LINE_OVERHEAD_BYTES = 1;
+
+    private final RoomLogStore store;
+    private final long retentionMillis;
+    private final long retentionBytes;
+    private final boolean compactPresence;
+    private final IoThrottle throttle;
+    private final long intervalMillis;
+    private final ArrayDeque<PendingRelease> pendingReleases;
+    private final Map<RoomLog, Long> compactedThrough;
+    private final AtomicLong segmentsDeleted;
+    private final AtomicLong segmentsCompacted;
+    private final AtomicLong presenceEventsRemoved;
+    private final AtomicLong bytesReclaimed;
+    private final Thread worker;
+
+    private volatile boolean running;
+    private volatile long lastRunMillis;
+
+    public LogCleaner(RoomLogStore store, long retentionMillis, long retentionBytes,
+                      boolean compactPresence, long bytesPerSecond, long intervalMillis) {
+        this.store = store;
+        this.retentionMillis = retentionMillis;
+        this.retentionBytes = retentionBytes;
+        this.compactPresence = compactPresence;
+        this.throttle = new IoThrottle(bytesPerSecond);
+        this.intervalMillis = intervalMillis;
+        this.pendingReleases = new ArrayDeque<>();
+        this.compactedThrough = new HashMap<>();
+        this.segmentsDeleted = new AtomicLong(0);
+        this.segmentsCompacted = new AtomicLong(0);
+        this.presenceEventsRemoved = new AtomicLong(0);
+        this.bytesReclaimed = new AtomicLong(0);
+        this.worker = new Thread(this::cleanLoop, "LogCleaner");
+        this.worker.setDaemon(true);
+        this.worker.setPriority(Thread.MIN_PRIORITY);
+    }
+
+    public void start() {
+        running = true;
+        worker.start();
+    }
+
+    public void stop() {
+        running = false;
+        worker.interrupt();
+    }
+
+    private void cleanLoop() {
+        while (running) {
+            try {
+                Thread.sleep(intervalMillis);
+                runOnce();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                System.err.println("Log cleaner error: " + e.getMessage());
+            }
+        }
+    }
+
+    public void runOnce() throws IOException, InterruptedException {
+        for (Map.Entry<String, RoomLog> entry : store.openAll().entrySet()) {
+            applyRetention(entry.getKey(), entry.getValue());
+            if (compactPresence) {
+                compactPresence(entry.getValue());
+            }
+        }
+        releaseExpired();
+        lastRunMillis = System.currentTimeMillis();
+    }
+
+    // Drops closed segments from the front while they are past the age limit or the room is over size
+    private void applyRetention(String roomId, RoomLog log) throws IOException {
+        long cutoff = System.currentTimeMillis() - retentionMillis;
+        long size = log.getSizeBytes();
+        for (LogSegment segment : log.getClosedSegments()) {
+            boolean expired = retentionMillis > 0 && segment.getLastAppendMillis() < cutoff;
+            boolean oversized = retentionBytes > 0 && size > retentionBytes;
+            if (!expired && !oversized) {
+                break;
+            }
+            log.removeSegment(segment);
+            segment.deleteFiles();
+            scheduleRelease(segment);
+            size -= segment.getSize();
+            segmentsDeleted.incrementAndGet();
+            bytesReclaimed.addAndGet(segment.getSize());
+            System.out.println("Retention removed segment " + segment.getLogPath().getFileName() +
+                             " from room " + roomId + (expired ? " (age)" : " (size)"));
+        }
+    }
+
+    /**
+     * Keeps only each user's latest JOIN/LEAVE across the closed segments; TEXT is never dropped.
+     * The first pass finds the surviving presence seqs, the second rewrites segments that shrink.
+     */
+    private void compactPresence(RoomLog log) throws IOException, InterruptedException {
+        List<LogSegment> closed = log.getClosedSegments();
+        if (closed.isEmpty()) {
+            return;
+        }
+        // Nothing new has closed since the last pass, so nothing new can be superseded
+        long closedThrough = closed.get(closed.size() - 1).getLastSeq();
+        Long previous = compactedThrough.get(log);
+        if (previous != null && previous == closedThrough) {
+            return;
+        }
+
+        Map<String, Long> latestPresence = new HashMap<>();
+        for (LogSegment segment : closed) {
+            try (BufferedReader reader = openReader(segment)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    throttle.acquire(line.length() + LINE_OVERHEAD_BYTES);
+                    if (isPresence(line)) {
+                        latestPresence.put(stringField(line, "\"userId\""), seqOf(line));
+                    }
+                }
+            }
+        }
+
+        for (LogSegment segment : closed) {
+            if (hasSuperseded(segment, latestPresence)) {
+                rewrite(log, segment, latestPresence);
+            }
+        }
+        compactedThrough.put(log, closedThrough);
+    }
+
+    private boolean hasSuperseded(LogSegment segment, Map<String, Long> latestPresence)
+            throws IOException, InterruptedException {
+        try (BufferedReader reader = openReader(segment)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                throttle.acquire(line.length() + LINE_OVERHEAD_BYTES);
+                if (isPresence(line) && !isLatest(line, latestPresence)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void rewrite(RoomLog log, LogSegment segment, Map<String, Long> latestPresence)
+            throws IOException, InterruptedException {
+        Path cleaned = segment.getLogPath().resolveSibling(segment.getLogPath().getFileName() + CLEANED_SUFFIX);
+        int removed = 0;
+        try (BufferedReader reader = openReader(segment);
+             OutputStream out = Files.newOutputStream(cleaned)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                throttle.acquire(2L * (line.length() + LINE_OVERHEAD_BYTES));
+                if (isPresence(line) && !isLatest(line, latestPresence)) {
+                    removed++;
+                    continue;
+                }
+                out.write(line.getBytes(StandardCharsets.UTF_8));
+                out.write('\n');
+            }
+        }
+        if (removed == 0) {
+            Files.deleteIfExists(cleaned);
+            return;
+        }
+
+        // The old segment keeps its channel on the replaced inode until it is released
+        long before = segment.getSize();
+        segment.pin();
+        // Reopening takes the segment's age from mtime; keep the original so retention still expires it
+        Files.setLastModifiedTime(cleaned, FileTime.fromMillis(segment.getLastAppendMillis()));
+        Files.deleteIfExists(segment.getIndexPath());
+        Files.move(cleaned, segment.getLogPath(), StandardCopyOption.REPLACE_EXISTING,
+                   StandardCopyOption.ATOMIC_MOVE);
+        LogSegment replacement = log.reopenSegment(segment.getBaseSeq());
+        log.replaceSegment(segment, replacement);
+        scheduleRelease(segment);
+
+        segmentsCompacted.incrementAndGet();
+        presenceEventsRemoved.addAndGet(removed);
+        bytesReclaimed.addAndGet(before - replacement.getSize());
+    }
+
+    private BufferedReader openReader(LogSegment segment) throws IOException {
+        return new BufferedReader(new InputStreamReader(Files.newInputStream(segment.getLogPath()),
+                                                        StandardCharsets.UTF_8));
+    }
+
+    private void scheduleRelease(LogSegment segment) {
+        pendingReleases.add(new PendingRelease(segment, System.currentTimeMillis() + RELEASE_GRACE_MILLIS));
+    }
+
+    private void releaseExpired() {
+        long now = System.currentTimeMillis();
+        while (!pendingReleases.isEmpty() && pendingReleases.peek().releaseAtMillis <= now) {
+            try {
+                pendingReleases.poll().segment.release();
+            } catch (IOException e) {
+                System.err.println("Error releasing segment: " + e.getMessage());
+            }
+        }
+    }
+
+    private static boolean isLatest(String line, Map<String, Long> latestPresence) {
+        Long latest = latestPresence.get(stringField(line, "\"userId\""));
+        return latest == null || latest == seqOf(line);
+    }
+
+    private static boolean isPresence(String line) {
+        String type = stringField(line, "\"messageType\"");
+        return "JOIN".equalsIgnoreCase(type) || "LEAVE".equalsIgnoreCase(type);
+    }
+
+    private static long seqOf(String line) {
+        long seq = 0;
+        for (int i = line.indexOf(':') + 1; i < line.length() && Character.isDigit(line.charAt(i)); i++) {
+            seq = seq * 10 + (line.charAt(i) - '0');
+        }
+        return seq;
+    }
+
+    private static String stringField(String line, String field) {
+        int at = line.indexOf(field);
+        if (at < 0) {
+            return null;
+        }
+        int open = line.indexOf('"', line.indexOf(':', at + field.length()) + 1);
+        int close = line.indexOf('"', open + 1);
+        return open < 0 || close < 0 ? null : line.substring(open + 1, close);
+    }
+
+    public boolean isCompactingPresence() {
+        return compactPresence;
+    }
+
+    public long getSegmentsDeleted() {
+        return segmentsDeleted.get();
+    }
+
+    public long getSegmentsCompacted() {
+        return segmentsCompacted.get();
+    }
+
+    public long getPresenceEventsRemoved() {
+        return presenceEventsRemoved.get();
+    }
+
+    public long getBytesReclaimed() {
+        return bytesReclaimed.get();
+    }
+
+    public long getLastRunMillis() {
+        return lastRunMillis;
+    }
+
+    private static class PendingRelease {
+        final LogSegment segment;
+        final long releaseAtMillis;
+
+        PendingRelease(LogSegment segment, long releaseAtMillis) {
+            this.segment = segment;
+            this.releaseAtMillis = releaseAtMillis;
+        }
+    }
+}
@@ -0,0 +1,410 @@
+package com.chatflow.server.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * One append-only file of NDJSON messages, each line starting with {"seq":N. A sparse
+ * (seq, position) entry is kept every INDEX_INTERVAL_BYTES, in memory and in a .idx sidecar,
+ * so a read seeks close to its start and scans at most one interval of lines.
+ *
+ * Once sealed (no longer appended to) the index file is closed, and the log file is only kept open
+ * while SegmentChannels counts it among the most recently read; otherwise it reopens on demand.
+ */
+public class LogSegment {
+
+    static final String LOG_SUFFIX = ".log";
+    static final String INDEX_SUFFIX = ".idx";
+
+    private static final int INDEX_INTERVAL_BYTES = 4096;
+    private static final int INDEX_ENTRY_BYTES = 16;
+    private static final byte[] SEQ_PREFIX = "{\"seq\":".getBytes(StandardCharsets.US_ASCII);
+
+    private final Path logPath;
+    private final Path indexPath;
+    private final long baseSeq;
+    private final SegmentChannels channels;
+    private final ByteBuffer indexEntry;
+
+    // Guarded by this: log is null while a sealed segment is idle, index is null once sealed
+    private FileChannel log;
+    private FileChannel index;
+    private boolean sealed;
+    private boolean pinned;
+    private boolean released;
+    private int readers;
+
+    private long[] indexSeqs;
+    private long[] indexPositions;
+    private int indexSize;
+    private long lastIndexedPosition;
+
+    // Bytes readers may see; only advanced after a whole line is written
+    private volatile long size;
+    private volatile long lastSeq;
+    private volatile long lastAppendMillis;
+
+    private LogSegment(Path dir, long baseSeq, SegmentChannels channels) throws IOException {
+        this.baseSeq = baseSeq;
+        this.channels = channels;
+        this.logPath = dir.resolve(fileName(baseSeq, LOG_SUFFIX));
+        this.indexPath = dir.resolve(fileName(baseSeq, INDEX_SUFFIX));
+        this.log = FileChannel.open(logPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                    StandardOpenOption.WRITE);
+        this.index = FileChannel.open(indexPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                      StandardOpenOption.WRITE);
+        this.indexEntry = ByteBuffer.allocate(INDEX_ENTRY_BYTES);
+        this.indexSeqs = new long[16];
+        this.indexPositions = new long[16];
+        this.lastIndexedPosition = -INDEX_INTERVAL_BYTES;
+        this.lastSeq = baseSeq - 1;
+        this.lastAppendMillis = System.currentTimeMillis();
+    }
+
+    static LogSegment create(Path dir, long baseSeq, SegmentChannels channels) throws IOException {
+        return new LogSegment(dir, baseSeq, channels);
+    }
+
+    // Reopens an existing segment: loads the sidecar, then rescans whatever it does not cover
+    static LogSegment open(Path dir, long baseSeq, SegmentChannels channels) throws IOException {
+        LogSegment segment = new LogSegment(dir, baseSeq, channels);
+        segment.recover();
+        segment.lastAppendMillis = Files.getLastModifiedTime(segment.logPath).toMillis();
+        return segment;
+    }
+
+    static String fileName(long baseSeq, String suffix) {
+        return String.format("%020d%s", baseSeq, suffix);
+    }
+
+    public synchronized void append(long seq, ByteBuffer line) throws IOException {
+        long position = size;
+        if (position - lastIndexedPosition >= INDEX_INTERVAL_BYTES) {
+            addIndexEntry(seq, position);
+            indexEntry.clear();
+            indexEntry.putLong(seq).putLong(position).flip();
+            while (indexEntry.hasRemaining()) {
+                index.write(indexEntry, (long) (indexSize - 1) * INDEX_ENTRY_BYTES + indexEntry.position());
+            }
+        }
+
+        long written = 0;
+        while (line.hasRemaining()) {
+            written += log.write(line, position + written);
+        }
+        lastSeq = seq;
+        lastAppendMillis = System.currentTimeMillis();
+        size = position + written;
+    }
+
+    /**
+     * Locates up to limit whole lines starting at the first seq >= fromSeq. Only the lines
+     * between the nearest index entry and the end of the range are scanned, and nothing is parsed
+     * beyond each line's leading seq.
+     */
+    public LogSlice read(long fromSeq, int limit, ByteBuffer scratch) throws IOException {
+        FileChannel channel = acquire();
+        try {
+            return read(channel, fromSeq, limit, scratch);
+        } finally {
+            releaseReader();
+        }
+    }
+
+    private LogSlice read(FileChannel channel, long fromSeq, int limit, ByteBuffer scratch) throws IOException {
+        long committed = size;
+        long filePosition = floorPosition(fromSeq);
+
+        long start = -1;
+        long end = committed;
+        long firstSeq = -1;
+        long lastLineSeq = -1;
+        long seq = 0;
+        int prefixMatched = 0;
+        boolean seqParsed = false;
+        long lineStart = filePosition;
+        int count = 0;
+
+        scan:
+        while (filePosition < committed) {
+            scratch.clear();
+            scratch.limit((int) Math.min(scratch.capacity(), committed - filePosition));
+            int read = channel.read(scratch, filePosition);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                byte b = scratch.get(i);
+                if (!seqParsed) {
+                    if (prefixMatched < SEQ_PREFIX.length) {
+                        prefixMatched++;
+                        continue;
+                    }
+                    if (b >= '0' && b <= '9') {
+                        seq = seq * 10 + (b - '0');
+                        continue;
+                    }
+                    seqParsed = true;
+                    if (start < 0 && seq >= fromSeq) {
+                        start = lineStart;
+                        firstSeq = seq;
+                    }
+                }
+                if (b == '\n') {
+                    if (start >= 0) {
+                        lastLineSeq = seq;
+                        if (++count == limit) {
+                            end = filePosition + i + 1;
+                            break scan;
+                        }
+                    }
+                    lineStart = filePosition + i + 1;
+                    prefixMatched = 0;
+                    seq = 0;
+                    seqParsed = false;
+                }
+            }
+            filePosition += read;
+        }
+
+        if (start < 0 || count == 0) {
+            return null;
+        }
+        return new LogSlice(this, start, end - start, count, firstSeq, lastLineSeq);
+    }
+
+    void transferTo(long position, long length, WritableByteChannel target) throws IOException {
+        FileChannel channel = acquire();
+        try {
+            long sent = 0;
+            while (sent < length) {
+                long n = channel.transferTo(position + sent, length - sent, target);
+                if (n <= 0) {
+                    throw new IOException("Segment " + logPath.getFileName() + " ended before the requested range");
+                }
+                sent += n;
+            }
+        } finally {
+            releaseReader();
+        }
+    }
+
+    // The log channel, reopened if it was closed while idle; held open until releaseReader()
+    private FileChannel acquire() throws IOException {
+        FileChannel channel;
+        boolean tracked;
+        synchronized (this) {
+            if (released) {
+                throw new ClosedChannelException();
+            }
+            if (log == null) {
+                log = FileChannel.open(logPath, StandardOpenOption.READ);
+            }
+            readers++;
+            channel = log;
+            tracked = sealed && !pinned;
+        }
+        if (tracked) {
+            channels.touch(this);
+        }
+        return channel;
+    }
+
+    private synchronized void releaseReader() {
+        readers--;
+    }
+
+    // No more appends: the log is forced and the index closed, and the log may now close while idle
+    void seal() throws IOException {
+        synchronized (this) {
+            if (sealed) {
+                return;
+            }
+            sealed = true;
+            log.force(false);
+            index.close();
+            index = null;
+        }
+        channels.touch(this);
+    }
+
+    void closeIfIdle() {
+        synchronized (this) {
+            if (readers > 0 || pinned || !sealed) {
+                return;
+            }
+            if (log != null) {
+                try {
+                    log.close();
+                } catch (IOException e) {
+                    System.err.println("Error closing idle segment " + logPath.getFileName() + ": " + e.getMessage());
+                }
+                log = null;
+            }
+            channels.remove(this);
+        }
+    }
+
+    // Holds the current file open until release(), so reads keep seeing it after it is unlinked or replaced
+    synchronized void pin() throws IOException {
+        if (log == null) {
+            log = FileChannel.open(logPath, StandardOpenOption.READ);
+        }
+        pinned = true;
+        channels.remove(this);
+    }
+
+    private synchronized long floorPosition(long seq) {
+        int i = Arrays.binarySearch(indexSeqs, 0, indexSize, seq);
+        if (i < 0) {
+            i = -i - 2;
+        }
+        return i < 0 ? 0 : indexPositions[i];
+    }
+
+    private void addIndexEntry(long seq, long position) {
+        if (indexSize == indexSeqs.length) {
+            indexSeqs = Arrays.copyOf(indexSeqs, indexSize * 2);
+            indexPositions = Arrays.copyOf(indexPositions, indexSize * 2);
+        }
+        indexSeqs[indexSize] = seq;
+        indexPositions[indexSize] = position;
+        indexSize++;
+        lastIndexedPosition = position;
+    }
+
+    private synchronized void recover() throws IOException {
+        long logSize = log.size();
+
+        // Trust sidecar entries that point inside the log, then rescan the tail past the last one
+        ByteBuffer entries = ByteBuffer.allocate((int) Math.min(index.size(), Integer.MAX_VALUE));
+        while (entries.hasRemaining() && index.read(entries, entries.position()) > 0) {
+            // keep reading
+        }
+        entries.flip();
+        while (entries.remaining() >= INDEX_ENTRY_BYTES) {
+            long seq = entries.getLong();
+            long position = entries.getLong();
+            if (position >= logSize || (indexSize > 0 && seq <= indexSeqs[indexSize - 1])) {
+                break;
+            }
+            addIndexEntry(seq, position);
+        }
+        index.truncate((long) indexSize * INDEX_ENTRY_BYTES);
+
+        long position = indexSize == 0 ? 0 : indexPositions[indexSize - 1];
+        if (indexSize > 0) {
+            // The last indexed line is rescanned below, so drop it and let the scan re-add it
+            indexSize--;
+            lastIndexedPosition = indexSize == 0 ? -INDEX_INTERVAL_BYTES : indexPositions[indexSize - 1];
+            index.truncate((long) indexSize * INDEX_ENTRY_BYTES);
+        }
+
+        ByteBuffer chunk = ByteBuffer.allocate(64 * 1024);
+        long lineStart = position;
+        long seq = 0;
+        int prefixMatched = 0;
+        boolean seqParsed = false;
+        while (position < logSize) {
+            chunk.clear();
+            int read = log.read(chunk, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                byte b = chunk.get(i);
+                if (!seqParsed) {
+                    if (prefixMatched < SEQ_PREFIX.length) {
+                        prefixMatched++;
+                        continue;
+                    }
+                    if (b >= '0' && b <= '9') {
+                        seq = seq * 10 + (b - '0');
+                        continue;
+                    }
+                    seqParsed = true;
+                }
+                if (b == '\n') {
+                    if (lineStart - lastIndexedPosition >= INDEX_INTERVAL_BYTES) {
+                        addIndexEntry(seq, lineStart);
+                        indexEntry.clear();
+                        indexEntry.putLong(seq).putLong(lineStart).flip();
+                        index.write(indexEntry, (long) (indexSize - 1) * INDEX_ENTRY_BYTES);
+                    }
+                    lastSeq = seq;
+                    lineStart = position + i + 1;
+                    prefixMatched = 0;
+                    seq = 0;
+                    seqParsed = false;
+                }
+            }
+            position += read;
+        }
+
+        // A line cut short by a crash is dropped
+        if (lineStart < logSize) {
+            log.truncate(lineStart);
+        }
+        size = lineStart;
+    }
+
+    public synchronized void close() throws IOException {
+        if (log != null) {
+            if (!sealed) {
+                log.force(false);
+            }
+            log.close();
+            log = null;
+        }
+        if (index != null) {
+            index.close();
+            index = null;
+        }
+        channels.remove(this);
+    }
+
+    // Closes without forcing; used once a segment has been replaced or unlinked
+    public synchronized void release() throws IOException {
+        released = true;
+        close();
+    }
+
+    // Unlinks the files; the channel is pinned open first, so reads in flight keep working until release()
+    public void deleteFiles() throws IOException {
+        pin();
+        Files.deleteIfExists(logPath);
+        Files.deleteIfExists(indexPath);
+    }
+
+    public Path getIndexPath() {
+        return indexPath;
+    }
+
+    public long getLastAppendMillis() {
+        return lastAppendMillis;
+    }
+
+    public long getBaseSeq() {
+        return baseSeq;
+    }
+
+    public long getLastSeq() {
+        return lastSeq;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public Path getLogPath() {
+        return logPath;
+    }
+}
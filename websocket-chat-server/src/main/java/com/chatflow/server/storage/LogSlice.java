@@ -0,0 +1,32 @@
+package com.chatflow.server.storage;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+// A byte range of whole NDJSON lines in one segment, ready to be sent as-is
+public class LogSlice {
+    private final LogSegment segment;
+    private final long position;
+    private final long length;
+    private final int count;
+    private final long firstSeq;
+    private final long lastSeq;
+
+    LogSlice(LogSegment segment, long position, long length, int count, long firstSeq, long lastSeq) {
+        this.segment = segment;
+        this.position = position;
+        this.length = length;
+        this.count = count;
+        this.firstSeq = firstSeq;
+        this.lastSeq = lastSeq;
+    }
+
+    public void transferTo(WritableByteChannel target) throws IOException {
+        segment.transferTo(position, length, target);
+    }
+
+    public long getLength() { return length; }
+    public int getCount() { return count; }
+    public long getFirstSeq() { return firstSeq; }
+    public long getLastSeq() { return lastSeq; }
+}
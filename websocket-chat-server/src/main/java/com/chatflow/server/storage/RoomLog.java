@@ -0,0 +1,145 @@
+package com.chatflow.server.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// A room's persisted history: segments ordered by base seq, appended to by the history writer only
+public class RoomLog {
+
+    private final Path dir;
+    private final long segmentBytes;
+    private final SegmentChannels channels;
+    private final CopyOnWriteArrayList<LogSegment> segments;
+    private volatile long nextSeq;
+
+    private RoomLog(Path dir, long segmentBytes, SegmentChannels channels, List<LogSegment> existing) {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.channels = channels;
+        this.segments = new CopyOnWriteArrayList<>(existing);
+        this.nextSeq = existing.isEmpty() ? 0 : existing.get(existing.size() - 1).getLastSeq() + 1;
+    }
+
+    static RoomLog open(Path dir, long segmentBytes, SegmentChannels channels) throws IOException {
+        Files.createDirectories(dir);
+        // Leftovers from a compaction that did not finish; the original segment is still in place
+        try (DirectoryStream<Path> stale = Files.newDirectoryStream(dir, "*" + LogCleaner.CLEANED_SUFFIX)) {
+            for (Path file : stale) {
+                Files.deleteIfExists(file);
+            }
+        }
+
+        List<Long> baseSeqs = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + LogSegment.LOG_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                baseSeqs.add(Long.parseLong(name.substring(0, name.length() - LogSegment.LOG_SUFFIX.length())));
+            }
+        }
+        Collections.sort(baseSeqs);
+
+        List<LogSegment> existing = new ArrayList<>(baseSeqs.size());
+        for (int i = 0; i < baseSeqs.size(); i++) {
+            LogSegment segment = LogSegment.open(dir, baseSeqs.get(i), channels);
+            // Only the last segment is appended to; the rest only need their files while being read
+            if (i < baseSeqs.size() - 1) {
+                segment.seal();
+            }
+            existing.add(segment);
+        }
+        return new RoomLog(dir, segmentBytes, channels, existing);
+    }
+
+    public synchronized void append(long seq, ByteBuffer line) throws IOException {
+        LogSegment active = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (active == null || active.getSize() >= segmentBytes) {
+            if (active != null) {
+                active.seal();
+            }
+            active = LogSegment.create(dir, seq, channels);
+            segments.add(active);
+        }
+        active.append(seq, line);
+        nextSeq = seq + 1;
+    }
+
+    // Whole lines from the first seq >= fromSeq, up to limit messages, possibly spanning segments
+    public List<LogSlice> read(long fromSeq, int limit, ByteBuffer scratch) throws IOException {
+        List<LogSlice> slices = new ArrayList<>();
+        int remaining = limit;
+        long from = fromSeq;
+        for (LogSegment segment : segments) {
+            if (remaining == 0) {
+                break;
+            }
+            if (segment.getLastSeq() < from) {
+                continue;
+            }
+            LogSlice slice = segment.read(from, remaining, scratch);
+            if (slice != null) {
+                slices.add(slice);
+                remaining -= slice.getCount();
+                from = slice.getLastSeq() + 1;
+            }
+        }
+        return slices;
+    }
+
+    // Every segment except the one being appended to
+    public List<LogSegment> getClosedSegments() {
+        List<LogSegment> snapshot = new ArrayList<>(segments);
+        return snapshot.isEmpty() ? snapshot : snapshot.subList(0, snapshot.size() - 1);
+    }
+
+    // Only the cleaner removes or replaces segments, and never the active one
+    void removeSegment(LogSegment segment) {
+        segments.remove(segment);
+    }
+
+    // Opens a closed segment again after its file was rewritten, ready to replace the old one
+    LogSegment reopenSegment(long baseSeq) throws IOException {
+        LogSegment segment = LogSegment.open(dir, baseSeq, channels);
+        segment.seal();
+        return segment;
+    }
+
+    void replaceSegment(LogSegment old, LogSegment replacement) {
+        int i = segments.indexOf(old);
+        if (i >= 0) {
+            segments.set(i, replacement);
+        }
+    }
+
+    public long getSizeBytes() {
+        long total = 0;
+        for (LogSegment segment : segments) {
+            total += segment.getSize();
+        }
+        return total;
+    }
+
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    public long getFirstSeq() {
+        return segments.isEmpty() ? nextSeq : segments.get(0).getBaseSeq();
+    }
+
+    public long getNextSeq() {
+        return nextSeq;
+    }
+
+    public synchronized void close() throws IOException {
+        for (LogSegment segment : segments) {
+            segment.close();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.chatflow.server.storage;
+
+import com.chatflow.server.history.StoredMessage;
+import com.google.gson.Gson;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Per-room message logs under one directory, one subdirectory per room
+public class RoomLogStore {
+
+    // Closed segments whose files stay open at once, across all rooms; the rest reopen when read
+    private static final int MAX_OPEN_SEGMENTS = 128;
+
+    private final Path root;
+    private final long segmentBytes;
+    private final SegmentChannels channels;
+    private final ConcurrentHashMap<String, RoomLog> logs;
+    private final Gson gson;
+
+    public RoomLogStore(Path root, long segmentBytes) {
+        this.root = root;
+        this.segmentBytes = segmentBytes;
+        this.channels = new SegmentChannels(MAX_OPEN_SEGMENTS);
+        this.logs = new ConcurrentHashMap<>();
+        this.gson = new Gson();
+    }
+
+    // Only called from the history writer thread
+    public void append(String roomId, StoredMessage message) throws IOException {
+        RoomLog log = getOrCreate(roomId);
+        byte[] json = gson.toJson(message).getBytes(StandardCharsets.UTF_8);
+        ByteBuffer line = ByteBuffer.allocate(json.length + 1);
+        line.put(json).put((byte) '\n').flip();
+        log.append(message.getSeq(), line);
+    }
+
+    // Opens the room's log from disk on first use; null if the room has never been persisted
+    public RoomLog get(String roomId) throws IOException {
+        RoomLog log = logs.get(roomId);
+        if (log != null) {
+            return log;
+        }
+        if (!Files.isDirectory(roomDir(roomId))) {
+            return null;
+        }
+        return getOrCreate(roomId);
+    }
+
+    private RoomLog getOrCreate(String roomId) throws IOException {
+        RoomLog log = logs.get(roomId);
+        if (log != null) {
+            return log;
+        }
+        synchronized (logs) {
+            log = logs.get(roomId);
+            if (log == null) {
+                log = RoomLog.open(roomDir(roomId), segmentBytes, channels);
+                logs.put(roomId, log);
+            }
+            return log;
+        }
+    }
+
+    // Opens every room log under the root, including rooms not seen since startup. Only each room's
+    // active segment keeps its files open; closed ones share the MAX_OPEN_SEGMENTS budget
+    public Map<String, RoomLog> openAll() throws IOException {
+        if (Files.isDirectory(root)) {
+            try (DirectoryStream<Path> dirs = Files.newDirectoryStream(root, Files::isDirectory)) {
+                for (Path dir : dirs) {
+                    String roomId = roomIdFor(dir.getFileName().toString());
+                    if (roomId != null) {
+                        getOrCreate(roomId);
+                    }
+                }
+            }
+        }
+        return new HashMap<>(logs);
+    }
+
+    // Room ids come from clients, so anything outside [A-Za-z0-9-] is hex-escaped for the file name
+    private Path roomDir(String roomId) {
+        StringBuilder name = new StringBuilder(roomId.length());
+        for (byte b : roomId.getBytes(StandardCharsets.UTF_8)) {
+            if ((b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9') || b == '-') {
+                name.append((char) b);
+            } else {
+                name.append('_').append(String.format("%02x", b & 0xFF));
+            }
+        }
+        return root.resolve(name.length() == 0 ? "_" : name.toString());
+    }
+
+    private static String roomIdFor(String dirName) {
+        if (dirName.equals("_")) {
+            return "";
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(dirName.length());
+        for (int i = 0; i < dirName.length(); i++) {
+            char c = dirName.charAt(i);
+            if (c == '_') {
+                if (i + 2 >= dirName.length()) {
+                    return null;
+                }
+                try {
+                    bytes.write(Integer.parseInt(dirName.substring(i + 1, i + 3), 16));
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+                i += 2;
+            } else {
+                bytes.write(c);
+            }
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    public void close() {
+        for (RoomLog log : logs.values()) {
+            try {
+                log.close();
+            } catch (IOException e) {
+                System.err.println("Error closing room log: " + e.getMessage());
+            }
+        }
+    }
+
+    public int getOpenLogCount() {
+        return logs.size();
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+}
@@ -0,0 +1,52 @@
+package com.chatflow.server.storage;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Caps how many closed segments keep a file open, across every room in a store. Segments are kept
+ * in access order; past the limit the least recently read ones close their channel, and reopen it
+ * on the next read. Segments being read, or pinned for a pending release, are skipped.
+ */
+class SegmentChannels {
+
+    private final int maxOpen;
+    private final LinkedHashMap<LogSegment, Boolean> open;
+
+    SegmentChannels(int maxOpen) {
+        this.maxOpen = Math.max(1, maxOpen);
+        this.open = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    // Never called under a segment's lock; a segment takes this lock under its own to remove itself
+    void touch(LogSegment segment) {
+        List<LogSegment> victims = null;
+        synchronized (open) {
+            open.put(segment, Boolean.TRUE);
+            int excess = open.size() - maxOpen;
+            for (Iterator<LogSegment> it = open.keySet().iterator(); excess > 0 && it.hasNext(); excess--) {
+                LogSegment eldest = it.next();
+                if (eldest != segment) {
+                    if (victims == null) {
+                        victims = new ArrayList<>();
+                    }
+                    victims.add(eldest);
+                }
+            }
+        }
+        if (victims == null) {
+            return;
+        }
+        for (LogSegment victim : victims) {
+            victim.closeIfIdle();
+        }
+    }
+
+    void remove(LogSegment segment) {
+        synchronized (open) {
+            open.remove(segment);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.chatflow.server.validation;
 
+import com.chatflow.server.filter.ContentFilter;
 import com.chatflow.server.model.ChatMessage;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
@@ -17,6 +18,10 @@ public class MessageValidator {
     private static final List<String> VALID_MESSAGE_TYPES = Arrays.asList("TEXT", "JOIN", "LEAVE");
 
     public static ValidationResult validate(ChatMessage message) {
+        return validate(message, null);
+    }
+
+    public static ValidationResult validate(ChatMessage message, ContentFilter contentFilter) {
         ValidationResult result = new ValidationResult();
 
         if (message == null) {
@@ -27,6 +32,9 @@ public class MessageValidator {
         validateUserId(message.getUserId(), result);
         validateUsername(message.getUsername(), result);
         validateMessage(message.getMessage(), result);
+        if (contentFilter != null && contentFilter.isBlocked(message.getMessage())) {
+            result.addError("message contains a blocked term");
+        }
         validateTimestamp(message.getTimestamp(), result);
         validateMessageType(message.getMessageType(), result);
 
@@ -3,17 +3,23 @@ package com.chatflow.client;
 import com.chatflow.client.analysis.CSVWriter;
 import com.chatflow.client.analysis.ChartGenerator;
 import com.chatflow.client.analysis.StatisticsCalculator;
-import com.chatflow.client.generator.MessageGenerator;
+import com.chatflow.client.generator.MessageShard;
+import com.chatflow.client.metrics.LatencyHistogram;
 import com.chatflow.client.metrics.MetricsCollector;
-import com.chatflow.client.model.ChatMessage;
-import com.chatflow.client.model.MessageMetric;
+import com.chatflow.client.metrics.MetricsLog;
+import com.chatflow.client.metrics.MonotonicClock;
+import com.chatflow.client.openloop.ArrivalSchedule;
+import com.chatflow.client.openloop.OpenLoopRunner;
+import com.chatflow.client.simulation.UserSimulation;
+import com.chatflow.client.worker.ConnectionPool;
 import com.chatflow.client.worker.SenderWorker;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.Map;
+import java.util.SplittableRandom;
 import java.util.concurrent.*;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 public class LoadTestClient {
     
@@ -29,7 +35,29 @@ public class LoadTestClient {
     // MAIN: Conservative thread count
     private static final int MAIN_PHASE_THREADS = 45; 
     
-    private static final int QUEUE_CAPACITY = 50000;
+    // -Dchatflow.mux=true: every room shares the pool's /mux connections instead of one set per room
+    private static final boolean MULTIPLEXED = Boolean.getBoolean("chatflow.mux");
+
+    // -Dchatflow.window=N: up to N unanswered messages per worker per room; 1 is stop-and-wait
+    private static final int WINDOW = Integer.getInteger("chatflow.window", 1);
+
+    // -Dchatflow.users=N: replace both phases with N simulated users, each on its own thread and connection
+    private static final int SIMULATED_USERS = Integer.getInteger("chatflow.users", 0);
+    private static final long THINK_TIME_MS = Long.getLong("chatflow.thinkMs", 1000);
+    private static final long USERS_DURATION_SECONDS = Long.getLong("chatflow.usersDurationSeconds", 60);
+    private static final long USERS_RAMP_SECONDS = Long.getLong("chatflow.usersRampSeconds", 10);
+
+    // -Dchatflow.rate=N: open-loop mode, sending N msg/s on a schedule that ignores responses
+    private static final int OPEN_LOOP_RATE = Integer.getInteger("chatflow.rate", 0);
+    private static final String ARRIVAL = System.getProperty("chatflow.arrival", "fixed");
+    private static final int RAMP_FROM_RATE = Integer.getInteger("chatflow.rampFrom", 0);
+    private static final long OPEN_LOOP_SECONDS = Long.getLong("chatflow.durationSeconds", 60);
+
+    // -Dchatflow.connectionsPerRoom=N: sockets per room (total on /mux), shared by all workers
+    private static final int CONNECTIONS_PER_ROOM = Integer.getInteger("chatflow.connectionsPerRoom", 1);
+
+    // -Dchatflow.metricsLog=path: binary per-message log for MetricsLogAnalyzer; empty turns it off
+    private static final String METRICS_LOG = System.getProperty("chatflow.metricsLog", "results/metrics.bin");
 
     public static void main(String[] args) {
         System.out.println("============================================");
@@ -40,6 +68,16 @@ public class LoadTestClient {
         System.out.println("  Total messages: " + TOTAL_MESSAGES);
         System.out.println("  Warmup threads: " + WARMUP_THREADS);
         System.out.println("  Main phase threads: " + MAIN_PHASE_THREADS);
+        System.out.println("  Multiplexed rooms: " + MULTIPLEXED);
+        System.out.println("  Connections per room: " + CONNECTIONS_PER_ROOM + " (shared by all workers)");
+        System.out.println("  In-flight window: " + WINDOW);
+        if (SIMULATED_USERS > 0) {
+            System.out.println("  Simulated users: " + SIMULATED_USERS + " (think time " + THINK_TIME_MS + "ms)");
+        }
+        if (OPEN_LOOP_RATE > 0) {
+            System.out.println("  Open-loop: " + ARRIVAL + " arrivals at " + OPEN_LOOP_RATE + " msg/s for " +
+                             OPEN_LOOP_SECONDS + "s");
+        }
         System.out.println("============================================");
         System.out.println();
         
@@ -48,22 +86,54 @@ public class LoadTestClient {
     }
 
     public void runTest() {
-        long overallStartTime = System.currentTimeMillis();
+        long overallStartTime = MonotonicClock.currentTimeMillis();
         
-        MetricsCollector metricsCollector = new MetricsCollector();
-        BlockingQueue<ChatMessage> messageQueue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+        MetricsLog metricsLog = openMetricsLog();
+        MetricsCollector metricsCollector = new MetricsCollector(metricsLog);
+        // Each worker generates its own messages from a split of this stream; no shared queue
+        SplittableRandom seeds = new SplittableRandom();
         
         try {
-            // Phase 1: Warmup
-            System.out.println("=== WARMUP PHASE ===");
-            runWarmupPhase(messageQueue, metricsCollector);
+            if (OPEN_LOOP_RATE > 0) {
+                System.out.println("=== OPEN-LOOP PHASE ===");
+                ArrivalSchedule schedule = new ArrivalSchedule(
+                        ArrivalSchedule.Kind.valueOf(ARRIVAL.toUpperCase()), RAMP_FROM_RATE, OPEN_LOOP_RATE,
+                        OPEN_LOOP_SECONDS, System.nanoTime());
+                new OpenLoopRunner(SERVER_URL, schedule, CONNECTIONS_PER_ROOM, metricsCollector).run();
+                long endTime = MonotonicClock.currentTimeMillis();
+                displayResults(metricsCollector, overallStartTime, endTime);
+                generateOutputs(metricsCollector, overallStartTime, endTime - overallStartTime);
+                return;
+            }
 
+            if (SIMULATED_USERS > 0) {
+                System.out.println("=== SIMULATED USERS ===");
+                new UserSimulation(SERVER_URL, SIMULATED_USERS, THINK_TIME_MS,
+                                   TimeUnit.SECONDS.toMillis(USERS_DURATION_SECONDS),
+                                   TimeUnit.SECONDS.toMillis(USERS_RAMP_SECONDS), metricsCollector).run();
+                long endTime = MonotonicClock.currentTimeMillis();
+                displayResults(metricsCollector, overallStartTime, endTime);
+                generateOutputs(metricsCollector, overallStartTime, endTime - overallStartTime);
+                return;
+            }
+
+            // Both phases share one pool, so main phase workers reuse the warmup's connections
+            ConnectionPool connectionPool = new ConnectionPool(SERVER_URL, MULTIPLEXED, CONNECTIONS_PER_ROOM,
+                                                               metricsCollector);
+            try {
+                // Phase 1: Warmup
+                System.out.println("=== WARMUP PHASE ===");
+                runWarmupPhase(connectionPool, seeds, metricsCollector);
+
+                
+                // Phase 2: Main Load Test
+                System.out.println("\n=== MAIN PHASE ===");
+                runMainPhase(connectionPool, seeds, metricsCollector);
+            } finally {
+                connectionPool.close();
+            }
             
-            // Phase 2: Main Load Test
-            System.out.println("\n=== MAIN PHASE ===");
-            runMainPhase(messageQueue, metricsCollector);
-            
-            long overallEndTime = System.currentTimeMillis();
+            long overallEndTime = MonotonicClock.currentTimeMillis();
             
             long totalDuration = overallEndTime - overallStartTime;
 
@@ -76,11 +146,29 @@ public class LoadTestClient {
         } catch (Exception e) {
             System.err.println("Test failed: " + e.getMessage());
             e.printStackTrace();
+        } finally {
+            if (metricsLog != null) {
+                metricsLog.close();
+                System.out.println("  Rebuild per-message CSV and charts with: java -cp <client jar> " +
+                                   "com.chatflow.client.analysis.MetricsLogAnalyzer " + metricsLog.getPath());
+            }
         }
     }
 
-    private void runWarmupPhase(BlockingQueue<ChatMessage> messageQueue, 
-                                MetricsCollector metricsCollector) 
+    private MetricsLog openMetricsLog() {
+        if (METRICS_LOG.isEmpty()) {
+            return null;
+        }
+        try {
+            return MetricsLog.open(Paths.get(METRICS_LOG));
+        } catch (IOException e) {
+            System.err.println("Metrics log disabled, could not open " + METRICS_LOG + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void runWarmupPhase(ConnectionPool connectionPool, SplittableRandom seeds,
+                               MetricsCollector metricsCollector) 
             throws InterruptedException {
         
         int warmupMessages = WARMUP_THREADS * WARMUP_MESSAGES_PER_THREAD;
@@ -90,17 +178,7 @@ public class LoadTestClient {
         System.out.println("Total warmup messages: " + warmupMessages);
         System.out.println();
         
-        long startTime = System.currentTimeMillis();
-        
-        // Start message generator
-        Thread generatorThread = new Thread(
-            new MessageGenerator(messageQueue, warmupMessages)
-        );
-        generatorThread.start();
-        
-        // Wait for queue to have some messages
-        System.out.println("Waiting for message queue to fill...");
-        Thread.sleep(2000);
+        long startTime = MonotonicClock.currentTimeMillis();
         
         // Start worker threads with small delays between them
         ExecutorService executorService = Executors.newFixedThreadPool(WARMUP_THREADS);
@@ -113,8 +191,8 @@ public class LoadTestClient {
             }
             
             SenderWorker worker = new SenderWorker(
-                i, SERVER_URL, messageQueue, metricsCollector,
-                WARMUP_MESSAGES_PER_THREAD, latch
+                i, connectionPool, new MessageShard(seeds.split()), metricsCollector,
+                WARMUP_MESSAGES_PER_THREAD, latch, WINDOW
             );
             executorService.submit(worker);
         }
@@ -125,9 +203,8 @@ public class LoadTestClient {
         latch.await();
         executorService.shutdown();
         executorService.awaitTermination(10, TimeUnit.MINUTES);
-        generatorThread.join();
         
-        long endTime = System.currentTimeMillis();
+        long endTime = MonotonicClock.currentTimeMillis();
         long duration = endTime - startTime;
         double throughput = (warmupMessages * 1000.0) / duration;
         
@@ -140,8 +217,8 @@ public class LoadTestClient {
         System.out.println("Throughput: " + String.format("%.2f", throughput) + " msg/sec");
     }
 
-    private void runMainPhase(BlockingQueue<ChatMessage> messageQueue,
-                             MetricsCollector metricsCollector) 
+    private void runMainPhase(ConnectionPool connectionPool, SplittableRandom seeds,
+                               MetricsCollector metricsCollector) 
             throws InterruptedException {
         
         int warmupMessages = WARMUP_THREADS * WARMUP_MESSAGES_PER_THREAD;
@@ -151,17 +228,7 @@ public class LoadTestClient {
         System.out.println("Remaining messages to send: " + mainPhaseMessages);
         System.out.println();
         
-        long startTime = System.currentTimeMillis();
-        
-        // Start message generator
-        Thread generatorThread = new Thread(
-            new MessageGenerator(messageQueue, mainPhaseMessages)
-        );
-        generatorThread.start();
-        
-        // Wait for queue to have some messages
-        System.out.println("Waiting for message queue to fill...");
-        Thread.sleep(2000);
+        long startTime = MonotonicClock.currentTimeMillis();
         
         // Calculate messages per thread
         int messagesPerThread = mainPhaseMessages / MAIN_PHASE_THREADS;
@@ -183,8 +250,8 @@ public class LoadTestClient {
             }
             
             SenderWorker worker = new SenderWorker(
-                i, SERVER_URL, messageQueue, metricsCollector,
-                messagesToSend, latch
+                i, connectionPool, new MessageShard(seeds.split()), metricsCollector,
+                messagesToSend, latch, WINDOW
             );
             executorService.submit(worker);
         }
@@ -197,9 +264,8 @@ public class LoadTestClient {
         latch.await();
         executorService.shutdown();
         executorService.awaitTermination(30, TimeUnit.MINUTES);
-        generatorThread.join();
         
-        long endTime = System.currentTimeMillis();
+        long endTime = MonotonicClock.currentTimeMillis();
         long duration = endTime - startTime;
         double throughput = (mainPhaseMessages * 1000.0) / duration;
         
@@ -223,49 +289,62 @@ public class LoadTestClient {
         long duration = endTime - startTime;
         double throughput = (successCount * 1000.0) / duration;
         
-        System.out.println("Total messages attempted: " + TOTAL_MESSAGES);
+        // Simulated users and open-loop runs send for a fixed time rather than a fixed count
+        int attempted = SIMULATED_USERS > 0 || OPEN_LOOP_RATE > 0 ? totalMessages : TOTAL_MESSAGES;
+        System.out.println("Total messages attempted: " + attempted);
         System.out.println("Successful: " + successCount);
         System.out.println("Failed: " + failureCount);
-        System.out.println("Success rate: " + String.format("%.2f", (successCount * 100.0 / TOTAL_MESSAGES)) + "%");
+        System.out.println("Success rate: " + String.format("%.2f", (successCount * 100.0 / attempted)) + "%");
         System.out.println("Total runtime: " + (duration / 1000.0) + " seconds");
         System.out.println("Overall throughput: " + String.format("%.2f", throughput) + " msg/sec");
         System.out.println("Total connections: " + metricsCollector.getTotalConnections());
         
         // statistics
-        List<MessageMetric> metrics = metricsCollector.getMetrics();
-        
-        if (metrics.isEmpty()) {
+        if (successCount == 0) {
             System.out.println("\nNo metrics collected - all messages failed!");
             return;
         }
         
-        StatisticsCalculator.Statistics stats = StatisticsCalculator.calculate(metrics);
+        StatisticsCalculator.Statistics stats = StatisticsCalculator.calculate(metricsCollector.getLatencyHistogram());
         
         System.out.println("\n=== LATENCY STATISTICS ===");
-        System.out.println("Mean response time: " + String.format("%.2f", stats.getMean()) + " ms");
-        System.out.println("Median response time: " + stats.getMedian() + " ms");
-        System.out.println("95th percentile: " + stats.getP95() + " ms");
-        System.out.println("99th percentile: " + stats.getP99() + " ms");
-        System.out.println("Min response time: " + stats.getMin() + " ms");
-        System.out.println("Max response time: " + stats.getMax() + " ms");
+        System.out.println("Mean response time: " + StatisticsCalculator.formatMillis(stats.getMean()) + " ms");
+        System.out.println("Std deviation: " + StatisticsCalculator.formatMillis(stats.getStdDev()) + " ms");
+        System.out.println("Median response time: " + StatisticsCalculator.formatMillis(stats.getMedian()) + " ms");
+        System.out.println("95th percentile: " + StatisticsCalculator.formatMillis(stats.getP95()) + " ms");
+        System.out.println("99th percentile: " + StatisticsCalculator.formatMillis(stats.getP99()) + " ms");
+        System.out.println("99.9th percentile: " + StatisticsCalculator.formatMillis(stats.getPercentile(99.9)) + " ms");
+        System.out.println("99.99th percentile: " + StatisticsCalculator.formatMillis(stats.getPercentile(99.99)) + " ms");
+        System.out.println("Min response time: " + StatisticsCalculator.formatMillis(stats.getMin()) + " ms");
+        System.out.println("Max response time: " + StatisticsCalculator.formatMillis(stats.getMax()) + " ms");
+        
+        // Round-trip breakdown from the server's timing stamps
+        if (metricsCollector.getTimedResponseCount() > 0) {
+            System.out.println("\n=== LATENCY BREAKDOWN (mean) ===");
+            System.out.println("Network + client: " + String.format("%.1f", metricsCollector.getAverageNetworkMicros()) + " us");
+            System.out.println("Server queue: " + String.format("%.1f", metricsCollector.getAverageQueueMicros()) + " us");
+            System.out.println("Server parse: " + String.format("%.1f", metricsCollector.getAverageParseMicros()) + " us");
+            System.out.println("Server validate: " + String.format("%.1f", metricsCollector.getAverageValidateMicros()) + " us");
+            System.out.println("Server record: " + String.format("%.1f", metricsCollector.getAverageRecordMicros()) + " us");
+        }
         
         // Throughput by room
         System.out.println("\n=== THROUGHPUT BY ROOM ===");
-        Map<String, AtomicInteger> roomCounts = metricsCollector.getRoomMessageCounts();
+        Map<String, LongAdder> roomCounts = metricsCollector.getRoomMessageCounts();
         roomCounts.entrySet().stream()
             .sorted((a, b) -> a.getKey().compareTo(b.getKey()))
             .forEach(entry -> {
-                double roomThroughput = (entry.getValue().get() * 1000.0) / duration;
-                System.out.println(entry.getKey() + ": " + entry.getValue().get() + 
+                double roomThroughput = (entry.getValue().sum() * 1000.0) / duration;
+                System.out.println(entry.getKey() + ": " + entry.getValue().sum() + 
                                  " messages (" + String.format("%.2f", roomThroughput) + " msg/sec)");
             });
         
         // Message type distribution
         System.out.println("\n=== MESSAGE TYPE DISTRIBUTION ===");
-        Map<String, AtomicInteger> typeCounts = metricsCollector.getMessageTypeCounts();
+        Map<String, LongAdder> typeCounts = metricsCollector.getMessageTypeCounts();
         typeCounts.forEach((type, count) -> {
-            double percentage = (count.get() * 100.0) / successCount;
-            System.out.println(type + ": " + count.get() + " (" + 
+            double percentage = (count.sum() * 100.0) / successCount;
+            System.out.println(type + ": " + count.sum() + " (" + 
                              String.format("%.2f", percentage) + "%)");
         });
         
@@ -275,17 +354,17 @@ public class LoadTestClient {
     private void generateOutputs(MetricsCollector metricsCollector, long startTime, long duration) {
         System.out.println("\n=== GENERATING OUTPUTS ===");
         
-        List<MessageMetric> metrics = metricsCollector.getMetrics();
+        int successCount = metricsCollector.getSuccessCount();
         
-        if (metrics.isEmpty()) {
+        if (successCount == 0) {
             System.out.println("No metrics to export - all messages failed!");
             return;
         }
         
-        int successCount = metricsCollector.getSuccessCount();
+        LatencyHistogram histogram = metricsCollector.getLatencyHistogram();
         
-        // 1. Write per-message metrics CSV
-        CSVWriter.writeMetrics(metrics, "results/metrics.csv");
+        // 1. Write latency percentile distribution CSV
+        CSVWriter.writeLatencyPercentiles(histogram, "results/latency_percentiles.csv");
         
         // 2. Write throughput by room CSV
         writeThroughputByRoomCSV(metricsCollector.getRoomMessageCounts(), duration);
@@ -294,20 +373,20 @@ public class LoadTestClient {
         writeMessageTypeDistributionCSV(metricsCollector.getMessageTypeCounts(), successCount);
         
         // 4. Write summary statistics CSV
-        writeSummaryStatisticsCSV(metrics, successCount, metricsCollector.getFailureCount(), duration);
+        writeSummaryStatisticsCSV(histogram, successCount, metricsCollector.getFailureCount(), duration);
         
         // 5. Generate throughput chart
-        ChartGenerator.generateThroughputChart(metrics, "results/throughput_chart.png", startTime);
+        ChartGenerator.generateThroughputChart(metricsCollector.getSuccessesPerSecond(), "results/throughput_chart.png", startTime);
         
         System.out.println("\nAll outputs generated successfully!");
-        System.out.println("  - results/metrics.csv");
+        System.out.println("  - results/latency_percentiles.csv");
         System.out.println("  - results/throughput_by_room.csv");
         System.out.println("  - results/message_type_distribution.csv");
         System.out.println("  - results/summary_statistics.csv");
         System.out.println("  - results/throughput_chart.png");
     }
     
-    private void writeThroughputByRoomCSV(Map<String, AtomicInteger> roomCounts, long duration) {
+    private void writeThroughputByRoomCSV(Map<String, LongAdder> roomCounts, long duration) {
         try (java.io.FileWriter writer = new java.io.FileWriter("results/throughput_by_room.csv")) {
             // Write header
             writer.write("roomId,messageCount,throughput_msg_per_sec\n");
@@ -317,9 +396,9 @@ public class LoadTestClient {
                 .sorted((a, b) -> a.getKey().compareTo(b.getKey()))
                 .forEach(entry -> {
                     try {
-                        double roomThroughput = (entry.getValue().get() * 1000.0) / duration;
+                        double roomThroughput = (entry.getValue().sum() * 1000.0) / duration;
                         writer.write(entry.getKey() + "," + 
-                                   entry.getValue().get() + "," + 
+                                   entry.getValue().sum() + "," + 
                                    String.format("%.2f", roomThroughput) + "\n");
                     } catch (Exception e) {
                         System.err.println("Error writing room throughput: " + e.getMessage());
@@ -333,7 +412,7 @@ public class LoadTestClient {
         }
     }
     
-    private void writeMessageTypeDistributionCSV(Map<String, AtomicInteger> typeCounts, int totalSuccess) {
+    private void writeMessageTypeDistributionCSV(Map<String, LongAdder> typeCounts, int totalSuccess) {
         try (java.io.FileWriter writer = new java.io.FileWriter("results/message_type_distribution.csv")) {
             // Write header
             writer.write("messageType,count,percentage\n");
@@ -341,9 +420,9 @@ public class LoadTestClient {
             // Write data
             typeCounts.forEach((type, count) -> {
                 try {
-                    double percentage = (count.get() * 100.0) / totalSuccess;
+                    double percentage = (count.sum() * 100.0) / totalSuccess;
                     writer.write(type + "," + 
-                               count.get() + "," + 
+                               count.sum() + "," + 
                                String.format("%.2f", percentage) + "\n");
                 } catch (Exception e) {
                     System.err.println("Error writing message type: " + e.getMessage());
@@ -357,11 +436,11 @@ public class LoadTestClient {
         }
     }
     
-    private void writeSummaryStatisticsCSV(List<MessageMetric> metrics, int successCount, 
+    private void writeSummaryStatisticsCSV(LatencyHistogram histogram, int successCount, 
                                           int failureCount, long duration) {
         try (java.io.FileWriter writer = new java.io.FileWriter("results/summary_statistics.csv")) {
             // Calculate statistics
-            StatisticsCalculator.Statistics stats = StatisticsCalculator.calculate(metrics);
+            StatisticsCalculator.Statistics stats = StatisticsCalculator.calculate(histogram);
             
             // Write as key-value pairs
             writer.write("metric,value,unit\n");
@@ -371,12 +450,15 @@ public class LoadTestClient {
             writer.write("success_rate," + String.format("%.2f", (successCount * 100.0) / (successCount + failureCount)) + ",percent\n");
             writer.write("total_duration," + (duration / 1000.0) + ",seconds\n");
             writer.write("overall_throughput," + String.format("%.2f", (successCount * 1000.0) / duration) + ",msg_per_sec\n");
-            writer.write("mean_latency," + String.format("%.2f", stats.getMean()) + ",ms\n");
-            writer.write("median_latency," + stats.getMedian() + ",ms\n");
-            writer.write("p95_latency," + stats.getP95() + ",ms\n");
-            writer.write("p99_latency," + stats.getP99() + ",ms\n");
-            writer.write("min_latency," + stats.getMin() + ",ms\n");
-            writer.write("max_latency," + stats.getMax() + ",ms\n");
+            writer.write("mean_latency," + StatisticsCalculator.formatMillis(stats.getMean()) + ",ms\n");
+            writer.write("stddev_latency," + StatisticsCalculator.formatMillis(stats.getStdDev()) + ",ms\n");
+            writer.write("median_latency," + StatisticsCalculator.formatMillis(stats.getMedian()) + ",ms\n");
+            writer.write("p95_latency," + StatisticsCalculator.formatMillis(stats.getP95()) + ",ms\n");
+            writer.write("p99_latency," + StatisticsCalculator.formatMillis(stats.getP99()) + ",ms\n");
+            writer.write("p99.9_latency," + StatisticsCalculator.formatMillis(stats.getPercentile(99.9)) + ",ms\n");
+            writer.write("p99.99_latency," + StatisticsCalculator.formatMillis(stats.getPercentile(99.99)) + ",ms\n");
+            writer.write("min_latency," + StatisticsCalculator.formatMillis(stats.getMin()) + ",ms\n");
+            writer.write("max_latency," + StatisticsCalculator.formatMillis(stats.getMax()) + ",ms\n");
             
             System.out.println("Summary statistics CSV written");
             
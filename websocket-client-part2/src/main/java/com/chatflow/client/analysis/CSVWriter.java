@@ -1,27 +1,75 @@
 package com.chatflow.client.analysis;
 
-import com.chatflow.client.model.MessageMetric;
+import com.chatflow.client.metrics.LatencyHistogram;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.util.List;
+import java.util.Map;
 
 public class CSVWriter {
-    
-    public static void writeMetrics(List<MessageMetric> metrics, String filename) {
+
+    private static final double[] PERCENTILES = {
+        0, 10, 20, 30, 40, 50, 60, 70, 75, 80, 85, 90, 95, 97.5, 99, 99.5, 99.9, 99.99, 100
+    };
+
+    // Latency distribution in the shape of HdrHistogram's percentile output
+    public static void writeLatencyPercentiles(LatencyHistogram histogram, String filename) {
         try (FileWriter writer = new FileWriter(filename)) {
             // Write header
-            writer.write("timestamp,messageType,latencyMs,statusCode,roomId\n");
+            writer.write("percentile,latencyMs,totalCount\n");
             
             // Write data
-            for (MessageMetric metric : metrics) {
-                writer.write(metric.toString() + "\n");
+            long total = histogram.getTotalCount();
+            for (double percentile : PERCENTILES) {
+                long count = (long) Math.ceil(percentile / 100.0 * total);
+                writer.write(percentile + "," +
+                           StatisticsCalculator.formatMillis(histogram.getValueAtPercentile(percentile)) + "," +
+                           count + "\n");
             }
             
-            System.out.println("Metrics written to: " + filename);
+            System.out.println("Latency percentiles written to: " + filename);
             
         } catch (IOException e) {
             System.err.println("Error writing CSV: " + e.getMessage());
             e.printStackTrace();
         }
     }
-}
\ No newline at end of file
+
+    // One row per key (room or message type) with its count and latency statistics in ms
+    public static void writeBreakdown(String keyColumn, Map<String, StatisticsCalculator.Statistics> breakdown,
+                                      double[] percentiles, String filename) {
+        try (FileWriter writer = new FileWriter(filename)) {
+            // Write header
+            StringBuilder header = new StringBuilder(keyColumn).append(",count,meanMs,stdDevMs,minMs");
+            for (double percentile : percentiles) {
+                header.append(",p").append(formatPercentile(percentile)).append("Ms");
+            }
+            writer.write(header.append(",maxMs\n").toString());
+
+            // Write data
+            for (Map.Entry<String, StatisticsCalculator.Statistics> entry : breakdown.entrySet()) {
+                StatisticsCalculator.Statistics stats = entry.getValue();
+                StringBuilder row = new StringBuilder(entry.getKey()).append(',')
+                    .append(stats.getCount()).append(',')
+                    .append(StatisticsCalculator.formatMillis(stats.getMean())).append(',')
+                    .append(StatisticsCalculator.formatMillis(stats.getStdDev())).append(',')
+                    .append(StatisticsCalculator.formatMillis(stats.getMin()));
+                for (double percentile : percentiles) {
+                    row.append(',').append(StatisticsCalculator.formatMillis(stats.getPercentile(percentile)));
+                }
+                writer.write(row.append(',').append(StatisticsCalculator.formatMillis(stats.getMax()))
+                                .append('\n').toString());
+            }
+
+            System.out.println("Latency by " + keyColumn + " written to: " + filename);
+
+        } catch (IOException e) {
+            System.err.println("Error writing CSV: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    // 99.0 -> "99", 99.9 -> "99.9"
+    private static String formatPercentile(double percentile) {
+        return percentile == Math.rint(percentile) ? String.valueOf((long) percentile) : String.valueOf(percentile);
+    }
+}
@@ -1,6 +1,5 @@
 package com.chatflow.client.analysis;
 
-import com.chatflow.client.model.MessageMetric;
 import org.jfree.chart.ChartFactory;
 import org.jfree.chart.ChartUtils;
 import org.jfree.chart.JFreeChart;
@@ -9,7 +8,6 @@ import org.jfree.data.category.DefaultCategoryDataset;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 
@@ -17,26 +15,24 @@ public class ChartGenerator {
     
     private static final int BUCKET_SIZE_MS = 10000; // 10 seconds
 
-    public static void generateThroughputChart(List<MessageMetric> metrics, 
+    public static void generateThroughputChart(Map<Long, Long> successesPerSecond,
                                               String filename, 
                                               long startTime) {
         // Group messages by 10-second buckets
-        Map<Integer, Integer> buckets = new TreeMap<>();
+        Map<Integer, Long> buckets = new TreeMap<>();
         
-        for (MessageMetric metric : metrics) {
-            if (metric.isSuccess()) {
-                long elapsedMs = metric.getTimestamp() - startTime;
-                int bucketIndex = (int) (elapsedMs / BUCKET_SIZE_MS);
-                buckets.put(bucketIndex, buckets.getOrDefault(bucketIndex, 0) + 1);
-            }
+        for (Map.Entry<Long, Long> second : successesPerSecond.entrySet()) {
+            long elapsedMs = second.getKey() * 1000 - startTime;
+            int bucketIndex = (int) (Math.max(0, elapsedMs) / BUCKET_SIZE_MS);
+            buckets.merge(bucketIndex, second.getValue(), Long::sum);
         }
 
         // Create dataset
         DefaultCategoryDataset dataset = new DefaultCategoryDataset();
         
-        for (Map.Entry<Integer, Integer> entry : buckets.entrySet()) {
+        for (Map.Entry<Integer, Long> entry : buckets.entrySet()) {
             int bucketIndex = entry.getKey();
-            int messageCount = entry.getValue();
+            long messageCount = entry.getValue();
             double throughput = (double) messageCount / (BUCKET_SIZE_MS / 1000.0);
             
             String timeLabel = (bucketIndex * 10) + "s";
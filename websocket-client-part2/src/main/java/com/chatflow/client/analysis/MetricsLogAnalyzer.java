@@ -0,0 +1,184 @@
+package com.chatflow.client.analysis;
+
+import com.chatflow.client.metrics.LatencyHistogram;
+import com.chatflow.client.metrics.MetricsLog;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Offline pass over a MetricsLog file: rebuilds the per-message CSV, the latency percentile CSV,
+ * the throughput chart and the latency statistics without rerunning the test. Overall statistics
+ * are exact while the successes fit in memory and come from the histogram beyond that; the
+ * per-room and per-type breakdowns always come from histograms filled in the same pass.
+ *
+ * java -cp websocket-chat-client.jar com.chatflow.client.analysis.MetricsLogAnalyzer \
+ *      results/metrics.bin [outputDir]
+ */
+public class MetricsLogAnalyzer {
+
+    // Records are mapped a window at a time so logs larger than 2 GB still read
+    private static final long WINDOW_RECORDS = 1 << 22;
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.HOURS.toMicros(1);
+    // 128 MB of samples; longer logs fall back to histogram percentiles
+    private static final long EXACT_MAX_SAMPLES = 1 << 24;
+    private static final boolean EXACT = Boolean.parseBoolean(System.getProperty("chatflow.exactStats", "true"));
+
+    public static void main(String[] args) throws IOException {
+        Path log = Paths.get(args.length > 0 ? args[0] : "results/metrics.bin");
+        Path outputDir = args.length > 1 ? Paths.get(args[1]) : log.toAbsolutePath().getParent();
+        Files.createDirectories(outputDir);
+
+        System.out.println("Analyzing " + log);
+        new MetricsLogAnalyzer().analyze(log, outputDir);
+    }
+
+    public void analyze(Path log, Path outputDir) throws IOException {
+        LatencyHistogram histogram = new LatencyHistogram(HIGHEST_TRACKABLE_MICROS);
+        LatencyHistogram[] byRoom = new LatencyHistogram[256];
+        LatencyHistogram[] byType = new LatencyHistogram[256];
+        Map<Long, Long> successesPerSecond = new TreeMap<>();
+        long[] samples = null;
+        int sampleCount = 0;
+        long records = 0;
+        long failures = 0;
+        long firstSendMillis = Long.MAX_VALUE;
+        long lastSendMillis = Long.MIN_VALUE;
+
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.READ);
+             Writer csv = Files.newBufferedWriter(outputDir.resolve("metrics.csv"), StandardCharsets.UTF_8)) {
+            long recordCount = readHeader(channel, log);
+            if (EXACT && recordCount <= EXACT_MAX_SAMPLES) {
+                samples = new long[(int) recordCount];
+            }
+            csv.write("timestamp,messageType,latencyMs,statusCode,roomId\n");
+            StringBuilder line = new StringBuilder(64);
+
+            for (long first = 0; first < recordCount; first += WINDOW_RECORDS) {
+                long count = Math.min(WINDOW_RECORDS, recordCount - first);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY,
+                        MetricsLog.HEADER_BYTES + first * MetricsLog.RECORD_BYTES, count * MetricsLog.RECORD_BYTES);
+                buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+                for (long i = 0; i < count; i++) {
+                    long sendMillis = TimeUnit.NANOSECONDS.toMillis(buffer.getLong());
+                    long latencyMicros = buffer.getInt() & 0xFFFFFFFFL;
+                    int status = buffer.getShort();
+                    int type = buffer.get() & 0xFF;
+                    int room = buffer.get() & 0xFF;
+                    records++;
+                    firstSendMillis = Math.min(firstSendMillis, sendMillis);
+                    lastSendMillis = Math.max(lastSendMillis, sendMillis);
+
+                    if (status == 200) {
+                        histogram.record(latencyMicros);
+                        recordInto(byRoom, room, latencyMicros);
+                        recordInto(byType, type, latencyMicros);
+                        if (samples != null) {
+                            samples[sampleCount++] = latencyMicros;
+                        }
+                        successesPerSecond.merge(sendMillis / 1000, 1L, Long::sum);
+                    } else {
+                        failures++;
+                    }
+
+                    line.setLength(0);
+                    line.append(sendMillis).append(',')
+                        .append(typeName(type)).append(',')
+                        .append(latencyMicros / 1000.0).append(',')
+                        .append(status).append(',')
+                        .append("room").append(room).append('\n');
+                    csv.append(line);
+                }
+            }
+        }
+
+        System.out.println("Records: " + records + " (" + failures + " failed)");
+        System.out.println("Per-message CSV written to: " + outputDir.resolve("metrics.csv"));
+        if (histogram.getTotalCount() == 0) {
+            System.out.println("No successful messages in the log");
+            return;
+        }
+
+        StatisticsCalculator.Statistics stats = samples != null
+                ? StatisticsCalculator.calculate(samples, sampleCount)
+                : StatisticsCalculator.calculate(histogram);
+        double seconds = Math.max(1, lastSendMillis - firstSendMillis) / 1000.0;
+        System.out.println("\n=== LATENCY STATISTICS (" + (samples != null ? "exact" : "histogram") + ") ===");
+        System.out.println("Mean response time: " + StatisticsCalculator.formatMillis(stats.getMean()) + " ms");
+        System.out.println("Std deviation: " + StatisticsCalculator.formatMillis(stats.getStdDev()) + " ms");
+        System.out.println("Median response time: " + StatisticsCalculator.formatMillis(stats.getMedian()) + " ms");
+        System.out.println("95th percentile: " + StatisticsCalculator.formatMillis(stats.getP95()) + " ms");
+        System.out.println("99th percentile: " + StatisticsCalculator.formatMillis(stats.getP99()) + " ms");
+        System.out.println("99.9th percentile: " + StatisticsCalculator.formatMillis(stats.getPercentile(99.9)) + " ms");
+        System.out.println("99.99th percentile: " + StatisticsCalculator.formatMillis(stats.getPercentile(99.99)) + " ms");
+        System.out.println("Min response time: " + StatisticsCalculator.formatMillis(stats.getMin()) + " ms");
+        System.out.println("Max response time: " + StatisticsCalculator.formatMillis(stats.getMax()) + " ms");
+        System.out.println("Throughput over send window: " +
+                           String.format("%.2f", histogram.getTotalCount() / seconds) + " msg/sec");
+        System.out.println();
+
+        CSVWriter.writeLatencyPercentiles(histogram, outputDir.resolve("latency_percentiles.csv").toString());
+        CSVWriter.writeBreakdown("roomId", breakdown(byRoom, "room"), StatisticsCalculator.DEFAULT_PERCENTILES,
+                                 outputDir.resolve("latency_by_room.csv").toString());
+        CSVWriter.writeBreakdown("messageType", breakdown(byType, null), StatisticsCalculator.DEFAULT_PERCENTILES,
+                                 outputDir.resolve("latency_by_type.csv").toString());
+        ChartGenerator.generateThroughputChart(successesPerSecond,
+                                               outputDir.resolve("throughput_chart.png").toString(), firstSendMillis);
+    }
+
+    private static void recordInto(LatencyHistogram[] histograms, int index, long latencyMicros) {
+        if (histograms[index] == null) {
+            histograms[index] = new LatencyHistogram(HIGHEST_TRACKABLE_MICROS);
+        }
+        histograms[index].record(latencyMicros);
+    }
+
+    // Room numbers keep the "room" prefix; with no prefix, indexes are message type ordinals
+    private static Map<String, StatisticsCalculator.Statistics> breakdown(LatencyHistogram[] histograms,
+                                                                           String roomPrefix) {
+        Map<String, StatisticsCalculator.Statistics> breakdown = new LinkedHashMap<>();
+        for (int i = 0; i < histograms.length; i++) {
+            if (histograms[i] != null) {
+                breakdown.put(roomPrefix != null ? roomPrefix + i : typeName(i),
+                              StatisticsCalculator.calculate(histograms[i]));
+            }
+        }
+        return breakdown;
+    }
+
+    private static String typeName(int ordinal) {
+        return ordinal < MetricsLog.MESSAGE_TYPES.length ? MetricsLog.MESSAGE_TYPES[ordinal] : "UNKNOWN";
+    }
+
+    // Validates the header and returns how many whole records follow it
+    private static long readHeader(FileChannel channel, Path log) throws IOException {
+        if (channel.size() < MetricsLog.HEADER_BYTES) {
+            throw new IOException(log + " is too short to be a metrics log");
+        }
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, MetricsLog.HEADER_BYTES);
+        header.order(ByteOrder.LITTLE_ENDIAN);
+        int magic = header.getInt();
+        short version = header.getShort();
+        short recordBytes = header.getShort();
+        if (magic != MetricsLog.MAGIC) {
+            throw new IOException(log + " is not a metrics log");
+        }
+        if (version != MetricsLog.VERSION || recordBytes != MetricsLog.RECORD_BYTES) {
+            throw new IOException(log + " has unsupported version " + version + " / record size " + recordBytes);
+        }
+        // A torn final record from a killed run is ignored
+        return (channel.size() - MetricsLog.HEADER_BYTES) / MetricsLog.RECORD_BYTES;
+    }
+}
@@ -1,92 +1,209 @@
 package com.chatflow.client.analysis;
 
-import com.chatflow.client.model.MessageMetric;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import com.chatflow.client.metrics.LatencyHistogram;
+import java.util.Arrays;
 
+/**
+ * Latency statistics from either a LatencyHistogram (streaming and mergeable, ~1% error, for
+ * unbounded runs) or a primitive long[] of exact samples. Inputs and statistics are microseconds;
+ * formatMillis renders them for reports. Any percentiles can be asked for; p50, p95 and p99 are
+ * always included.
+ */
 public class StatisticsCalculator {
-    
-    public static Statistics calculate(List<MessageMetric> metrics) {
-        if (metrics.isEmpty()) {
+
+    public static final double[] DEFAULT_PERCENTILES = {50, 95, 99, 99.9, 99.99};
+    private static final double[] REQUIRED_PERCENTILES = {50, 95, 99};
+
+    // Up to this many quantiles, selecting each one in place beats sorting the whole array
+    private static final int QUICKSELECT_MAX_QUANTILES = 8;
+    // Ranges this short are finished with insertion sort inside quickselect
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    public static Statistics calculate(LatencyHistogram histogram) {
+        return calculate(histogram, DEFAULT_PERCENTILES);
+    }
+
+    public static Statistics calculate(LatencyHistogram histogram, double... percentiles) {
+        if (histogram.getTotalCount() == 0) {
             return new Statistics();
         }
 
-        // Extract latencies from successful messages
-        List<Long> latencies = new ArrayList<>();
-        for (MessageMetric metric : metrics) {
-            if (metric.isSuccess()) {
-                latencies.add(metric.getLatencyMs());
-            }
+        double[] reported = withRequired(percentiles);
+        long[] values = new long[reported.length];
+        for (int i = 0; i < reported.length; i++) {
+            values[i] = histogram.getValueAtPercentile(reported[i]);
         }
 
-        if (latencies.isEmpty()) {
+        return new Statistics(histogram.getTotalCount(), histogram.getMean(), histogram.getStdDeviation(),
+                              histogram.getMin(), histogram.getMax(), reported, values);
+    }
+
+    public static Statistics calculate(long[] latencies, int count) {
+        return calculate(latencies, count, DEFAULT_PERCENTILES);
+    }
+
+    // Exact nearest-rank statistics over latencies[0, count); reorders that range in place
+    public static Statistics calculate(long[] latencies, int count, double... percentiles) {
+        if (count == 0) {
             return new Statistics();
         }
 
-        // Sort for percentile calculations
-        Collections.sort(latencies);
+        // Mean, spread and extremes in one pass before the array is reordered
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        double sum = 0;
+        double sumOfSquares = 0;
+        for (int i = 0; i < count; i++) {
+            long value = latencies[i];
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            sum += value;
+            sumOfSquares += (double) value * value;
+        }
+        double mean = sum / count;
+        double variance = Math.max(0, sumOfSquares / count - mean * mean);
+
+        double[] reported = withRequired(percentiles);
+        int[] ranks = new int[reported.length];
+        for (int i = 0; i < reported.length; i++) {
+            ranks[i] = rank(reported[i], count);
+        }
 
-        long sum = 0;
-        for (long latency : latencies) {
-            sum += latency;
+        long[] values = new long[reported.length];
+        if (reported.length <= QUICKSELECT_MAX_QUANTILES) {
+            // Ranks ascend, so everything left of the last one found can be skipped
+            int from = 0;
+            for (int i = 0; i < ranks.length; i++) {
+                select(latencies, from, count - 1, ranks[i]);
+                values[i] = latencies[ranks[i]];
+                from = ranks[i];
+            }
+        } else {
+            Arrays.parallelSort(latencies, 0, count);
+            for (int i = 0; i < ranks.length; i++) {
+                values[i] = latencies[ranks[i]];
+            }
         }
 
-        double mean = (double) sum / latencies.size();
-        long median = getPercentile(latencies, 50);
-        long p95 = getPercentile(latencies, 95);
-        long p99 = getPercentile(latencies, 99);
-        long min = latencies.get(0);
-        long max = latencies.get(latencies.size() - 1);
+        return new Statistics(count, mean, Math.sqrt(variance), min, max, reported, values);
+    }
 
-        return new Statistics(mean, median, p95, p99, min, max);
+    // Zero-based index of the nearest-rank percentile, matching LatencyHistogram's definition
+    private static int rank(double percentile, int count) {
+        long target = (long) Math.ceil(Math.min(Math.max(percentile, 0), 100) / 100.0 * count);
+        return (int) Math.max(0, Math.min(count, target) - 1);
     }
 
-    private static long getPercentile(List<Long> sortedValues, int percentile) {
-        if (sortedValues.isEmpty()) {
-            return 0;
+    // Hoare quickselect with a median-of-three pivot: afterwards a[k] holds the k-th smallest of
+    // a[lo..hi], with nothing larger to its left and nothing smaller to its right
+    private static void select(long[] a, int lo, int hi, int k) {
+        while (hi - lo > INSERTION_SORT_THRESHOLD) {
+            int mid = (lo + hi) >>> 1;
+            if (a[mid] < a[lo]) swap(a, mid, lo);
+            if (a[hi] < a[lo]) swap(a, hi, lo);
+            if (a[hi] < a[mid]) swap(a, hi, mid);
+            long pivot = a[mid];
+
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (a[i] < pivot) i++;
+                while (a[j] > pivot) j--;
+                if (i <= j) {
+                    swap(a, i++, j--);
+                }
+            }
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+        for (int i = lo + 1; i <= hi; i++) {
+            long value = a[i];
+            int j = i - 1;
+            while (j >= lo && a[j] > value) {
+                a[j + 1] = a[j];
+                j--;
+            }
+            a[j + 1] = value;
         }
-        
-        int index = (int) Math.ceil((percentile / 100.0) * sortedValues.size()) - 1;
-        index = Math.max(0, Math.min(index, sortedValues.size() - 1));
-        
-        return sortedValues.get(index);
+    }
+
+    private static void swap(long[] a, int i, int j) {
+        long t = a[i];
+        a[i] = a[j];
+        a[j] = t;
+    }
+
+    // Requested percentiles plus the ones Statistics always exposes, sorted and de-duplicated
+    private static double[] withRequired(double[] percentiles) {
+        double[] all = Arrays.copyOf(percentiles, percentiles.length + REQUIRED_PERCENTILES.length);
+        System.arraycopy(REQUIRED_PERCENTILES, 0, all, percentiles.length, REQUIRED_PERCENTILES.length);
+        return Arrays.stream(all).sorted().distinct().toArray();
+    }
+
+    // Microseconds as milliseconds to three places, e.g. 412 -> "0.412"
+    public static String formatMillis(double micros) {
+        return String.format("%.3f", micros / 1000.0);
     }
 
     public static class Statistics {
+        private final long count;
         private final double mean;
-        private final long median;
-        private final long p95;
-        private final long p99;
+        private final double stdDev;
         private final long min;
         private final long max;
+        // Ascending percentiles and their values, index for index
+        private final double[] percentiles;
+        private final long[] percentileValues;
 
         public Statistics() {
-            this(0, 0, 0, 0, 0, 0);
+            this(0, 0, 0, 0, 0, REQUIRED_PERCENTILES, new long[REQUIRED_PERCENTILES.length]);
         }
 
-        public Statistics(double mean, long median, long p95, long p99, long min, long max) {
+        public Statistics(long count, double mean, double stdDev, long min, long max,
+                          double[] percentiles, long[] percentileValues) {
+            this.count = count;
             this.mean = mean;
-            this.median = median;
-            this.p95 = p95;
-            this.p99 = p99;
+            this.stdDev = stdDev;
             this.min = min;
             this.max = max;
+            this.percentiles = percentiles;
+            this.percentileValues = percentileValues;
         }
 
+        public long getCount() { return count; }
         public double getMean() { return mean; }
-        public long getMedian() { return median; }
-        public long getP95() { return p95; }
-        public long getP99() { return p99; }
+        public double getStdDev() { return stdDev; }
+        public long getMedian() { return getPercentile(50); }
+        public long getP95() { return getPercentile(95); }
+        public long getP99() { return getPercentile(99); }
         public long getMin() { return min; }
         public long getMax() { return max; }
+        public double[] getPercentiles() { return percentiles.clone(); }
+
+        // Only percentiles passed to calculate (and p50/p95/p99) are available; all are 0 when empty
+        public long getPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            int i = Arrays.binarySearch(percentiles, percentile);
+            if (i < 0) {
+                throw new IllegalArgumentException("Percentile " + percentile + " was not calculated");
+            }
+            return percentileValues[i];
+        }
 
         @Override
         public String toString() {
             return String.format(
-                "Mean: %.2f ms, Median: %d ms, 95th: %d ms, 99th: %d ms, Min: %d ms, Max: %d ms",
-                mean, median, p95, p99, min, max
+                "Mean: %s ms, StdDev: %s ms, Median: %s ms, 95th: %s ms, 99th: %s ms, Min: %s ms, Max: %s ms",
+                formatMillis(mean), formatMillis(stdDev), formatMillis(getMedian()), formatMillis(getP95()),
+                formatMillis(getP99()), formatMillis(min), formatMillis(max)
             );
         }
     }
-}
\ No newline at end of file
+}
@@ -3,11 +3,13 @@ package com.chatflow.client.generator;
 import com.chatflow.client.model.ChatMessage;
 import java.time.Instant;
 import java.util.Random;
-import java.util.concurrent.BlockingQueue;
 
-public class MessageGenerator implements Runnable {
-    
-    private static final String[] MESSAGES = {
+// Shared message pools and room mapping; MessageShard generates the load test's stream from them
+public class MessageGenerator {
+
+    public static final int ROOM_COUNT = 20;
+
+    static final String[] MESSAGES = {
         "Hello everyone!", "How are you doing?", "Great to be here",
         "Anyone online?", "Let's discuss the project", "What's up?",
         "Good morning!", "Have a great day!", "See you later",
@@ -27,43 +29,8 @@ public class MessageGenerator implements Runnable {
         "All the best", "Good luck", "You too" 
     };
 
-    private final BlockingQueue<ChatMessage> messageQueue;
-    private final int totalMessages;
-    private final Random random;
-
-    public MessageGenerator(BlockingQueue<ChatMessage> messageQueue, int totalMessages) {
-        this.messageQueue = messageQueue;
-        this.totalMessages = totalMessages;
-        this.random = new Random();
-    }
-
-    @Override
-    public void run() {
-        System.out.println("MessageGenerator started - generating " + totalMessages + " messages...");
-        
-        try {
-            for (int i = 0; i < totalMessages; i++) {
-                ChatMessage message = generateMessage();
-                messageQueue.put(message);
-                
-                // Log progress every 50,000 messages
-                if ((i + 1) % 50000 == 0) {
-                    System.out.println("Generated " + (i + 1) + " messages...");
-                }
-            }
-            
-            System.out.println("MessageGenerator completed - " + totalMessages + " messages generated");
-            
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            System.err.println("MessageGenerator interrupted");
-        }
-    }
-
-    private ChatMessage generateMessage() {
-        // Generate random userId (1-100000)
-        int userId = random.nextInt(100000) + 1;
-        
+    // One message from the given user, with the same pools and room mapping as the generated stream
+    public static ChatMessage messageFor(int userId, String messageType, Random random) {
         // Generate username from userId
         String username = "user" + userId;
         
@@ -73,23 +40,12 @@ public class MessageGenerator implements Runnable {
         // Generate timestamp
         String timestamp = Instant.now().toString();
         
-        // Generate messageType (90% TEXT, 5% JOIN, 5% LEAVE)
-        String messageType = generateMessageType();
-        
-        // Generate random roomId (1-20)
-        String roomId = "room" + ((userId % 20) + 1);        
         return new ChatMessage(String.valueOf(userId), username, message,
-                             timestamp, messageType, roomId);
+                             timestamp, messageType, roomFor(userId));
     }
 
-    private String generateMessageType() {
-        int rand = random.nextInt(100);
-        if (rand < 90) {
-            return "TEXT";
-        } else if (rand < 95) {
-            return "JOIN";
-        } else {
-            return "LEAVE";
-        }
+    // Generate roomId (1-20) from userId
+    public static String roomFor(int userId) {
+        return "room" + ((userId % ROOM_COUNT) + 1);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,58 @@
+package com.chatflow.client.generator;
+
+import com.chatflow.client.metrics.MonotonicClock;
+import com.chatflow.client.model.ChatMessage;
+import java.time.Instant;
+import java.util.SplittableRandom;
+
+/**
+ * One worker's message source. Fills a ChatMessage the worker already owns, using userId, username
+ * and room strings built once for the whole client, so steady-state generation allocates nothing
+ * and no queue sits between generation and sending. The timestamp string is rebuilt only when the
+ * millisecond changes. Not thread-safe: each worker owns its shard.
+ */
+public class MessageShard {
+
+    private static final int USER_COUNT = 100000;
+    private static final String[] USER_IDS = new String[USER_COUNT + 1];
+    private static final String[] USERNAMES = new String[USER_COUNT + 1];
+    private static final String[] ROOMS = new String[MessageGenerator.ROOM_COUNT];
+
+    static {
+        for (int userId = 1; userId <= USER_COUNT; userId++) {
+            USER_IDS[userId] = String.valueOf(userId);
+            USERNAMES[userId] = "user" + userId;
+        }
+        for (int room = 0; room < ROOMS.length; room++) {
+            ROOMS[room] = "room" + (room + 1);
+        }
+    }
+
+    private final SplittableRandom random;
+    private long timestampMillis = Long.MIN_VALUE;
+    private String timestamp;
+
+    public MessageShard(SplittableRandom random) {
+        this.random = random;
+    }
+
+    // Same mix as MessageGenerator: random user 1-100000, their room, 90% TEXT / 5% JOIN / 5% LEAVE
+    public ChatMessage next(ChatMessage target) {
+        int userId = random.nextInt(USER_COUNT) + 1;
+        int roll = random.nextInt(100);
+        String messageType = roll < 90 ? "TEXT" : roll < 95 ? "JOIN" : "LEAVE";
+        String message = MessageGenerator.MESSAGES[random.nextInt(MessageGenerator.MESSAGES.length)];
+        target.reset(USER_IDS[userId], USERNAMES[userId], message, currentTimestamp(), messageType,
+                     ROOMS[userId % ROOMS.length]);
+        return target;
+    }
+
+    private String currentTimestamp() {
+        long now = MonotonicClock.currentTimeMillis();
+        if (now != timestampMillis) {
+            timestampMillis = now;
+            timestamp = Instant.ofEpochMilli(now).toString();
+        }
+        return timestamp;
+    }
+}
@@ -0,0 +1,171 @@
+package com.chatflow.client.generator;
+
+import com.chatflow.client.model.ChatMessage;
+import com.google.gson.Gson;
+import org.java_websocket.framing.TextFrame;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes a ChatMessage as the same JSON Gson would produce, without Gson. The text of every pooled
+ * message is rendered once, together with the keys around it, so each send only copies the
+ * variable fields (userId, username, timestamp, type, room and correlation id) into a reused
+ * buffer and hands that to the socket as a text frame, or as a CharSequence view over the same
+ * bytes for the JDK WebSocket. Messages outside the pool, or with fields that would need escaping,
+ * go through Gson instead. Not thread-safe: each sender owns one.
+ */
+public class PayloadEncoder {
+
+    private static final Gson GSON = new Gson();
+    private static final int BUFFER_BYTES = 1024;
+
+    private static final byte[] USER_ID_KEY = bytes("{\"userId\":\"");
+    private static final byte[] USERNAME_KEY = bytes("\",\"username\":\"");
+    private static final byte[] MESSAGE_TYPE_KEY = bytes("\",\"messageType\":\"");
+    private static final byte[] ROOM_ID_KEY = bytes("\",\"roomId\":\"");
+    private static final byte[] CORRELATION_ID_KEY = bytes("\",\"correlationId\":");
+    private static final byte[] END_AFTER_STRING = bytes("\"}");
+    private static final byte[] END_AFTER_NUMBER = bytes("}");
+
+    // Pooled message text -> `","message":"<escaped text>","timestamp":"`
+    private static final Map<String, byte[]> TEMPLATES = new HashMap<>();
+
+    static {
+        for (String message : MessageGenerator.MESSAGES) {
+            byte[] template = bytes("\",\"message\":" + GSON.toJson(message) + ",\"timestamp\":\"");
+            // Spliced payloads must be pure ASCII for the CharSequence view; others use Gson
+            if (isAscii(template)) {
+                TEMPLATES.put(message, template);
+            }
+        }
+    }
+
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+    private final TextFrame frame = new TextFrame();
+    private final AsciiView text = new AsciiView();
+    private final byte[] digits = new byte[20];
+
+    // The returned frame and its payload are overwritten by the next call
+    public TextFrame encode(ChatMessage message) {
+        frame.setPayload(trySplice(message) ? buffer : gsonPayload(message));
+        return frame;
+    }
+
+    // The returned text is overwritten by the next call, so it must be sent or copied before then
+    public CharSequence encodeText(ChatMessage message) {
+        return trySplice(message) ? text : GSON.toJson(message);
+    }
+
+    // On success the buffer holds the payload, flipped for reading
+    private boolean trySplice(ChatMessage message) {
+        buffer.clear();
+        try {
+            if (splice(message)) {
+                buffer.flip();
+                return true;
+            }
+        } catch (BufferOverflowException e) {
+            // Longer than any pooled message; Gson handles it
+        }
+        return false;
+    }
+
+    private boolean splice(ChatMessage message) {
+        byte[] template = TEMPLATES.get(message.getMessage());
+        if (template == null) {
+            return false;
+        }
+        buffer.put(USER_ID_KEY);
+        if (!putPlain(message.getUserId())) return false;
+        buffer.put(USERNAME_KEY);
+        if (!putPlain(message.getUsername())) return false;
+        buffer.put(template);
+        if (!putPlain(message.getTimestamp())) return false;
+        buffer.put(MESSAGE_TYPE_KEY);
+        if (!putPlain(message.getMessageType())) return false;
+        buffer.put(ROOM_ID_KEY);
+        if (!putPlain(message.getRoomId())) return false;
+
+        Long correlationId = message.getCorrelationId();
+        if (correlationId == null) {
+            buffer.put(END_AFTER_STRING);
+        } else {
+            buffer.put(CORRELATION_ID_KEY);
+            putDigits(correlationId);
+            buffer.put(END_AFTER_NUMBER);
+        }
+        return true;
+    }
+
+    // Copies a value that Gson would write unchanged; false if it is null or needs escaping
+    private boolean putPlain(String value) {
+        if (value == null) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x20 || c > 0x7E || c == '"' || c == '\\' ||
+                c == '<' || c == '>' || c == '&' || c == '=' || c == '\'') {
+                return false;
+            }
+            buffer.put((byte) c);
+        }
+        return true;
+    }
+
+    private void putDigits(long value) {
+        if (value < 0) {
+            buffer.put((byte) '-');
+        }
+        int start = digits.length;
+        do {
+            digits[--start] = (byte) ('0' + Math.abs(value % 10));
+            value /= 10;
+        } while (value != 0);
+        buffer.put(digits, start, digits.length - start);
+    }
+
+    private static ByteBuffer gsonPayload(ChatMessage message) {
+        return ByteBuffer.wrap(GSON.toJson(message).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static boolean isAscii(byte[] bytes) {
+        for (byte b : bytes) {
+            if (b < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    // The spliced payload as chars; every byte is ASCII, so each byte is one char
+    private class AsciiView implements CharSequence {
+        @Override
+        public int length() {
+            return buffer.limit();
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) buffer.get(index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().substring(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return new String(buffer.array(), 0, buffer.limit(), StandardCharsets.US_ASCII);
+        }
+    }
+}
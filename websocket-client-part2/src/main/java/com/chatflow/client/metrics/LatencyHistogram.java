@@ -0,0 +1,151 @@
+package com.chatflow.client.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Log-linear latency histogram in the HdrHistogram layout: values are bucketed by power of two and
+ * each bucket is split into 128 linear sub-buckets, so any recorded value is kept to within 1%.
+ * Memory is fixed by the trackable range, not by how many values are recorded. Recording is
+ * lock-free; a handful of threads can share one instance without much contention.
+ */
+public class LatencyHistogram {
+
+    // 2 significant digits: 2 * 10^2 = 200 distinct values per bucket, rounded up to 256
+    private static final int SUB_BUCKET_COUNT_MAGNITUDE = 8;
+    private static final int SUB_BUCKET_HALF_COUNT_MAGNITUDE = SUB_BUCKET_COUNT_MAGNITUDE - 1;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_COUNT_MAGNITUDE;
+    private static final int SUB_BUCKET_HALF_COUNT = SUB_BUCKET_COUNT / 2;
+    private static final long SUB_BUCKET_MASK = SUB_BUCKET_COUNT - 1;
+    private static final int LEADING_ZERO_COUNT_BASE = 64 - SUB_BUCKET_HALF_COUNT_MAGNITUDE - 1;
+
+    private final long highestTrackableValue;
+    private final AtomicLongArray counts;
+    private final AtomicLong totalCount;
+    private final AtomicLong sum;
+    private final AtomicLong min;
+    private final AtomicLong max;
+
+    // Values above highestTrackableValue are recorded as highestTrackableValue
+    public LatencyHistogram(long highestTrackableValue) {
+        this.highestTrackableValue = highestTrackableValue;
+        int bucketCount = 1;
+        long smallestUntrackable = SUB_BUCKET_COUNT;
+        while (smallestUntrackable <= highestTrackableValue) {
+            smallestUntrackable <<= 1;
+            bucketCount++;
+        }
+        this.counts = new AtomicLongArray((bucketCount + 1) * SUB_BUCKET_HALF_COUNT);
+        this.totalCount = new AtomicLong(0);
+        this.sum = new AtomicLong(0);
+        this.min = new AtomicLong(Long.MAX_VALUE);
+        this.max = new AtomicLong(0);
+    }
+
+    public void record(long value) {
+        long clamped = Math.max(0, Math.min(value, highestTrackableValue));
+        counts.incrementAndGet(countsIndex(clamped));
+        totalCount.incrementAndGet();
+        sum.addAndGet(clamped);
+        if (clamped < min.get()) {
+            min.accumulateAndGet(clamped, Math::min);
+        }
+        if (clamped > max.get()) {
+            max.accumulateAndGet(clamped, Math::max);
+        }
+    }
+
+    // Adds this histogram's counts into target, which must have the same trackable range
+    public void addTo(LatencyHistogram target) {
+        for (int i = 0; i < counts.length(); i++) {
+            long count = counts.get(i);
+            if (count != 0) {
+                target.counts.addAndGet(i, count);
+            }
+        }
+        target.totalCount.addAndGet(totalCount.get());
+        target.sum.addAndGet(sum.get());
+        target.min.accumulateAndGet(min.get(), Math::min);
+        target.max.accumulateAndGet(max.get(), Math::max);
+    }
+
+    public long getTotalCount() {
+        return totalCount.get();
+    }
+
+    public double getMean() {
+        long count = totalCount.get();
+        return count == 0 ? 0 : (double) sum.get() / count;
+    }
+
+    public long getMin() {
+        return totalCount.get() == 0 ? 0 : min.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    // Spread around the mean, with each bucket's values taken at the bucket's midpoint
+    public double getStdDeviation() {
+        long total = totalCount.get();
+        if (total == 0) {
+            return 0;
+        }
+        double mean = getMean();
+        double squares = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            long count = counts.get(i);
+            if (count != 0) {
+                double deviation = medianEquivalentValue(i) - mean;
+                squares += deviation * deviation * count;
+            }
+        }
+        return Math.sqrt(squares / total);
+    }
+
+    // Highest value equivalent to the recorded value at the percentile, as HdrHistogram reports it
+    public long getValueAtPercentile(double percentile) {
+        long total = totalCount.get();
+        if (total == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * total));
+        long cumulative = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            cumulative += counts.get(i);
+            if (cumulative >= target) {
+                return Math.min(highestEquivalentValue(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    private static int countsIndex(long value) {
+        int bucketIndex = LEADING_ZERO_COUNT_BASE - Long.numberOfLeadingZeros(value | SUB_BUCKET_MASK);
+        int subBucketIndex = (int) (value >>> bucketIndex);
+        return ((bucketIndex + 1) << SUB_BUCKET_HALF_COUNT_MAGNITUDE) + (subBucketIndex - SUB_BUCKET_HALF_COUNT);
+    }
+
+    private static long highestEquivalentValue(int index) {
+        return lowestEquivalentValue(index) + (1L << bucketIndexOf(index)) - 1;
+    }
+
+    private static long medianEquivalentValue(int index) {
+        return lowestEquivalentValue(index) + (1L << bucketIndexOf(index) >> 1);
+    }
+
+    private static long lowestEquivalentValue(int index) {
+        int bucketIndex = (index >> SUB_BUCKET_HALF_COUNT_MAGNITUDE) - 1;
+        int subBucketIndex = (index & (SUB_BUCKET_HALF_COUNT - 1)) + SUB_BUCKET_HALF_COUNT;
+        if (bucketIndex < 0) {
+            subBucketIndex -= SUB_BUCKET_HALF_COUNT;
+            bucketIndex = 0;
+        }
+        return (long) subBucketIndex << bucketIndex;
+    }
+
+    private static int bucketIndexOf(int index) {
+        return Math.max(0, (index >> SUB_BUCKET_HALF_COUNT_MAGNITUDE) - 1);
+    }
+}
@@ -1,84 +1,184 @@
 package com.chatflow.client.metrics;
 
-import com.chatflow.client.model.MessageMetric;
-import java.util.ArrayList;
-import java.util.List;
+import com.chatflow.client.model.ServerTiming;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Run-wide counters and latency distribution. Latencies go into striped log-linear histograms
+ * chosen by thread, and counts into LongAdders, so recording takes no lock and memory stays
+ * constant however long the run is. Stripes are merged when a report asks for them.
+ */
 public class MetricsCollector {
-    
-    private final List<MessageMetric> metrics;
-    private final AtomicInteger successCount;
-    private final AtomicInteger failureCount;
-    private final AtomicInteger totalConnections;
-    private final AtomicLong totalLatency;
-    private final ConcurrentHashMap<String, AtomicInteger> roomMessageCounts;
-    private final ConcurrentHashMap<String, AtomicInteger> messageTypeCounts;
+
+    // One hour, in microseconds; anything slower is recorded as one hour
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.HOURS.toMicros(1);
+
+    private final LatencyHistogram[] latencyStripes;
+    private final int stripeMask;
+    private final LongAdder successCount;
+    private final LongAdder failureCount;
+    private final LongAdder totalConnections;
+    private final LongAdder timedResponses;
+    private final LongAdder totalNetworkMicros;
+    private final LongAdder totalQueueMicros;
+    private final LongAdder totalParseMicros;
+    private final LongAdder totalValidateMicros;
+    private final LongAdder totalRecordMicros;
+    private final ConcurrentHashMap<String, LongAdder> roomMessageCounts;
+    private final ConcurrentHashMap<String, LongAdder> messageTypeCounts;
+    // Successful responses per second of send time, for the throughput chart
+    private final ConcurrentHashMap<Long, LongAdder> successesPerSecond;
+    // Raw per-message records, streamed to disk; null when the run keeps aggregates only
+    private final MetricsLog metricsLog;
 
     public MetricsCollector() {
-        this.metrics = new ArrayList<>();
-        this.successCount = new AtomicInteger(0);
-        this.failureCount = new AtomicInteger(0);
-        this.totalConnections = new AtomicInteger(0);
-        this.totalLatency = new AtomicLong(0);
+        this(null);
+    }
+
+    public MetricsCollector(MetricsLog metricsLog) {
+        // Virtual threads make per-thread histograms unbounded, so threads share a fixed set of stripes
+        int stripes = Integer.highestOneBit(Math.max(4, Runtime.getRuntime().availableProcessors() * 2) * 2 - 1);
+        this.latencyStripes = new LatencyHistogram[stripes];
+        for (int i = 0; i < stripes; i++) {
+            latencyStripes[i] = new LatencyHistogram(HIGHEST_TRACKABLE_MICROS);
+        }
+        this.stripeMask = stripes - 1;
+        this.successCount = new LongAdder();
+        this.failureCount = new LongAdder();
+        this.totalConnections = new LongAdder();
+        this.timedResponses = new LongAdder();
+        this.totalNetworkMicros = new LongAdder();
+        this.totalQueueMicros = new LongAdder();
+        this.totalParseMicros = new LongAdder();
+        this.totalValidateMicros = new LongAdder();
+        this.totalRecordMicros = new LongAdder();
         this.roomMessageCounts = new ConcurrentHashMap<>();
         this.messageTypeCounts = new ConcurrentHashMap<>();
+        this.successesPerSecond = new ConcurrentHashMap<>();
+        this.metricsLog = metricsLog;
     }
 
-    public synchronized void recordMessage(long timestamp, String messageType,
-                                          long latencyMs, boolean success, String roomId) {
-        MessageMetric metric = new MessageMetric(timestamp, messageType, latencyMs, success, roomId);
-        metrics.add(metric);
-        
-        if (success) {
-            successCount.incrementAndGet();
-            totalLatency.addAndGet(latencyMs);
-            
-            // Track per room
-            roomMessageCounts.computeIfAbsent(roomId, k -> new AtomicInteger(0)).incrementAndGet();
-            
-            // Track per message type
-            messageTypeCounts.computeIfAbsent(messageType, k -> new AtomicInteger(0)).incrementAndGet();
+    // sendNanos is a MonotonicClock reading; latencyNanos is from the same clock
+    public void recordMessage(long sendNanos, String messageType,
+                              long latencyNanos, boolean success, String roomId) {
+        long latencyMicros = TimeUnit.NANOSECONDS.toMicros(latencyNanos);
+        if (metricsLog != null) {
+            metricsLog.append(MonotonicClock.toEpochNanos(sendNanos), latencyMicros,
+                              success ? 200 : 500, messageType, roomId);
+        }
+        if (!success) {
+            return;
         }
+        successCount.increment();
+        stripe().record(latencyMicros);
+
+        // Track per room
+        roomMessageCounts.computeIfAbsent(roomId, k -> new LongAdder()).increment();
+
+        // Track per message type
+        messageTypeCounts.computeIfAbsent(messageType, k -> new LongAdder()).increment();
+
+        successesPerSecond.computeIfAbsent(MonotonicClock.toEpochMillis(sendNanos) / 1000,
+                                           k -> new LongAdder()).increment();
+    }
+
+    // Splits a round trip into network time and the server's own stage durations
+    public void recordServerTiming(long latencyNanos, ServerTiming timing) {
+        long networkMicros = Math.max(0, TimeUnit.NANOSECONDS.toMicros(latencyNanos) - timing.getTotalUs());
+        timedResponses.increment();
+        totalNetworkMicros.add(networkMicros);
+        totalQueueMicros.add(timing.getQueueUs());
+        totalParseMicros.add(timing.getParseUs());
+        totalValidateMicros.add(timing.getValidateUs());
+        totalRecordMicros.add(timing.getRecordUs());
     }
 
     public void recordFailedMessage() {
-        failureCount.incrementAndGet();
+        failureCount.increment();
     }
 
     public void recordConnection() {
-        totalConnections.incrementAndGet();
+        totalConnections.increment();
+    }
+
+    private LatencyHistogram stripe() {
+        long id = Thread.currentThread().getId();
+        // Spread sequential thread ids across stripes
+        return latencyStripes[(int) ((id * 0x9E3779B97F4A7C15L) >>> 32) & stripeMask];
     }
 
     public int getSuccessCount() {
-        return successCount.get();
+        return successCount.intValue();
     }
 
     public int getFailureCount() {
-        return failureCount.get();
+        return failureCount.intValue();
     }
 
     public int getTotalConnections() {
-        return totalConnections.get();
+        return totalConnections.intValue();
+    }
+
+    // Merged copy of every stripe, in microseconds; exact once recording threads have finished
+    public LatencyHistogram getLatencyHistogram() {
+        LatencyHistogram merged = new LatencyHistogram(HIGHEST_TRACKABLE_MICROS);
+        for (LatencyHistogram stripe : latencyStripes) {
+            stripe.addTo(merged);
+        }
+        return merged;
     }
 
-    public synchronized List<MessageMetric> getMetrics() {
-        return new ArrayList<>(metrics);
+    // Epoch second -> successful messages sent in that second, oldest first
+    public Map<Long, Long> getSuccessesPerSecond() {
+        Map<Long, Long> snapshot = new TreeMap<>();
+        successesPerSecond.forEach((second, count) -> snapshot.put(second, count.sum()));
+        return snapshot;
     }
 
-    public ConcurrentHashMap<String, AtomicInteger> getRoomMessageCounts() {
+    public ConcurrentHashMap<String, LongAdder> getRoomMessageCounts() {
         return roomMessageCounts;
     }
 
-    public ConcurrentHashMap<String, AtomicInteger> getMessageTypeCounts() {
+    public ConcurrentHashMap<String, LongAdder> getMessageTypeCounts() {
         return messageTypeCounts;
     }
 
+    // Microseconds
     public double getAverageLatency() {
-        int count = successCount.get();
+        return getLatencyHistogram().getMean();
+    }
+
+    public long getTimedResponseCount() {
+        return timedResponses.sum();
+    }
+
+    public double getAverageNetworkMicros() {
+        return average(totalNetworkMicros);
+    }
+
+    public double getAverageQueueMicros() {
+        return average(totalQueueMicros);
+    }
+
+    public double getAverageParseMicros() {
+        return average(totalParseMicros);
+    }
+
+    public double getAverageValidateMicros() {
+        return average(totalValidateMicros);
+    }
+
+    public double getAverageRecordMicros() {
+        return average(totalRecordMicros);
+    }
+
+    private double average(LongAdder total) {
+        long count = timedResponses.sum();
         if (count == 0) return 0;
-        return (double) totalLatency.get() / count;
+        return (double) total.sum() / count;
     }
-}
\ No newline at end of file
+}
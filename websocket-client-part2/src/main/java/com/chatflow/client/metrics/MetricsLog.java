@@ -0,0 +1,223 @@
+package com.chatflow.client.metrics;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Append-only binary log of every response, written while the test runs so raw per-message data
+ * never has to sit in the heap. Layout: a 16-byte header (magic, version, record size, created
+ * millis), then fixed 16-byte little-endian records: send time in epoch nanos, latency in micros,
+ * status code, message type ordinal and room number. MetricsLogAnalyzer turns it back into CSV.
+ */
+public class MetricsLog {
+
+    public static final int MAGIC = 0x43464D4C; // "CFML"
+    public static final short VERSION = 1;
+    public static final int HEADER_BYTES = 16;
+    public static final int RECORD_BYTES = 16;
+    // Index is the ordinal stored in each record; anything else is stored as UNKNOWN_TYPE
+    public static final String[] MESSAGE_TYPES = {"TEXT", "JOIN", "LEAVE"};
+    public static final int UNKNOWN_TYPE = 0xFF;
+
+    private static final int RECORDS_PER_BUFFER = 512;
+    private static final ByteBuffer END_OF_LOG = ByteBuffer.allocate(0);
+
+    private final Path path;
+    private final FileChannel channel;
+    private final Appender[] appenders;
+    private final int appenderMask;
+    private final BlockingQueue<ByteBuffer> fullBuffers;
+    private final ConcurrentLinkedQueue<ByteBuffer> freeBuffers;
+    private final AtomicLong recordsWritten;
+    private final Thread writerThread;
+    private volatile boolean closed;
+    private volatile IOException writeError;
+
+    private MetricsLog(Path path, FileChannel channel) {
+        this.path = path;
+        this.channel = channel;
+        // Striped like MetricsCollector's histograms so thousands of virtual threads share a few buffers
+        int stripes = Integer.highestOneBit(Math.max(4, Runtime.getRuntime().availableProcessors() * 2) * 2 - 1);
+        this.appenders = new Appender[stripes];
+        for (int i = 0; i < stripes; i++) {
+            appenders[i] = new Appender();
+        }
+        this.appenderMask = stripes - 1;
+        this.fullBuffers = new LinkedBlockingQueue<>();
+        this.freeBuffers = new ConcurrentLinkedQueue<>();
+        this.recordsWritten = new AtomicLong(0);
+        this.writerThread = new Thread(this::writeLoop, "MetricsLogWriter");
+        this.writerThread.setDaemon(true);
+    }
+
+    // Truncates any previous log at path and starts the writer thread
+    public static MetricsLog open(Path path) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                               StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putShort(VERSION).putShort((short) RECORD_BYTES).putLong(System.currentTimeMillis());
+        header.flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+
+        MetricsLog log = new MetricsLog(path, channel);
+        log.writerThread.start();
+        return log;
+    }
+
+    public void append(long sendEpochNanos, long latencyMicros, int statusCode, String messageType, String roomId) {
+        Appender appender = appenders[stripe()];
+        synchronized (appender) {
+            if (closed) {
+                // Late responses arriving after the run was torn down
+                return;
+            }
+            ByteBuffer buffer = appender.buffer;
+            buffer.putLong(sendEpochNanos)
+                  .putInt((int) Math.min(latencyMicros, Integer.MAX_VALUE))
+                  .putShort((short) statusCode)
+                  .put((byte) typeOrdinal(messageType))
+                  .put((byte) roomNumber(roomId));
+            if (!buffer.hasRemaining()) {
+                fullBuffers.add(buffer);
+                appender.buffer = takeFreeBuffer();
+            }
+        }
+    }
+
+    // Hands every partial buffer to the writer, waits for it to drain and closes the file
+    public void close() {
+        if (closed) {
+            return;
+        }
+        // Appends already holding a stripe's lock finish before that stripe is flushed below
+        closed = true;
+        for (Appender appender : appenders) {
+            synchronized (appender) {
+                if (appender.buffer.position() > 0) {
+                    fullBuffers.add(appender.buffer);
+                }
+            }
+        }
+        fullBuffers.add(END_OF_LOG);
+        try {
+            writerThread.join();
+            channel.force(false);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            writeError = e;
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.err.println("Error closing metrics log: " + e.getMessage());
+            }
+        }
+
+        if (writeError != null) {
+            System.err.println("Metrics log " + path + " is incomplete: " + writeError.getMessage());
+        } else {
+            System.out.println("Metrics log written to: " + path + " (" + recordsWritten.get() + " records)");
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long getRecordsWritten() {
+        return recordsWritten.get();
+    }
+
+    private void writeLoop() {
+        while (true) {
+            ByteBuffer buffer;
+            try {
+                buffer = fullBuffers.poll(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (buffer == null) {
+                continue;
+            }
+            if (buffer == END_OF_LOG) {
+                return;
+            }
+
+            buffer.flip();
+            int records = buffer.remaining() / RECORD_BYTES;
+            try {
+                if (writeError == null) {
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                    recordsWritten.addAndGet(records);
+                }
+            } catch (IOException e) {
+                // Keep draining so appenders never block; the log is reported incomplete on close
+                writeError = e;
+            }
+            buffer.clear();
+            freeBuffers.add(buffer);
+        }
+    }
+
+    private ByteBuffer takeFreeBuffer() {
+        ByteBuffer buffer = freeBuffers.poll();
+        return buffer != null ? buffer : newBuffer();
+    }
+
+    private static ByteBuffer newBuffer() {
+        return ByteBuffer.allocateDirect(RECORDS_PER_BUFFER * RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private int stripe() {
+        long id = Thread.currentThread().getId();
+        return (int) ((id * 0x9E3779B97F4A7C15L) >>> 32) & appenderMask;
+    }
+
+    static int typeOrdinal(String messageType) {
+        for (int i = 0; i < MESSAGE_TYPES.length; i++) {
+            if (MESSAGE_TYPES[i].equals(messageType)) {
+                return i;
+            }
+        }
+        return UNKNOWN_TYPE;
+    }
+
+    // "room7" -> 7; 0 when the id has no numeric suffix or it does not fit a byte
+    static int roomNumber(String roomId) {
+        if (roomId == null) {
+            return 0;
+        }
+        int start = roomId.length();
+        while (start > 0 && Character.isDigit(roomId.charAt(start - 1))) {
+            start--;
+        }
+        if (start == roomId.length() || roomId.length() - start > 3) {
+            return 0;
+        }
+        int number = Integer.parseInt(roomId.substring(start));
+        return number > 0xFF ? 0 : number;
+    }
+
+    // One stripe's current buffer; guarded by the Appender's monitor
+    private static class Appender {
+        private ByteBuffer buffer = newBuffer();
+    }
+}
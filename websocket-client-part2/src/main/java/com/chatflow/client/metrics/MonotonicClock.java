@@ -0,0 +1,26 @@
+package com.chatflow.client.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+// Every client interval is measured with System.nanoTime(); the wall clock is read once, at class
+// load, so records that need a date can be placed on it without mixing clocks in a latency
+public final class MonotonicClock {
+    private static final long ANCHOR_NANO_TIME = System.nanoTime();
+    private static final long ANCHOR_EPOCH_NANOS = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+
+    private MonotonicClock() {
+    }
+
+    // Wall-clock millis that advance with nanoTime, immune to NTP steps during a run
+    public static long currentTimeMillis() {
+        return toEpochMillis(System.nanoTime());
+    }
+
+    public static long toEpochNanos(long nanoTime) {
+        return ANCHOR_EPOCH_NANOS + (nanoTime - ANCHOR_NANO_TIME);
+    }
+
+    public static long toEpochMillis(long nanoTime) {
+        return TimeUnit.NANOSECONDS.toMillis(toEpochNanos(nanoTime));
+    }
+}
@@ -7,6 +7,8 @@ public class ChatMessage {
     private String timestamp;
     private String messageType;
     private String roomId;
+    // Set per send attempt in pipelined mode; the server echoes it in the response
+    private Long correlationId;
 
     public ChatMessage(String userId, String username, String message,
                        String timestamp, String messageType, String roomId) {
@@ -18,6 +20,22 @@ public class ChatMessage {
         this.roomId = roomId;
     }
 
+    // Empty message for a worker to fill and reuse through reset()
+    public ChatMessage() {
+    }
+
+    // Refills every field in place and clears the previous attempt's correlation id
+    public void reset(String userId, String username, String message,
+                      String timestamp, String messageType, String roomId) {
+        this.userId = userId;
+        this.username = username;
+        this.message = message;
+        this.timestamp = timestamp;
+        this.messageType = messageType;
+        this.roomId = roomId;
+        this.correlationId = null;
+    }
+
     // Getters
     public String getUserId() { return userId; }
     public String getUsername() { return username; }
@@ -25,6 +43,9 @@ public class ChatMessage {
     public String getTimestamp() { return timestamp; }
     public String getMessageType() { return messageType; }
     public String getRoomId() { return roomId; }
+    public Long getCorrelationId() { return correlationId; }
+
+    public void setCorrelationId(Long correlationId) { this.correlationId = correlationId; }
 
     @Override
     public String toString() {
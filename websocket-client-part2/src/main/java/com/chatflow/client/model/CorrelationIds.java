@@ -0,0 +1,28 @@
+package com.chatflow.client.model;
+
+// Reads the correlationId the server echoes, without a full JSON parse
+public final class CorrelationIds {
+    private static final String FIELD = "\"correlationId\":";
+
+    private CorrelationIds() {
+    }
+
+    // -1 when the response carries no id
+    public static long read(String response) {
+        int index = response.indexOf(FIELD);
+        if (index < 0) {
+            return -1;
+        }
+        long value = 0;
+        boolean found = false;
+        for (int i = index + FIELD.length(); i < response.length(); i++) {
+            char c = response.charAt(i);
+            if (c < '0' || c > '9') {
+                break;
+            }
+            value = value * 10 + (c - '0');
+            found = true;
+        }
+        return found ? value : -1;
+    }
+}
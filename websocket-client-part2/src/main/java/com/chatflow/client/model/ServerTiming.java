@@ -0,0 +1,62 @@
+package com.chatflow.client.model;
+
+public class ServerTiming {
+    private static final String QUEUE_FIELD = "\"queueUs\":";
+    private static final String PARSE_FIELD = "\"parseUs\":";
+    private static final String VALIDATE_FIELD = "\"validateUs\":";
+    private static final String RECORD_FIELD = "\"recordUs\":";
+
+    private final int queueUs;
+    private final int parseUs;
+    private final int validateUs;
+    private final int recordUs;
+
+    public ServerTiming(int queueUs, int parseUs, int validateUs, int recordUs) {
+        this.queueUs = queueUs;
+        this.parseUs = parseUs;
+        this.validateUs = validateUs;
+        this.recordUs = recordUs;
+    }
+
+    // Pulls the "timing" object out of a server response without a full JSON parse
+    public static ServerTiming fromResponse(String response) {
+        int timingStart = response.indexOf("\"timing\":{");
+        if (timingStart < 0) {
+            return null;
+        }
+
+        int queueUs = readInt(response, QUEUE_FIELD, timingStart);
+        int parseUs = readInt(response, PARSE_FIELD, timingStart);
+        int validateUs = readInt(response, VALIDATE_FIELD, timingStart);
+        int recordUs = readInt(response, RECORD_FIELD, timingStart);
+        if (queueUs < 0 || parseUs < 0 || validateUs < 0 || recordUs < 0) {
+            return null;
+        }
+        return new ServerTiming(queueUs, parseUs, validateUs, recordUs);
+    }
+
+    private static int readInt(String json, String field, int from) {
+        int index = json.indexOf(field, from);
+        if (index < 0) {
+            return -1;
+        }
+
+        int value = 0;
+        boolean found = false;
+        for (int i = index + field.length(); i < json.length(); i++) {
+            char c = json.charAt(i);
+            if (c < '0' || c > '9') {
+                break;
+            }
+            value = value * 10 + (c - '0');
+            found = true;
+        }
+        return found ? value : -1;
+    }
+
+    public int getQueueUs() { return queueUs; }
+    public int getParseUs() { return parseUs; }
+    public int getValidateUs() { return validateUs; }
+    public int getRecordUs() { return recordUs; }
+    public int getTotalUs() { return queueUs + parseUs + validateUs + recordUs; }
+}
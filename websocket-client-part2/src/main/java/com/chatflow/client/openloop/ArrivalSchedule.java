@@ -0,0 +1,81 @@
+package com.chatflow.client.openloop;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Intended send times for an open-loop run, as nanosecond offsets from the start. The schedule
+ * never looks at responses, so a stalled server cannot slow the arrival rate down.
+ */
+public class ArrivalSchedule {
+
+    public enum Kind { FIXED, RAMP, POISSON }
+
+    private final Kind kind;
+    private final double startRate;
+    private final double endRate;
+    private final double durationSeconds;
+    private final long total;
+    private final Random random;
+    private long issued;
+    private double lastSeconds;
+
+    // startRate only applies to RAMP, which climbs linearly from startRate to rate over the duration
+    public ArrivalSchedule(Kind kind, double startRate, double rate, long durationSeconds, long seed) {
+        this.kind = kind;
+        this.startRate = kind == Kind.RAMP ? startRate : rate;
+        this.endRate = rate;
+        this.durationSeconds = durationSeconds;
+        this.total = (long) ((this.startRate + endRate) / 2 * durationSeconds);
+        this.random = new Random(seed);
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public boolean hasNext() {
+        return issued < total;
+    }
+
+    public long nextOffsetNanos() {
+        long i = issued++;
+        double seconds;
+        switch (kind) {
+            case POISSON:
+                // Exponential gaps give Poisson arrivals at the mean rate
+                seconds = lastSeconds - Math.log(1 - random.nextDouble()) / endRate;
+                break;
+            case RAMP:
+                seconds = rampTime(i);
+                break;
+            default:
+                seconds = i / endRate;
+                break;
+        }
+        lastSeconds = seconds;
+        return (long) (seconds * TimeUnit.SECONDS.toNanos(1));
+    }
+
+    // Solves startRate*t + (endRate-startRate)*t^2/(2*duration) = i for t
+    private double rampTime(long i) {
+        double a = (endRate - startRate) / (2 * durationSeconds);
+        if (Math.abs(a) < 1e-12) {
+            return i / startRate;
+        }
+        double b = startRate;
+        return (-b + Math.sqrt(b * b + 4 * a * i)) / (2 * a);
+    }
+
+    @Override
+    public String toString() {
+        switch (kind) {
+            case RAMP:
+                return "ramp " + (long) startRate + " -> " + (long) endRate + " msg/s";
+            case POISSON:
+                return "poisson " + (long) endRate + " msg/s";
+            default:
+                return "fixed " + (long) endRate + " msg/s";
+        }
+    }
+}
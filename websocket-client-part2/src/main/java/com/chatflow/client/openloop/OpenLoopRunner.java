@@ -0,0 +1,234 @@
+package com.chatflow.client.openloop;
+
+import com.chatflow.client.generator.MessageGenerator;
+import com.chatflow.client.generator.PayloadEncoder;
+import com.chatflow.client.metrics.LatencyHistogram;
+import com.chatflow.client.metrics.MetricsCollector;
+import com.chatflow.client.model.ChatMessage;
+import com.chatflow.client.model.CorrelationIds;
+import com.chatflow.client.model.ServerTiming;
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.framing.TextFrame;
+import org.java_websocket.handshake.ServerHandshake;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Constant-arrival-rate load: a scheduler thread sends each message at its intended time from an
+ * ArrivalSchedule, whether or not earlier ones were answered. Latency is measured twice, from the
+ * intended send time (corrected for coordinated omission) and from the actual send, and reported
+ * side by side. The gap between them is time a closed-loop client would never have seen. Both go
+ * into fixed-size histograms, so memory does not grow with the length of the run.
+ */
+public class OpenLoopRunner {
+
+    private static final int ROOMS = 20;
+    private static final long RESPONSE_TIMEOUT_MS = 5000;
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.HOURS.toMicros(1);
+
+    private final String serverUrl;
+    private final ArrivalSchedule schedule;
+    private final int connectionsPerRoom;
+    private final MetricsCollector metricsCollector;
+    private final PayloadEncoder payloadEncoder;
+    private final Map<Long, Pending> pending;
+    private final AtomicInteger answered;
+    private final LatencyHistogram corrected;
+    private final LatencyHistogram uncorrected;
+
+    private long maxScheduleLagNanos;
+
+    public OpenLoopRunner(String serverUrl, ArrivalSchedule schedule, int connectionsPerRoom,
+                          MetricsCollector metricsCollector) {
+        this.serverUrl = serverUrl;
+        this.schedule = schedule;
+        this.connectionsPerRoom = Math.max(1, connectionsPerRoom);
+        this.metricsCollector = metricsCollector;
+        this.payloadEncoder = new PayloadEncoder();
+        this.pending = new ConcurrentHashMap<>();
+        this.answered = new AtomicInteger(0);
+        this.corrected = new LatencyHistogram(HIGHEST_TRACKABLE_MICROS);
+        this.uncorrected = new LatencyHistogram(HIGHEST_TRACKABLE_MICROS);
+    }
+
+    public void run() throws InterruptedException {
+        List<List<OpenLoopClient>> rooms = connect();
+        System.out.println("Open-loop schedule: " + schedule + ", " + schedule.getTotal() + " messages over " +
+                         ROOMS * connectionsPerRoom + " connections");
+
+        Random random = new Random();
+        int[] nextConnection = new int[ROOMS];
+        long start = System.nanoTime();
+        int sent = 0;
+        while (schedule.hasNext()) {
+            long intended = start + schedule.nextOffsetNanos();
+            long wait;
+            while ((wait = intended - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+
+            int userId = random.nextInt(100000) + 1;
+            int room = userId % ROOMS;
+            ChatMessage message = MessageGenerator.messageFor(userId, "TEXT", random);
+            long correlationId = sent++;
+            message.setCorrelationId(correlationId);
+            TextFrame frame = payloadEncoder.encode(message);
+
+            List<OpenLoopClient> connections = rooms.get(room);
+            OpenLoopClient client = connections.get(nextConnection[room]++ % connections.size());
+            long actual = System.nanoTime();
+            maxScheduleLagNanos = Math.max(maxScheduleLagNanos, actual - intended);
+            pending.put(correlationId, new Pending(message, intended, actual));
+            try {
+                client.sendFrame(frame);
+            } catch (Exception e) {
+                // Left pending, so the slot is counted unanswered with the rest; the schedule does not wait
+            }
+        }
+        long scheduleNanos = System.nanoTime() - start;
+
+        // Responses still in flight get the usual timeout before they count as lost
+        long drainDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(RESPONSE_TIMEOUT_MS);
+        while (!pending.isEmpty() && drainDeadline - System.nanoTime() > 0) {
+            Thread.sleep(10);
+        }
+
+        // Closed before counting, so no late response is recorded after its message counts as lost
+        for (List<OpenLoopClient> connections : rooms) {
+            for (OpenLoopClient client : connections) {
+                client.closeBlocking();
+            }
+        }
+        // Whoever removes an entry owns it, the same as complete(), so none is counted twice. A user
+        // never got an answer, so the corrected figures keep it at the time it was given up on
+        int unanswered = 0;
+        long givenUpNanos = System.nanoTime();
+        for (Long correlationId : pending.keySet()) {
+            Pending lost = pending.remove(correlationId);
+            if (lost != null) {
+                unanswered++;
+                corrected.record(TimeUnit.NANOSECONDS.toMicros(givenUpNanos - lost.intendedNanos));
+                metricsCollector.recordFailedMessage();
+            }
+        }
+        report(sent, scheduleNanos, unanswered);
+    }
+
+    private List<List<OpenLoopClient>> connect() throws InterruptedException {
+        List<List<OpenLoopClient>> rooms = new ArrayList<>(ROOMS);
+        for (int room = 0; room < ROOMS; room++) {
+            List<OpenLoopClient> connections = new ArrayList<>(connectionsPerRoom);
+            for (int c = 0; c < connectionsPerRoom; c++) {
+                OpenLoopClient client = new OpenLoopClient(URI.create(serverUrl + "room" + (room + 1)));
+                if (!client.connectBlocking(5, TimeUnit.SECONDS)) {
+                    throw new IllegalStateException("Could not connect to " + client.getURI());
+                }
+                metricsCollector.recordConnection();
+                connections.add(client);
+            }
+            rooms.add(connections);
+        }
+        return rooms;
+    }
+
+    // Runs on a connection's read thread
+    private void complete(String response, long receivedNanos) {
+        long correlationId = CorrelationIds.read(response);
+        Pending sent = correlationId < 0 ? null : pending.remove(correlationId);
+        if (sent == null) {
+            return;
+        }
+
+        long uncorrectedNanos = receivedNanos - sent.actualNanos;
+        corrected.record(TimeUnit.NANOSECONDS.toMicros(receivedNanos - sent.intendedNanos));
+        uncorrected.record(TimeUnit.NANOSECONDS.toMicros(uncorrectedNanos));
+        answered.incrementAndGet();
+
+        boolean success = response.contains("\"status\":\"success\"");
+        ChatMessage message = sent.message;
+        metricsCollector.recordMessage(sent.actualNanos, message.getMessageType(), uncorrectedNanos, success,
+                                      message.getRoomId());
+        ServerTiming timing = ServerTiming.fromResponse(response);
+        if (timing != null) {
+            metricsCollector.recordServerTiming(uncorrectedNanos, timing);
+        }
+        if (!success) {
+            metricsCollector.recordFailedMessage();
+        }
+    }
+
+    private void report(int sent, long scheduleNanos, int unanswered) {
+        // Read after the connections closed, so no response is still being recorded
+        int count = answered.get();
+
+        System.out.println("\n=== OPEN-LOOP LATENCY ===");
+        System.out.println("Schedule: " + schedule);
+        System.out.println("Sent: " + sent + " at " + String.format("%.1f", sent / (scheduleNanos / 1e9)) +
+                         " msg/s, answered: " + count + ", unanswered: " + unanswered);
+        System.out.println("Max scheduler lag: " + String.format("%.2f", maxScheduleLagNanos / 1e6) + " ms");
+        System.out.println(String.format("%-10s %16s %18s", "Percentile", "Corrected (ms)", "Uncorrected (ms)"));
+        for (double percentile : new double[] {50, 90, 99, 99.9, 100}) {
+            System.out.println(String.format("%-10s %16.3f %18.3f",
+                                             percentile == 100 ? "max" : "p" + trim(percentile),
+                                             percentileMillis(corrected, percentile),
+                                             percentileMillis(uncorrected, percentile)));
+        }
+        System.out.println("Corrected figures include unanswered messages at the time they were given up on; " +
+                         "uncorrected ones cover answered messages only");
+        System.out.println("Latency CSVs and charts use the uncorrected figures (from the actual send)");
+    }
+
+    private static double percentileMillis(LatencyHistogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    private static String trim(double value) {
+        return value == (long) value ? String.valueOf((long) value) : String.valueOf(value);
+    }
+
+    private static class Pending {
+        final ChatMessage message;
+        final long intendedNanos;
+        final long actualNanos;
+
+        Pending(ChatMessage message, long intendedNanos, long actualNanos) {
+            this.message = message;
+            this.intendedNanos = intendedNanos;
+            this.actualNanos = actualNanos;
+        }
+    }
+
+    private class OpenLoopClient extends WebSocketClient {
+
+        OpenLoopClient(URI serverUri) {
+            super(serverUri);
+            setConnectionLostTimeout(0);
+        }
+
+        @Override
+        public void onMessage(String response) {
+            complete(response, System.nanoTime());
+        }
+
+        @Override
+        public void onOpen(ServerHandshake handshake) {
+        }
+
+        @Override
+        public void onClose(int code, String reason, boolean remote) {
+        }
+
+        @Override
+        public void onError(Exception ex) {
+            System.err.println("Open-loop connection error on " + getURI() + ": " + ex.getMessage());
+        }
+    }
+}
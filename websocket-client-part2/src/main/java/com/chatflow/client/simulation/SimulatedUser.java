@@ -0,0 +1,150 @@
+package com.chatflow.client.simulation;
+
+import com.chatflow.client.generator.MessageGenerator;
+import com.chatflow.client.metrics.MetricsCollector;
+import com.chatflow.client.model.ChatMessage;
+import com.chatflow.client.model.ServerTiming;
+import com.google.gson.Gson;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One simulated user: its own connection, JOIN, then TEXT messages separated by think time until
+ * the deadline, then LEAVE. Written as plain blocking code so each user can be a virtual thread;
+ * the JDK WebSocket keeps no thread per connection, unlike Java-WebSocket's read/write threads.
+ */
+public class SimulatedUser implements Runnable {
+
+    private static final int RESPONSE_TIMEOUT_MS = 5000;
+    private static final Gson GSON = new Gson();
+
+    private final int userId;
+    private final String serverUrl;
+    private final HttpClient httpClient;
+    private final MetricsCollector metricsCollector;
+    private final long meanThinkMs;
+    private final long deadlineNanos;
+    private final UserSimulation.Stats stats;
+
+    private volatile CompletableFuture<String> pendingResponse;
+    // Set by the listener before it completes pendingResponse, so it is visible once get() returns
+    private volatile long responseNanos;
+
+    public SimulatedUser(int userId, String serverUrl, HttpClient httpClient,
+                         MetricsCollector metricsCollector, long meanThinkMs, long deadlineNanos,
+                         UserSimulation.Stats stats) {
+        this.userId = userId;
+        this.serverUrl = serverUrl;
+        this.httpClient = httpClient;
+        this.metricsCollector = metricsCollector;
+        this.meanThinkMs = meanThinkMs;
+        this.deadlineNanos = deadlineNanos;
+        this.stats = stats;
+    }
+
+    @Override
+    public void run() {
+        WebSocket socket;
+        try {
+            socket = httpClient.newWebSocketBuilder()
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .buildAsync(URI.create(serverUrl + MessageGenerator.roomFor(userId)), new ResponseListener())
+                    .get(15, TimeUnit.SECONDS);
+            metricsCollector.recordConnection();
+            stats.userConnected();
+        } catch (Exception e) {
+            stats.connectFailed();
+            return;
+        }
+
+        try {
+            send(socket, "JOIN");
+            while (deadlineNanos - System.nanoTime() > 0) {
+                think();
+                send(socket, "TEXT");
+            }
+            send(socket, "LEAVE");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // The connection is gone; this user stops, the rest carry on
+        } finally {
+            stats.userFinished();
+            socket.abort();
+        }
+    }
+
+    // Exponential think time around the mean, so users do not fire in lockstep
+    private void think() throws InterruptedException {
+        long thinkMs = (long) (-meanThinkMs * Math.log(1 - ThreadLocalRandom.current().nextDouble()));
+        thinkMs = Math.min(thinkMs, Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime())));
+        long wakeAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(thinkMs);
+        Thread.sleep(thinkMs);
+        // How late the scheduler woke us; grows when the client's carriers are saturated
+        stats.recordWakeLag(Math.max(0, System.nanoTime() - wakeAt));
+    }
+
+    private void send(WebSocket socket, String messageType) throws Exception {
+        ChatMessage message = MessageGenerator.messageFor(userId, messageType, ThreadLocalRandom.current());
+        CompletableFuture<String> response = new CompletableFuture<>();
+        pendingResponse = response;
+
+        long sendNanos = System.nanoTime();
+        String body;
+        try {
+            socket.sendText(GSON.toJson(message), true).get(RESPONSE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            body = response.get(RESPONSE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            // A failed send, a timeout and a connection error (onError) all lose this message
+            metricsCollector.recordFailedMessage();
+            throw e;
+        }
+        long latencyNanos = responseNanos - sendNanos;
+
+        boolean success = body.contains("\"status\":\"success\"");
+        metricsCollector.recordMessage(sendNanos, messageType, latencyNanos, success, message.getRoomId());
+        ServerTiming timing = ServerTiming.fromResponse(body);
+        if (timing != null) {
+            metricsCollector.recordServerTiming(latencyNanos, timing);
+        }
+        if (!success) {
+            metricsCollector.recordFailedMessage();
+        }
+    }
+
+    // Reassembles fragmented text frames and completes the outstanding request
+    private class ResponseListener implements WebSocket.Listener {
+        private final StringBuilder partial = new StringBuilder();
+
+        @Override
+        public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+            partial.append(data);
+            if (last) {
+                long receivedNanos = System.nanoTime();
+                CompletableFuture<String> response = pendingResponse;
+                if (response != null) {
+                    responseNanos = receivedNanos;
+                    response.complete(partial.toString());
+                }
+                partial.setLength(0);
+            }
+            webSocket.request(1);
+            return null;
+        }
+
+        @Override
+        public void onError(WebSocket webSocket, Throwable error) {
+            CompletableFuture<String> response = pendingResponse;
+            if (response != null) {
+                response.completeExceptionally(error);
+            }
+        }
+    }
+}
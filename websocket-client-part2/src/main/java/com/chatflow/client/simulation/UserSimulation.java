@@ -0,0 +1,226 @@
+package com.chatflow.client.simulation;
+
+import com.chatflow.client.metrics.MetricsCollector;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.net.http.HttpClient;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Runs one thread per simulated user: a virtual thread when the JVM has them (21+), otherwise a
+ * small-stack platform thread. Reports the client's own CPU use so a saturated client is not
+ * mistaken for a slow server.
+ */
+public class UserSimulation {
+
+    private static final long REPORT_INTERVAL_MS = 5000;
+    private static final long PLATFORM_STACK_BYTES = 256 * 1024;
+    // Virtual threads run on the default scheduler's ForkJoinPool workers
+    private static final Pattern CARRIER_NAME = Pattern.compile("ForkJoinPool-\\d+-worker-\\d+");
+    private static final String PLATFORM_USER_PREFIX = "SimUser-";
+    // The HttpClient's own selector thread, plus the executor below that runs its listeners
+    private static final Pattern HTTP_SELECTOR_NAME = Pattern.compile("HttpClient-\\d+-SelectorManager");
+    private static final String HTTP_EXECUTOR_PREFIX = "SimHttp-";
+
+    private final String serverUrl;
+    private final int users;
+    private final long meanThinkMs;
+    private final long durationMs;
+    private final long rampMs;
+    private final MetricsCollector metricsCollector;
+    private final Stats stats;
+
+    public UserSimulation(String serverUrl, int users, long meanThinkMs, long durationMs, long rampMs,
+                          MetricsCollector metricsCollector) {
+        this.serverUrl = serverUrl;
+        this.users = users;
+        this.meanThinkMs = meanThinkMs;
+        this.durationMs = durationMs;
+        this.rampMs = rampMs;
+        this.metricsCollector = metricsCollector;
+        this.stats = new Stats();
+    }
+
+    public void run() throws InterruptedException {
+        boolean virtual = true;
+        ExecutorService executor = newVirtualThreadExecutor();
+        if (executor == null) {
+            virtual = false;
+            System.out.println("Virtual threads are not available on Java " + Runtime.version().feature() +
+                             "; each user gets a platform thread instead");
+            executor = Executors.newCachedThreadPool(platformUserThreads());
+        }
+
+        // Named threads, so the sampler can tell the client's socket work apart from the users'
+        ExecutorService httpExecutor = Executors.newFixedThreadPool(
+                Math.max(2, Runtime.getRuntime().availableProcessors()), httpClientThreads());
+        HttpClient httpClient = HttpClient.newBuilder().executor(httpExecutor).build();
+        CpuSampler sampler = new CpuSampler(virtual);
+        long rampStart = System.nanoTime();
+        long deadline = rampStart + TimeUnit.MILLISECONDS.toNanos(rampMs + durationMs);
+        long nextReport = rampStart + TimeUnit.MILLISECONDS.toNanos(REPORT_INTERVAL_MS);
+
+        System.out.println("Starting " + users + " simulated users on " + (virtual ? "virtual" : "platform") +
+                         " threads, think time ~" + meanThinkMs + "ms, ramp " + rampMs + "ms, hold " +
+                         durationMs + "ms");
+
+        // Users start evenly across the ramp so connections do not arrive as one burst
+        for (int i = 0; i < users; i++) {
+            long due = rampStart + TimeUnit.MILLISECONDS.toNanos(rampMs) * i / users;
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+            int userId = i % 100000 + 1;
+            executor.execute(new SimulatedUser(userId, serverUrl, httpClient, metricsCollector,
+                                               meanThinkMs, deadline, stats));
+            if (System.nanoTime() - nextReport >= 0) {
+                report(sampler);
+                nextReport += TimeUnit.MILLISECONDS.toNanos(REPORT_INTERVAL_MS);
+            }
+        }
+
+        executor.shutdown();
+        while (!executor.awaitTermination(REPORT_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+            report(sampler);
+        }
+        report(sampler);
+        httpExecutor.shutdown();
+        System.out.println("Simulated users finished: " + stats.finished.get() + " completed, " +
+                         stats.connectFailures.get() + " failed to connect");
+    }
+
+    private void report(CpuSampler sampler) {
+        sampler.sample();
+        System.out.println(String.format("Users active: %d | messages ok: %d | %s utilization: %.1f%% | " +
+                                         "http-client utilization: %.1f%% | mean wake-up lag: %.2f ms",
+                                         stats.active.get(), metricsCollector.getSuccessCount(),
+                                         sampler.label(), sampler.userUtilization * 100,
+                                         sampler.httpUtilization * 100, stats.meanWakeLagMillis()));
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor() by reflection, so the client still builds for Java 11
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static ThreadFactory platformUserThreads() {
+        AtomicInteger counter = new AtomicInteger(0);
+        return task -> {
+            Thread thread = new Thread(null, task, PLATFORM_USER_PREFIX + counter.incrementAndGet(),
+                                       PLATFORM_STACK_BYTES);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static ThreadFactory httpClientThreads() {
+        AtomicInteger counter = new AtomicInteger(0);
+        return task -> {
+            Thread thread = new Thread(task, HTTP_EXECUTOR_PREFIX + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    // Shared counters updated by every user
+    static class Stats {
+        private final AtomicInteger active = new AtomicInteger(0);
+        private final AtomicInteger finished = new AtomicInteger(0);
+        private final AtomicInteger connectFailures = new AtomicInteger(0);
+        private final AtomicLong wakeLagNanos = new AtomicLong(0);
+        private final AtomicLong wakeUps = new AtomicLong(0);
+
+        void userConnected() {
+            active.incrementAndGet();
+        }
+
+        void userFinished() {
+            active.decrementAndGet();
+            finished.incrementAndGet();
+        }
+
+        void connectFailed() {
+            connectFailures.incrementAndGet();
+        }
+
+        void recordWakeLag(long nanos) {
+            wakeLagNanos.addAndGet(nanos);
+            wakeUps.incrementAndGet();
+        }
+
+        double meanWakeLagMillis() {
+            long count = wakeUps.get();
+            return count == 0 ? 0 : wakeLagNanos.get() / 1e6 / count;
+        }
+    }
+
+    /**
+     * CPU time as a share of all cores since the last sample, in two groups: the threads that run
+     * users (the virtual-thread carriers, or the per-user platform threads in fallback mode), and
+     * the HttpClient's selector and executor threads, which do the socket I/O and run listeners.
+     */
+    private static class CpuSampler {
+        private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        private final boolean virtual;
+        private final int cores = Runtime.getRuntime().availableProcessors();
+        private long lastUserCpuNanos;
+        private long lastHttpCpuNanos;
+        private long lastSampleNanos;
+        double userUtilization;
+        double httpUtilization;
+
+        CpuSampler(boolean virtual) {
+            this.virtual = virtual;
+            this.lastSampleNanos = System.nanoTime();
+            sample();
+        }
+
+        String label() {
+            return virtual ? "carrier" : "user-thread";
+        }
+
+        // Exited threads drop out of the sums, which can only under-report
+        void sample() {
+            long userCpu = 0;
+            long httpCpu = 0;
+            if (threads.isThreadCpuTimeSupported()) {
+                for (ThreadInfo info : threads.getThreadInfo(threads.getAllThreadIds())) {
+                    if (info == null) {
+                        continue;
+                    }
+                    String name = info.getThreadName();
+                    boolean runsUsers = virtual ? CARRIER_NAME.matcher(name).matches()
+                                                : name.startsWith(PLATFORM_USER_PREFIX);
+                    if (runsUsers) {
+                        userCpu += Math.max(0, threads.getThreadCpuTime(info.getThreadId()));
+                    } else if (name.startsWith(HTTP_EXECUTOR_PREFIX) || HTTP_SELECTOR_NAME.matcher(name).matches()) {
+                        httpCpu += Math.max(0, threads.getThreadCpuTime(info.getThreadId()));
+                    }
+                }
+            }
+
+            long now = System.nanoTime();
+            double capacity = Math.max(1, now - lastSampleNanos) * (double) cores;
+            userUtilization = Math.max(0, (userCpu - lastUserCpuNanos) / capacity);
+            httpUtilization = Math.max(0, (httpCpu - lastHttpCpuNanos) / capacity);
+            lastUserCpuNanos = userCpu;
+            lastHttpCpuNanos = httpCpu;
+            lastSampleNanos = now;
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package com.chatflow.client.worker;
+
+import com.chatflow.client.metrics.MetricsCollector;
+import com.chatflow.client.model.CorrelationIds;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.nio.CharBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * WebSocket connections shared by every SenderWorker: a fixed number per room (or in total on
+ * /mux), opened on first use and reopened after a drop. All of them run on one JDK HttpClient, so
+ * a single selector thread does the socket I/O and a small listener pool matches responses, where
+ * Java-WebSocket's WebSocketClient spends a read and a write thread on every socket.
+ *
+ * A sender leases a connection with a CAS on its slot only while it queues one frame behind the
+ * link's previous send; the write itself completes on the client's threads. Responses are routed
+ * back by correlation id, so any number of workers can have messages outstanding on the same
+ * connection.
+ */
+public class ConnectionPool {
+
+    private static final int CONNECT_TIMEOUT_MS = 5000;
+    private static final int SEND_TIMEOUT_MS = 5000;
+    private static final String MUX_KEY = "mux";
+    private static final long BUSY_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    private static final int MIN_BUFFER_CHARS = 1024;
+
+    private final String serverUrl;
+    private final boolean multiplexed;
+    private final int connectionsPerRoom;
+    private final MetricsCollector metricsCollector;
+    private final ExecutorService listenerExecutor;
+    private final HttpClient httpClient;
+    private final Map<String, AtomicReferenceArray<PooledConnection>> rooms;
+    private final AtomicInteger nextSlot;
+    private final AtomicLong nextCorrelationId;
+
+    public ConnectionPool(String serverUrl, boolean multiplexed, int connectionsPerRoom,
+                          MetricsCollector metricsCollector) {
+        this.serverUrl = serverUrl;
+        this.multiplexed = multiplexed;
+        this.connectionsPerRoom = Math.max(1, connectionsPerRoom);
+        this.metricsCollector = metricsCollector;
+        AtomicInteger threads = new AtomicInteger(0);
+        this.listenerExecutor = Executors.newFixedThreadPool(
+                Math.max(2, Runtime.getRuntime().availableProcessors()), task -> {
+                    Thread thread = new Thread(task, "ConnectionPool-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.httpClient = HttpClient.newBuilder().executor(listenerExecutor).build();
+        this.rooms = new ConcurrentHashMap<>();
+        this.nextSlot = new AtomicInteger(0);
+        this.nextCorrelationId = new AtomicLong(0);
+    }
+
+    public boolean isMultiplexed() {
+        return multiplexed;
+    }
+
+    // Unique across all workers, since they share connections and the server echoes it back
+    public long nextCorrelationId() {
+        return nextCorrelationId.incrementAndGet();
+    }
+
+    /**
+     * Sends one text frame for the room and registers the handler for its response. Returns the
+     * link it went out on, so a caller that times out can drop it, or null if no connection could
+     * be opened; a failed write drops the link, which reports onDropped to every handler on it.
+     * The payload is copied unless it is a String, so the caller may reuse it once this returns;
+     * the copy goes into a buffer the link recycles, so a steady stream of sends allocates nothing.
+     */
+    public Link send(String roomId, long correlationId, CharSequence payload, ResponseHandler handler)
+            throws InterruptedException {
+        PooledConnection connection = checkout(multiplexed ? MUX_KEY : roomId);
+        try {
+            Link link = connection.link;
+            if (link == null || link.closed.get()) {
+                link = connection.link = connect(roomId);
+                if (link == null) {
+                    return null;
+                }
+            }
+
+            link.pending.put(correlationId, handler);
+            // The JDK WebSocket allows one send at a time, so each frame waits on the one before it,
+            // and it reads the chars while writing, so the caller's payload is copied into a buffer
+            // the link reuses once this frame is out
+            CharSequence text = payload instanceof String ? payload : link.copyOf(payload);
+            Link sending = link;
+            link.lastSend = link.lastSend
+                    .thenCompose(socket -> socket.sendText(text, true))
+                    .orTimeout(SEND_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            link.lastSend.whenComplete((socket, error) -> {
+                if (error != null) {
+                    if (!sending.closed.get()) {
+                        System.err.println("Connection dropped during send to " + roomId + ": " + error.getMessage());
+                    }
+                    // Also fails this frame's handler if the link closed while it was being queued
+                    sending.drop();
+                } else if (text instanceof CharBuffer) {
+                    // Only after a completed write: a timed-out one may still be reading the buffer
+                    sending.recycle((CharBuffer) text);
+                }
+            });
+            return link;
+        } finally {
+            connection.leased.set(false);
+        }
+    }
+
+    // Lock-free: one CAS per slot tried, starting from a different slot on each call
+    private PooledConnection checkout(String key) {
+        AtomicReferenceArray<PooledConnection> slots =
+                rooms.computeIfAbsent(key, k -> new AtomicReferenceArray<>(connectionsPerRoom));
+        while (true) {
+            int start = nextSlot.getAndIncrement() & Integer.MAX_VALUE;
+            for (int i = 0; i < connectionsPerRoom; i++) {
+                int slot = (start + i) % connectionsPerRoom;
+                PooledConnection connection = slots.get(slot);
+                if (connection == null) {
+                    slots.compareAndSet(slot, null, new PooledConnection());
+                    connection = slots.get(slot);
+                }
+                if (connection.leased.compareAndSet(false, true)) {
+                    return connection;
+                }
+            }
+            // Every connection for the room is queueing a frame; that lasts microseconds
+            LockSupport.parkNanos(BUSY_PARK_NANOS);
+        }
+    }
+
+    private Link connect(String roomId) throws InterruptedException {
+        // The room travels in each frame's roomId field on /mux
+        String url = multiplexed ? serverUrl.replaceFirst("/chat/?$", "/mux") : serverUrl + roomId;
+        Link link = new Link();
+        try {
+            link.socket = httpClient.newWebSocketBuilder()
+                    .connectTimeout(Duration.ofMillis(CONNECT_TIMEOUT_MS))
+                    .buildAsync(URI.create(url), link)
+                    .get(CONNECT_TIMEOUT_MS * 2L, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            System.err.println("Failed to connect to " + url + ": " + e.getMessage());
+            return null;
+        }
+        link.lastSend = CompletableFuture.completedFuture(link.socket);
+        metricsCollector.recordConnection();
+        return link;
+    }
+
+    // Closes every connection; responses still outstanding are reported as dropped
+    public void close() {
+        List<CompletableFuture<?>> closing = new ArrayList<>();
+        for (AtomicReferenceArray<PooledConnection> slots : rooms.values()) {
+            for (int i = 0; i < slots.length(); i++) {
+                PooledConnection connection = slots.get(i);
+                if (connection != null && connection.link != null) {
+                    closing.add(connection.link.close());
+                }
+            }
+        }
+        try {
+            CompletableFuture.allOf(closing.toArray(new CompletableFuture<?>[0]))
+                    .get(CONNECT_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // Anything that did not close in time was already aborted or is abandoned with the client
+        }
+        rooms.clear();
+        listenerExecutor.shutdown();
+    }
+
+    // Told exactly once what became of a sent frame: its response, or the loss of its link
+    public interface ResponseHandler {
+        // Runs on a listener thread, so must not block
+        void onResponse(long correlationId, long receiveNanos, String response);
+
+        void onDropped(long correlationId);
+    }
+
+    // One pool slot; leased is the only lock, and link is only replaced by the leaseholder
+    private static class PooledConnection {
+        final AtomicBoolean leased = new AtomicBoolean(false);
+        volatile Link link;
+    }
+
+    /** One open socket and the responses still expected on it. */
+    public static class Link implements WebSocket.Listener {
+        private final Map<Long, ResponseHandler> pending = new ConcurrentHashMap<>();
+        private final AtomicBoolean closed = new AtomicBoolean(false);
+        private final StringBuilder partial = new StringBuilder();
+        // Payload copies whose frames have been written, ready for the next send
+        private final Queue<CharBuffer> spareBuffers = new ConcurrentLinkedQueue<>();
+        private volatile WebSocket socket;
+        // Completes when the latest queued frame is written; only the leaseholder replaces it
+        private volatile CompletableFuture<WebSocket> lastSend;
+
+        // Aborts the socket; whoever removes a pending entry owns it, so each handler hears once
+        public void drop() {
+            if (closed.compareAndSet(false, true)) {
+                WebSocket current = socket;
+                if (current != null) {
+                    current.abort();
+                }
+            }
+            failPending();
+        }
+
+        private CompletableFuture<?> close() {
+            if (!closed.compareAndSet(false, true)) {
+                return CompletableFuture.completedFuture(null);
+            }
+            WebSocket current = socket;
+            // Frames still being written go out before the close frame
+            return lastSend.handle((ws, error) -> null)
+                    .thenCompose(ignored -> current.sendClose(WebSocket.NORMAL_CLOSURE, ""))
+                    .handle((ws, error) -> {
+                        current.abort();
+                        failPending();
+                        return null;
+                    });
+        }
+
+        private CharBuffer copyOf(CharSequence payload) {
+            int length = payload.length();
+            CharBuffer buffer = spareBuffers.poll();
+            if (buffer == null || buffer.capacity() < length) {
+                buffer = CharBuffer.allocate(Math.max(MIN_BUFFER_CHARS, length));
+            }
+            for (int i = 0; i < length; i++) {
+                buffer.put(payload.charAt(i));
+            }
+            buffer.flip();
+            return buffer;
+        }
+
+        private void recycle(CharBuffer buffer) {
+            buffer.clear();
+            spareBuffers.offer(buffer);
+        }
+
+        private void failPending() {
+            for (Long correlationId : pending.keySet()) {
+                ResponseHandler handler = pending.remove(correlationId);
+                if (handler != null) {
+                    handler.onDropped(correlationId);
+                }
+            }
+        }
+
+        @Override
+        public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+            // Stamped on the listener thread before any matching. The HttpClient selector has
+            // already read the frame and handed it to this executor, so that hop is in the latency
+            long receiveNanos = System.nanoTime();
+            String response;
+            if (partial.length() == 0 && last) {
+                response = data.toString();
+            } else {
+                partial.append(data);
+                if (!last) {
+                    webSocket.request(1);
+                    return null;
+                }
+                response = partial.toString();
+                partial.setLength(0);
+            }
+
+            long correlationId = CorrelationIds.read(response);
+            ResponseHandler handler = correlationId < 0 ? null : pending.remove(correlationId);
+            if (handler != null) {
+                handler.onResponse(correlationId, receiveNanos, response);
+            }
+            webSocket.request(1);
+            return null;
+        }
+
+        @Override
+        public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
+            drop();
+            return null;
+        }
+
+        @Override
+        public void onError(WebSocket webSocket, Throwable error) {
+            drop();
+        }
+    }
+}
@@ -1,56 +1,112 @@
 package com.chatflow.client.worker;
 
+import com.chatflow.client.generator.MessageGenerator;
+import com.chatflow.client.generator.MessageShard;
+import com.chatflow.client.generator.PayloadEncoder;
 import com.chatflow.client.metrics.MetricsCollector;
 import com.chatflow.client.model.ChatMessage;
-import com.google.gson.Gson;
-import org.java_websocket.client.WebSocketClient;
-import org.java_websocket.handshake.ServerHandshake;
+import com.chatflow.client.model.ServerTiming;
 
-import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
 public class SenderWorker implements Runnable {
     
     private static final int MAX_RETRIES = 5;
     private static final int INITIAL_BACKOFF_MS = 100;
     private static final int RESPONSE_TIMEOUT_MS = 5000;
+    private static final String MUX_WINDOW_KEY = "mux";
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long RESPONSE_TIMEOUT_NANOS = TimeUnit.MILLISECONDS.toNanos(RESPONSE_TIMEOUT_MS);
+    private static final long TIMEOUT_SCAN_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
     
     private final int workerId;
-    private final String serverUrl;
-    private final BlockingQueue<ChatMessage> messageQueue;
+    // Shared by every worker; connections are leased per frame, not owned
+    private final ConnectionPool connectionPool;
+    private final MessageShard messageShard;
     private final MetricsCollector metricsCollector;
     private final int messagesToSend;
     private final CountDownLatch completionLatch;
-    private final Gson gson;
+    // Sends happen only on the worker thread, so one encoder and its buffer serve every connection
+    private final PayloadEncoder payloadEncoder;
+    // Outstanding messages allowed per room (per worker); 1 keeps the original stop-and-wait path
+    private final int window;
+    // Stop-and-wait mode: responses for this worker, tagged with the attempt they answer
+    private final BlockingQueue<ResponseData> responses;
+    private final ConnectionPool.ResponseHandler responseHandler;
+    // Pipelined mode: messages sent successfully and messages given up on, which stop-and-wait
+    // replaces with fresh ones, and failures waiting to resend
+    private final AtomicInteger succeeded;
+    private final AtomicInteger abandoned;
+    private final Queue<InFlight> retries;
+    // Resolved messages kept for reuse, so steady-state sending allocates no message objects
+    private final ArrayBlockingQueue<InFlight> freeInFlight;
+    // Pipelined mode: sent messages awaiting a response, and each room's free window slots
+    private final Map<Long, InFlight> outstanding;
+    private final Map<String, Semaphore> windows;
+    private long lastTimeoutScan;
     
-    // Connection pool
-    private final java.util.Map<String, ConnectionInfo> connectionPool;
-
-    public SenderWorker(int workerId, String serverUrl, 
-                       BlockingQueue<ChatMessage> messageQueue,
+    public SenderWorker(int workerId, ConnectionPool connectionPool,
+                       MessageShard messageShard,
                        MetricsCollector metricsCollector,
                        int messagesToSend,
                        CountDownLatch completionLatch) {
+        this(workerId, connectionPool, messageShard, metricsCollector, messagesToSend, completionLatch, 1);
+    }
+
+    public SenderWorker(int workerId, ConnectionPool connectionPool,
+                       MessageShard messageShard,
+                       MetricsCollector metricsCollector,
+                       int messagesToSend,
+                       CountDownLatch completionLatch,
+                       int window) {
         this.workerId = workerId;
-        this.serverUrl = serverUrl;
-        this.messageQueue = messageQueue;
+        this.connectionPool = connectionPool;
+        this.messageShard = messageShard;
         this.metricsCollector = metricsCollector;
         this.messagesToSend = messagesToSend;
         this.completionLatch = completionLatch;
-        this.gson = new Gson();
-        this.connectionPool = new java.util.concurrent.ConcurrentHashMap<>();
+        this.payloadEncoder = new PayloadEncoder();
+        this.window = Math.max(1, window);
+        this.responses = new LinkedBlockingQueue<>();
+        this.responseHandler = new StopAndWaitHandler();
+        this.succeeded = new AtomicInteger(0);
+        this.abandoned = new AtomicInteger(0);
+        // Backoffs differ by attempt, so the next retry due is not necessarily the oldest one queued;
+        // listener threads add to it as responses fail
+        this.retries = new PriorityBlockingQueue<>(16,
+                (a, b) -> Long.compare(a.notBeforeNanos - b.notBeforeNanos, 0));
+        this.freeInFlight = new ArrayBlockingQueue<>(
+                this.window * (connectionPool.isMultiplexed() ? 1 : MessageGenerator.ROOM_COUNT));
+        this.outstanding = new ConcurrentHashMap<>();
+        this.windows = new HashMap<>();
     }
 
     @Override
     public void run() {
+        if (window > 1) {
+            runPipelined();
+            return;
+        }
+
         int messagesSent = 0;
+        // Stop-and-wait resolves each message before the next, so one instance is reused throughout
+        ChatMessage message = new ChatMessage();
         
         try {
-            while (messagesSent < messagesToSend) {
-                ChatMessage message = messageQueue.take();
+            while (messagesSent < messagesToSend && !Thread.currentThread().isInterrupted()) {
+                messageShard.next(message);
                 
                 boolean success = sendMessageWithRetry(message);
                 
@@ -66,14 +122,13 @@ public class SenderWorker implements Runnable {
                 }
             }
             
-            System.out.println("Worker-" + workerId + " completed: " + messagesSent + " messages sent");
+            if (Thread.currentThread().isInterrupted()) {
+                System.err.println("Worker-" + workerId + " interrupted");
+            } else {
+                System.out.println("Worker-" + workerId + " completed: " + messagesSent + " messages sent");
+            }
             
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            System.err.println("Worker-" + workerId + " interrupted");
         } finally {
-            // Close all connections in pool
-            closeAllConnections();
             completionLatch.countDown();
         }
     }
@@ -112,166 +167,225 @@ public class SenderWorker implements Runnable {
     private boolean sendMessage(ChatMessage message) throws Exception {
         String roomId = message.getRoomId();
         
-        // Get connection info
-        ConnectionInfo connInfo = connectionPool.get(roomId);
-        
-        
-        // Get or create connection (only if doesn't exist or closed)
-        if (connInfo == null || connInfo.client == null || !connInfo.client.isOpen()) {
-            WebSocketClient client = createConnection(roomId);
-            if (client == null) {
-                return false;
-            }
-            connInfo = new ConnectionInfo(client);
-            connectionPool.put(roomId, connInfo);
-        }
-        
-        // Send message
-        long sendTime = System.currentTimeMillis();
-        
-        // Create a queue for this specific message's response
-        BlockingQueue<ResponseData> responseQueue = new LinkedBlockingQueue<>(1);
-        
-        // Store the response queue
-        connInfo.client.setAttachment(responseQueue);
+        // A fresh id per attempt, so a late reply to an abandoned attempt matches nothing
+        long correlationId = connectionPool.nextCorrelationId();
+        message.setCorrelationId(correlationId);
+        CharSequence payload = payloadEncoder.encodeText(message);
         
-        // Send message with connection drop detection
-        String json = gson.toJson(message);
-        try {
-            connInfo.client.send(json);
-        } catch (Exception e) {
-            // Connection dropped during send - gracefully handle
-            System.err.println("Worker-" + workerId + " connection dropped during send to " + roomId + ": " + e.getMessage());
-            connectionPool.remove(roomId);
-            try {
-                if (connInfo.client != null && connInfo.client.isOpen()) {
-                    connInfo.client.close();
-                }
-            } catch (Exception closeEx) {
-                // Ignore close errors
-            }
+        // Send message; the pool opens or reopens the room's connection as needed
+        long sendNanos = System.nanoTime();
+        ConnectionPool.Link link = connectionPool.send(roomId, correlationId, payload, responseHandler);
+        if (link == null) {
             return false;
         }
         
-        // Increment message count for this connection
-        connInfo.messageCount++;
-        
         // Wait for response
-        ResponseData response = responseQueue.poll(RESPONSE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        long deadline = sendNanos + RESPONSE_TIMEOUT_NANOS;
+        ResponseData response;
+        do {
+            response = responses.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } while (response != null && response.correlationId != correlationId);
         
-        if (response != null) {
-            long latency = response.receiveTime - sendTime;
-            metricsCollector.recordMessage(sendTime, message.getMessageType(),
-                                          latency, response.success, message.getRoomId());
-            return response.success;
-        } else {
+        if (response == null) {
             // Timeout - treat as connection drop, gracefully handle
             System.err.println("Worker-" + workerId + " timeout on room " + roomId + 
                              " - treating as connection drop (waited " + RESPONSE_TIMEOUT_MS + "ms)");
-            connectionPool.remove(roomId);
-            try {
-                if (connInfo.client != null && connInfo.client.isOpen()) {
-                    connInfo.client.close();
-                }
-            } catch (Exception e) {
-            }
+            link.drop();
+            return false;
+        }
+        if (response.dropped) {
+            System.err.println("Worker-" + workerId + " connection dropped while waiting on room " + roomId);
             return false;
         }
+
+        long latencyNanos = response.receiveNanos - sendNanos;
+        metricsCollector.recordMessage(sendNanos, message.getMessageType(),
+                                      latencyNanos, response.success, message.getRoomId());
+        if (response.timing != null) {
+            metricsCollector.recordServerTiming(latencyNanos, response.timing);
+        }
+        return response.success;
     }
 
-    private WebSocketClient createConnection(String roomId) {
+    // Keeps up to `window` messages outstanding per room; responses are matched by correlation id
+    private void runPipelined() {
+        int taken = 0;
         try {
-            String url = serverUrl + roomId;
-            WebSocketClient client = new ReusableWebSocketClient(new URI(url));
-            
-            if (client.connectBlocking(5, TimeUnit.SECONDS)) {
-                metricsCollector.recordConnection();
-                return client;
-            } else {
-                return null;
+            // Done after messagesToSend successes, as in stop-and-wait
+            while (succeeded.get() < messagesToSend) {
+                expireTimedOut(false);
+                InFlight retry = retries.peek();
+                if (retry != null && retry.notBeforeNanos - System.nanoTime() <= 0) {
+                    // A listener may have queued one due even sooner since the peek; either is due
+                    dispatch(retries.poll());
+                } else if (taken - abandoned.get() < messagesToSend) {
+                    taken++;
+                    dispatch(nextInFlight());
+                } else {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
             }
-        } catch (Exception e) {
-            System.err.println("Worker-" + workerId + " failed to connect to " + roomId + ": " + e.getMessage());
-            return null;
+
+            System.out.println("Worker-" + workerId + " completed: " + succeeded.get() +
+                             " messages sent (window " + window + ")");
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Worker-" + workerId + " interrupted");
+        } finally {
+            completionLatch.countDown();
         }
     }
 
-    private void closeAllConnections() {
-        for (ConnectionInfo connInfo : connectionPool.values()) {
-            try {
-                if (connInfo.client != null && connInfo.client.isOpen()) {
-                    connInfo.client.close();
-                }
-            } catch (Exception e) {
-            }
+    private InFlight nextInFlight() {
+        InFlight inFlight = freeInFlight.poll();
+        if (inFlight == null) {
+            inFlight = new InFlight();
         }
-        connectionPool.clear();
+        inFlight.attempt = 0;
+        messageShard.next(inFlight.message);
+        return inFlight;
     }
 
-    // Holder for connection and its message count
-    private static class ConnectionInfo {
-        WebSocketClient client;
-        int messageCount;
-        
-        ConnectionInfo(WebSocketClient client) {
-            this.client = client;
-            this.messageCount = 0;
+    private void dispatch(InFlight inFlight) throws InterruptedException {
+        ChatMessage message = inFlight.message;
+        String windowKey = connectionPool.isMultiplexed() ? MUX_WINDOW_KEY : message.getRoomId();
+
+        // A full window that never drains means responses have stopped coming back
+        Semaphore permits = windows.computeIfAbsent(windowKey, key -> new Semaphore(window));
+        if (!permits.tryAcquire(RESPONSE_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+            System.err.println("Worker-" + workerId + " window stalled on " + windowKey +
+                             " - treating as connection drop (waited " + RESPONSE_TIMEOUT_MS + "ms)");
+            expireTimedOut(true);
+            // It never went out, so it goes back without using up an attempt
+            inFlight.notBeforeNanos = System.nanoTime();
+            retries.add(inFlight);
+            return;
         }
+
+        // A fresh id per attempt, so a late reply to an abandoned attempt matches nothing
+        long correlationId = connectionPool.nextCorrelationId();
+        message.setCorrelationId(correlationId);
+        inFlight.permits = permits;
+        inFlight.sendNanos = System.nanoTime();
+        outstanding.put(correlationId, inFlight);
+        ConnectionPool.Link link = connectionPool.send(message.getRoomId(), correlationId,
+                                                       payloadEncoder.encodeText(message), inFlight);
+        if (link == null) {
+            // Never registered with a connection, so no handler call will come
+            outstanding.remove(correlationId);
+            permits.release();
+            retryOrFail(inFlight);
+            return;
+        }
+        inFlight.link = link;
     }
 
-    // Inner class for reusable WebSocket client
-    private class ReusableWebSocketClient extends WebSocketClient {
-        
-        public ReusableWebSocketClient(URI serverUri) {
-            super(serverUri);
-            setConnectionLostTimeout(0);
+    // Runs on a pool listener thread
+    private void complete(InFlight inFlight, long receiveNanos, String response) {
+        boolean success = response.contains("\"status\":\"success\"");
+        long latencyNanos = receiveNanos - inFlight.sendNanos;
+        ChatMessage message = inFlight.message;
+        metricsCollector.recordMessage(inFlight.sendNanos, message.getMessageType(),
+                                      latencyNanos, success, message.getRoomId());
+        ServerTiming timing = ServerTiming.fromResponse(response);
+        if (timing != null) {
+            metricsCollector.recordServerTiming(latencyNanos, timing);
+        }
+        if (success) {
+            succeeded.incrementAndGet();
+            freeInFlight.offer(inFlight);
+        } else {
+            retryOrFail(inFlight);
+        }
+    }
+
+    private void retryOrFail(InFlight inFlight) {
+        inFlight.attempt++;
+        if (inFlight.attempt < MAX_RETRIES) {
+            inFlight.notBeforeNanos = System.nanoTime() +
+                    TimeUnit.MILLISECONDS.toNanos(INITIAL_BACKOFF_MS * (long) Math.pow(2, inFlight.attempt - 1));
+            retries.add(inFlight);
+            return;
+        }
+        System.err.println("Worker-" + workerId +
+            " [FAILED] Message failed after " + MAX_RETRIES + " retries");
+        metricsCollector.recordFailedMessage();
+        abandoned.incrementAndGet();
+        freeInFlight.offer(inFlight);
+    }
+
+    // Drops the connection under any message unanswered for too long; its handlers retry
+    private void expireTimedOut(boolean force) {
+        long now = System.nanoTime();
+        if (!force && now - lastTimeoutScan < TIMEOUT_SCAN_INTERVAL_NANOS) {
+            return;
+        }
+        lastTimeoutScan = now;
+        for (InFlight inFlight : outstanding.values()) {
+            ConnectionPool.Link link = inFlight.link;
+            if (link != null && now - inFlight.sendNanos > RESPONSE_TIMEOUT_NANOS) {
+                System.err.println("Worker-" + workerId + " timeout on " + inFlight.message.getRoomId() +
+                                 " - treating as connection drop (waited " + RESPONSE_TIMEOUT_MS + "ms)");
+                link.drop();
+            }
         }
+    }
 
+    // Stop-and-wait mode: hands every outcome to the waiting worker thread
+    private class StopAndWaitHandler implements ConnectionPool.ResponseHandler {
         @Override
-        public void onOpen(ServerHandshake handshake) {
-            // Connection opened
+        public void onResponse(long correlationId, long receiveNanos, String response) {
+            boolean success = response.contains("\"status\":\"success\"");
+            responses.offer(new ResponseData(correlationId, receiveNanos, success, false,
+                                             ServerTiming.fromResponse(response)));
         }
 
         @Override
-        @SuppressWarnings("unchecked")
-        public void onMessage(String response) {
-            long receiveTime = System.currentTimeMillis();
-            
-            // Get the response queue from attachment
-            BlockingQueue<ResponseData> responseQueue = 
-                (BlockingQueue<ResponseData>) this.getAttachment();
-            
-            if (responseQueue != null) {
-                boolean success = response.contains("\"status\":\"success\"");
-                ResponseData data = new ResponseData(receiveTime, success);
-                
-                try {
-                    responseQueue.offer(data, 100, TimeUnit.MILLISECONDS);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                }
-            }
+        public void onDropped(long correlationId) {
+            responses.offer(new ResponseData(correlationId, 0, false, true, null));
         }
+    }
+
+    // A message on its way through the pipelined path, across retries; reused once resolved
+    private class InFlight implements ConnectionPool.ResponseHandler {
+        final ChatMessage message = new ChatMessage();
+        int attempt;
+        long sendNanos;
+        long notBeforeNanos;
+        Semaphore permits;
+        volatile ConnectionPool.Link link;
 
+        // The pool calls exactly one of these per send, so each attempt releases its slot once
         @Override
-        public void onClose(int code, String reason, boolean remote) {
-            // Connection closed - will reconnect if needed
+        public void onResponse(long correlationId, long receiveNanos, String response) {
+            outstanding.remove(correlationId);
+            permits.release();
+            complete(this, receiveNanos, response);
         }
 
         @Override
-        public void onError(Exception ex) {
-            // Errors are handled at retry level
+        public void onDropped(long correlationId) {
+            outstanding.remove(correlationId);
+            permits.release();
+            retryOrFail(this);
         }
     }
 
     // Helper class to hold response data
     private static class ResponseData {
-        final long receiveTime;
+        final long correlationId;
+        final long receiveNanos;
         final boolean success;
+        final boolean dropped;
+        final ServerTiming timing;
         
-        ResponseData(long receiveTime, boolean success) {
-            this.receiveTime = receiveTime;
+        ResponseData(long correlationId, long receiveNanos, boolean success, boolean dropped, ServerTiming timing) {
+            this.correlationId = correlationId;
+            this.receiveNanos = receiveNanos;
             this.success = success;
+            this.dropped = dropped;
+            this.timing = timing;
         }
     }
-}
\ No newline at end of file
+}